@@ -17,11 +17,13 @@
 package org.kie.commons.java.nio.fs.jgit;
 
 import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.dfs.DfsRepository;
 import org.kie.commons.java.nio.IOException;
 import org.kie.commons.java.nio.file.FileStore;
 import org.kie.commons.java.nio.file.attribute.BasicFileAttributeView;
 import org.kie.commons.java.nio.file.attribute.FileAttributeView;
 import org.kie.commons.java.nio.file.attribute.FileStoreAttributeView;
+import org.kie.commons.java.nio.fs.jgit.util.RepositoryStatistics;
 
 import static org.kie.commons.validation.Preconditions.*;
 
@@ -35,6 +37,9 @@ public class JGitFileStore implements FileStore {
 
     @Override
     public String name() {
+        if ( repository.getDirectory() == null && repository instanceof DfsRepository ) {
+            return ( (DfsRepository) repository ).getDescription().getRepositoryName();
+        }
         return repository.getDirectory().getName();
     }
 
@@ -50,11 +55,17 @@ public class JGitFileStore implements FileStore {
 
     @Override
     public long getTotalSpace() throws IOException {
+        if ( repository.getDirectory() == null ) {
+            return Runtime.getRuntime().maxMemory();
+        }
         return repository.getDirectory().getTotalSpace();
     }
 
     @Override
     public long getUsableSpace() throws IOException {
+        if ( repository.getDirectory() == null ) {
+            return Runtime.getRuntime().maxMemory() - ( Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory() );
+        }
         return repository.getDirectory().getUsableSpace();
     }
 
@@ -87,6 +98,10 @@ public class JGitFileStore implements FileStore {
     public <V extends FileStoreAttributeView> V getFileStoreAttributeView( Class<V> type ) {
         checkNotNull( "type", type );
 
+        if ( type.equals( JGitFileStoreAttributeView.class ) ) {
+            return (V) new JGitFileStoreAttributeView( RepositoryStatistics.of( repository ) );
+        }
+
         return null;
     }
 
@@ -106,6 +121,13 @@ public class JGitFileStore implements FileStore {
         if ( attribute.equals( "name" ) ) {
             return name();
         }
+        if ( attribute.startsWith( JGitFileStoreAttributeView.STATS + ":" ) ) {
+            final String name = attribute.substring( JGitFileStoreAttributeView.STATS.length() + 1 );
+            final Object result = getFileStoreAttributeView( JGitFileStoreAttributeView.class ).readAttributes( name ).get( name );
+            if ( result != null ) {
+                return result;
+            }
+        }
         throw new UnsupportedOperationException( "Attribute '" + attribute + "' not available" );
     }
 
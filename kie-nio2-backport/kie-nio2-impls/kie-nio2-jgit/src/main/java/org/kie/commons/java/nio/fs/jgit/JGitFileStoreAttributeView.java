@@ -0,0 +1,103 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.commons.java.nio.fs.jgit;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.kie.commons.java.nio.IOException;
+import org.kie.commons.java.nio.file.attribute.FileStoreAttributeView;
+import org.kie.commons.java.nio.fs.jgit.util.RepositoryStatistics;
+
+import static org.kie.commons.validation.Preconditions.*;
+
+/**
+ * Repository counters of a {@link JGitFileStore}, meant for monitoring (e.g. deciding when to repack or shard).
+ */
+public class JGitFileStoreAttributeView implements FileStoreAttributeView {
+
+    public static final String STATS = "stats";
+
+    public static final String LOOSE_OBJECTS = "looseObjects";
+    public static final String PACK_COUNT    = "packCount";
+    public static final String PACK_SIZE     = "packSize";
+    public static final String REF_COUNT     = "refCount";
+    public static final String LAST_GC       = "lastGc";
+    public static final String SINCE_LAST_GC = "sinceLastGc";
+
+    private final RepositoryStatistics statistics;
+
+    JGitFileStoreAttributeView( final RepositoryStatistics statistics ) {
+        this.statistics = checkNotNull( "statistics", statistics );
+    }
+
+    @Override
+    public String name() {
+        return STATS;
+    }
+
+    public RepositoryStatistics readAttributes() throws IOException {
+        return statistics;
+    }
+
+    public Map<String, Object> readAttributes( final String... attributes ) {
+        checkNotEmpty( "attributes", attributes );
+
+        return new HashMap<String, Object>() {{
+            for ( final String attribute : attributes ) {
+                checkNotEmpty( "attribute", attribute );
+                final boolean all = attribute.equals( "*" );
+
+                if ( all || attribute.equals( LOOSE_OBJECTS ) ) {
+                    put( LOOSE_OBJECTS, statistics.getLooseObjects() );
+                }
+                if ( all || attribute.equals( PACK_COUNT ) ) {
+                    put( PACK_COUNT, statistics.getPackCount() );
+                }
+                if ( all || attribute.equals( PACK_SIZE ) ) {
+                    put( PACK_SIZE, statistics.getPackSize() );
+                }
+                if ( all || attribute.equals( REF_COUNT ) ) {
+                    put( REF_COUNT, statistics.getRefCount() );
+                }
+                if ( all || attribute.equals( LAST_GC ) ) {
+                    put( LAST_GC, statistics.getLastGc() );
+                }
+                if ( all || attribute.equals( SINCE_LAST_GC ) ) {
+                    put( SINCE_LAST_GC, sinceLastGc() );
+                }
+
+                if ( all ) {
+                    break;
+                }
+            }
+        }};
+    }
+
+    /**
+     * Millis since the last gc, or <code>-1</code> if the repository was never packed.
+     */
+    public long sinceLastGc() {
+        final long lastGc = statistics.getLastGc();
+        if ( lastGc < 0 ) {
+            return -1;
+        }
+        return System.currentTimeMillis() - lastGc;
+    }
+
+}
@@ -36,6 +36,7 @@ import org.kie.commons.java.nio.file.PatternSyntaxException;
 import org.kie.commons.java.nio.file.WatchService;
 import org.kie.commons.java.nio.file.attribute.UserPrincipalLookupService;
 import org.kie.commons.java.nio.file.spi.FileSystemProvider;
+import org.kie.commons.java.nio.fs.jgit.util.DurabilityProfile;
 
 import static org.eclipse.jgit.lib.Repository.*;
 import static org.kie.commons.java.nio.fs.jgit.util.JGitUtil.*;
@@ -55,6 +56,7 @@ public class JGitFileSystem implements FileSystem {
     private final FileStore           fileStore;
     private final String              name;
     private final CredentialsProvider credential;
+    private final DurabilityProfile   durability;
 
     JGitFileSystem( final FileSystemProvider provider,
                     final Git git,
@@ -68,12 +70,23 @@ public class JGitFileSystem implements FileSystem {
                     final String name,
                     final ListBranchCommand.ListMode listMode,
                     final CredentialsProvider credential ) {
+        this( provider, git, name, listMode, credential, DurabilityProfile.safe() );
+    }
+
+    JGitFileSystem( final FileSystemProvider provider,
+                    final Git git,
+                    final String name,
+                    final ListBranchCommand.ListMode listMode,
+                    final CredentialsProvider credential,
+                    final DurabilityProfile durability ) {
         this.provider = checkNotNull( "provider", provider );
         this.gitRepo = checkNotNull( "git", git );
         this.name = checkNotEmpty( "name", name );
         this.credential = checkNotNull( "credential", credential );
         this.listMode = listMode;
+        this.durability = checkNotNull( "durability", durability );
         this.fileStore = new JGitFileStore( gitRepo.getRepository() );
+        this.durability.apply( gitRepo.getRepository() );
     }
 
     public String getName() {
@@ -88,6 +101,10 @@ public class JGitFileSystem implements FileSystem {
         return credential;
     }
 
+    public DurabilityProfile getDurability() {
+        return durability;
+    }
+
     @Override
     public FileSystemProvider provider() {
         return provider;
@@ -235,6 +252,7 @@ public class JGitFileSystem implements FileSystem {
     @Override
     public void close() throws IOException {
         checkClose();
+        durability.flush();
         gitRepo.getRepository().close();
         isClose = true;
     }
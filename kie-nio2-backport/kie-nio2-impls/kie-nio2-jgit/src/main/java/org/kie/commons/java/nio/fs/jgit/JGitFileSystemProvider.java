@@ -27,6 +27,7 @@ import java.net.URI;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -83,7 +84,11 @@ import org.kie.commons.java.nio.file.attribute.BasicFileAttributes;
 import org.kie.commons.java.nio.file.attribute.FileAttribute;
 import org.kie.commons.java.nio.file.attribute.FileAttributeView;
 import org.kie.commons.java.nio.file.spi.FileSystemProvider;
+import org.kie.commons.java.nio.fs.jgit.util.DurabilityProfile;
+import org.kie.commons.java.nio.fs.jgit.util.HashRepositoryPlacement;
 import org.kie.commons.java.nio.fs.jgit.util.JGitUtil;
+import org.kie.commons.java.nio.fs.jgit.util.RepositoryPlacement;
+import org.kie.commons.java.nio.fs.jgit.util.UsableSpaceRepositoryPlacement;
 
 import static org.eclipse.jgit.api.ListBranchCommand.ListMode.*;
 import static org.eclipse.jgit.lib.Constants.*;
@@ -99,11 +104,19 @@ public class JGitFileSystemProvider implements FileSystemProvider {
     private static final String SCHEME                  = "git";
 
     public static final String REPOSITORIES_ROOT_DIR = ".niogit";
-    public static File FILE_REPOSITORIES_ROOT;
+    public static File       FILE_REPOSITORIES_ROOT;
+    public static List<File> FILE_REPOSITORIES_ROOTS;
 
-    public static final String USER_NAME = "username";
-    public static final String PASSWORD  = "password";
-    public static final String INIT      = "init";
+    public static final String PLACEMENT_HASH  = "hash";
+    public static final String PLACEMENT_SPACE = "space";
+
+    public static final String USER_NAME  = "username";
+    public static final String PASSWORD   = "password";
+    public static final String INIT       = "init";
+    public static final String ROOT_DIR   = "root.dir";
+    public static final String FORK       = "fork";
+    public static final String MEMORY     = "mem";
+    public static final String DURABILITY = "durability";
 
     public static final int SCHEME_SIZE         = ( SCHEME + "://" ).length();
     public static final int DEFAULT_SCHEME_SIZE = ( "default://" ).length();
@@ -112,41 +125,86 @@ public class JGitFileSystemProvider implements FileSystemProvider {
 
     private boolean isDefault;
 
+    private RepositoryPlacement repositoryPlacement;
+
     static {
         loadConfig();
         CredentialsProvider.setDefault( new UsernamePasswordCredentialsProvider( "guest", "" ) );
     }
 
+    /**
+     * Reads the repositories roots from <code>org.kie.nio.git.dir</code>, that may hold several directories
+     * separated by the platform path separator, each one getting its own <code>.niogit</code> root.
+     */
     public static void loadConfig() {
         final String value = System.getProperty( "org.kie.nio.git.dir" );
+        final List<File> roots = new ArrayList<File>();
         if ( value == null || value.trim().isEmpty() ) {
-            FILE_REPOSITORIES_ROOT = new File( REPOSITORIES_ROOT_DIR );
+            roots.add( new File( REPOSITORIES_ROOT_DIR ) );
         } else {
-            FILE_REPOSITORIES_ROOT = new File( value.trim(), REPOSITORIES_ROOT_DIR );
+            for ( final String dir : value.split( File.pathSeparator ) ) {
+                if ( !dir.trim().isEmpty() ) {
+                    roots.add( new File( dir.trim(), REPOSITORIES_ROOT_DIR ) );
+                }
+            }
+            if ( roots.isEmpty() ) {
+                roots.add( new File( REPOSITORIES_ROOT_DIR ) );
+            }
         }
+        FILE_REPOSITORIES_ROOTS = Collections.unmodifiableList( roots );
+        FILE_REPOSITORIES_ROOT = roots.get( 0 );
     }
 
     public JGitFileSystemProvider() {
-        final String[] repos = FILE_REPOSITORIES_ROOT.list( new FilenameFilter() {
-            @Override
-            public boolean accept( final File dir,
-                                   String name ) {
-                return name.endsWith( DOT_GIT_EXT );
-            }
-        } );
-
-        if ( repos != null ) {
-            for ( final String repo : repos ) {
-                final File repoDir = new File( FILE_REPOSITORIES_ROOT, repo );
-                if ( repoDir.isDirectory() ) {
-                    final String name = repoDir.getName().substring( 0, repoDir.getName().indexOf( DOT_GIT_EXT ) );
-                    final JGitFileSystem fs = new JGitFileSystem( this, newRepository( repoDir ), name, ALL, buildCredential( null ) );
-                    fileSystems.put( name, fs );
+        this.repositoryPlacement = buildPlacement( System.getProperty( "org.kie.nio.git.placement" ) );
+
+        for ( final File root : FILE_REPOSITORIES_ROOTS ) {
+            final String[] repos = root.list( new FilenameFilter() {
+                @Override
+                public boolean accept( final File dir,
+                                       String name ) {
+                    return name.endsWith( DOT_GIT_EXT );
+                }
+            } );
+
+            if ( repos != null ) {
+                for ( final String repo : repos ) {
+                    final File repoDir = new File( root, repo );
+                    if ( repoDir.isDirectory() ) {
+                        final String name = repoDir.getName().substring( 0, repoDir.getName().indexOf( DOT_GIT_EXT ) );
+                        if ( fileSystems.containsKey( name ) ) {
+                            continue;
+                        }
+                        final JGitFileSystem fs = new JGitFileSystem( this, newRepository( repoDir ), name, ALL, buildCredential( null ) );
+                        fileSystems.put( name, fs );
+                    }
                 }
             }
         }
     }
 
+    private static RepositoryPlacement buildPlacement( final String value ) {
+        if ( value == null || value.trim().isEmpty() || value.trim().equals( PLACEMENT_HASH ) ) {
+            return new HashRepositoryPlacement();
+        }
+        if ( value.trim().equals( PLACEMENT_SPACE ) ) {
+            return new UsableSpaceRepositoryPlacement();
+        }
+        try {
+            return (RepositoryPlacement) Class.forName( value.trim() ).newInstance();
+        } catch ( final Exception ex ) {
+            throw new IllegalArgumentException( "Invalid repository placement '" + value + "'.", ex );
+        }
+    }
+
+    public RepositoryPlacement getRepositoryPlacement() {
+        return repositoryPlacement;
+    }
+
+    public synchronized void setRepositoryPlacement( final RepositoryPlacement repositoryPlacement ) {
+        this.repositoryPlacement = checkNotNull( "repositoryPlacement", repositoryPlacement );
+    }
+
     @Override
     public synchronized void forceAsDefault() {
         this.isDefault = true;
@@ -185,24 +243,37 @@ public class JGitFileSystemProvider implements FileSystemProvider {
         }
 
         final Git git;
-        final File repoDest = new File( FILE_REPOSITORIES_ROOT, name + DOT_GIT_EXT );
         final ListBranchCommand.ListMode listMode;
         final CredentialsProvider credential;
-        if ( env.containsKey( GIT_DEFAULT_REMOTE_NAME ) ) {
+        if ( env.containsKey( MEMORY ) && env.get( MEMORY ).equals( Boolean.TRUE ) ) {
+            checkCondition( "in memory file systems can't be cloned or forked", !env.containsKey( GIT_DEFAULT_REMOTE_NAME ) && !env.containsKey( FORK ) );
+            credential = buildCredential( null );
+            git = newInMemoryRepository( name );
+            listMode = null;
+        } else if ( env.containsKey( GIT_DEFAULT_REMOTE_NAME ) ) {
+            final File repoDest = new File( resolveRoot( name, env ), name + DOT_GIT_EXT );
             final String originURI = env.get( GIT_DEFAULT_REMOTE_NAME ).toString();
             credential = buildCredential( env );
             git = cloneRepository( repoDest, originURI, credential );
             listMode = ALL;
+        } else if ( env.containsKey( FORK ) ) {
+            final JGitFileSystem origin = fileSystems.get( env.get( FORK ).toString() );
+            if ( origin == null ) {
+                throw new FileSystemNotFoundException( "No filesystem named '" + env.get( FORK ) + "' to fork from." );
+            }
+            credential = buildCredential( null );
+            git = forkRepository( new File( resolveRoot( name, env ), name + DOT_GIT_EXT ), origin.gitRepo() );
+            listMode = null;
         } else {
             credential = buildCredential( null );
-            git = newRepository( repoDest );
+            git = newRepository( new File( resolveRoot( name, env ), name + DOT_GIT_EXT ) );
             listMode = null;
         }
 
-        final JGitFileSystem fs = new JGitFileSystem( this, git, name, listMode, credential );
+        final JGitFileSystem fs = new JGitFileSystem( this, git, name, listMode, credential, DurabilityProfile.valueOf( env.get( DURABILITY ) ) );
         fileSystems.put( name, fs );
 
-        if ( !env.containsKey( GIT_DEFAULT_REMOTE_NAME ) && env.containsKey( INIT ) && env.get( INIT ).equals( Boolean.TRUE ) ) {
+        if ( !env.containsKey( GIT_DEFAULT_REMOTE_NAME ) && !env.containsKey( FORK ) && env.containsKey( INIT ) && env.get( INIT ).equals( Boolean.TRUE ) ) {
             try {
                 final URI initURI = URI.create( getScheme() + "://master@" + name + "/readme.md" );
                 final CommentedOption op = setupOp( env );
@@ -220,6 +291,28 @@ public class JGitFileSystemProvider implements FileSystemProvider {
         return fs;
     }
 
+    private File resolveRoot( final String name,
+                              final Map<String, ?> env ) {
+        for ( final File root : FILE_REPOSITORIES_ROOTS ) {
+            if ( new File( root, name + DOT_GIT_EXT ).exists() ) {
+                return root;
+            }
+        }
+
+        if ( env.containsKey( ROOT_DIR ) ) {
+            final File root = new File( env.get( ROOT_DIR ).toString() );
+            for ( final File knownRoot : FILE_REPOSITORIES_ROOTS ) {
+                if ( knownRoot.getAbsoluteFile().equals( root.getAbsoluteFile() ) ||
+                        knownRoot.getAbsoluteFile().equals( new File( root, REPOSITORIES_ROOT_DIR ).getAbsoluteFile() ) ) {
+                    return knownRoot;
+                }
+            }
+            throw new IllegalArgumentException( "Root '" + root + "' is not a configured repositories root." );
+        }
+
+        return repositoryPlacement.selectRoot( name, FILE_REPOSITORIES_ROOTS );
+    }
+
     private CommentedOption setupOp( final Map<String, ?> env ) {
         return null;
     }
@@ -244,6 +337,10 @@ public class JGitFileSystemProvider implements FileSystemProvider {
             }
         }
 
+        if ( hasRepackFlag( uri ) ) {
+            JGitUtil.repackLocal( fileSystem.gitRepo() );
+        }
+
         return fileSystem;
     }
 
@@ -319,7 +416,7 @@ public class JGitFileSystemProvider implements FileSystemProvider {
 
                     commit( gPath.getFileSystem().gitRepo(), gPath.getRefTree(), name, email, message, timeZone, when, new HashMap<String, File>() {{
                         put( gPath.getPath(), file );
-                    }} );
+                    }}, gPath.getFileSystem().getDurability() );
                 }
             };
         } catch ( java.io.IOException e ) {
@@ -404,7 +501,7 @@ public class JGitFileSystemProvider implements FileSystemProvider {
                         if ( dotfile != null ) {
                             put( toPathImpl( dot( gPath ) ).getPath(), dotfile );
                         }
-                    }} );
+                    }}, gPath.getFileSystem().getDurability() );
                 }
             };
         } catch ( java.io.IOException e ) {
@@ -585,7 +682,7 @@ public class JGitFileSystemProvider implements FileSystemProvider {
             final List<JGitPathInfo> content = listPathContent( path.getFileSystem().gitRepo(), path.getRefTree(), path.getPath() );
             if ( content.size() == 1 && content.get( 0 ).getPath().equals( path.getPath().substring( 1 ) + "/.gitignore" ) ) {
                 delete( path.resolve( ".gitignore" ) );
-                JGitUtil.delete( path.getFileSystem().gitRepo(), path.getRefTree(), path.getPath(), null, null, "delete {" + path.getPath() + "}", null, null );
+                JGitUtil.delete( path.getFileSystem().gitRepo(), path.getRefTree(), path.getPath(), null, null, "delete {" + path.getPath() + "}", null, null, path.getFileSystem().getDurability() );
                 return;
             }
             throw new DirectoryNotEmptyException( path.toString() );
@@ -595,7 +692,7 @@ public class JGitFileSystemProvider implements FileSystemProvider {
             throw new NoSuchFileException( path.toString() );
         }
 
-        JGitUtil.delete( path.getFileSystem().gitRepo(), path.getRefTree(), path.getPath(), null, null, "delete {" + path.getPath() + "}", null, null );
+        JGitUtil.delete( path.getFileSystem().gitRepo(), path.getRefTree(), path.getPath(), null, null, "delete {" + path.getPath() + "}", null, null, path.getFileSystem().getDurability() );
     }
 
     public void deleteBranch( final JGitPathImpl path ) {
@@ -649,7 +746,7 @@ public class JGitFileSystemProvider implements FileSystemProvider {
             return false;
         }
 
-        JGitUtil.delete( path.getFileSystem().gitRepo(), path.getRefTree(), path.getPath(), null, null, "delete {" + path.getPath() + "}", null, null );
+        JGitUtil.delete( path.getFileSystem().gitRepo(), path.getRefTree(), path.getPath(), null, null, "delete {" + path.getPath() + "}", null, null, path.getFileSystem().getDurability() );
         return true;
     }
 
@@ -1054,6 +1151,16 @@ public class JGitFileSystemProvider implements FileSystemProvider {
         return false;
     }
 
+    private boolean hasRepackFlag( final URI uri ) {
+        checkNotNull( "uri", uri );
+
+        if ( uri.getQuery() != null ) {
+            return uri.getQuery().contains( "repack" );
+        }
+
+        return false;
+    }
+
     private String extractPath( final URI uri ) {
         checkNotNull( "uri", uri );
 
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.commons.java.nio.fs.jgit.util;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.StoredConfig;
+
+import static org.kie.commons.validation.Preconditions.*;
+
+/**
+ * Controls how much a file system pays for durability on each commit: reflog lines, fsync of new
+ * object files and fsync of updated refs, the latter optionally batched every N commits or T millis.
+ * <p/>
+ * Instances keep the pending refs of one file system, so they must not be shared between file systems.
+ */
+public class DurabilityProfile {
+
+    public static final String SAFE = "safe";
+    public static final String FAST = "fast";
+
+    private static final String CONFIG_CORE_SECTION     = "core";
+    private static final String CONFIG_FSYNC_OBJECT_KEY = "fsyncobjectfiles";
+    private static final String CONFIG_FSYNC_REF_KEY    = "fsyncreffiles";
+
+    private final boolean refLog;
+    private final boolean fsyncObjectFiles;
+    private final int     refSyncCommits;
+    private final long    refSyncInterval;
+
+    private final Set<File> pendingRefs = new LinkedHashSet<File>();
+    private int  pendingCommits = 0;
+    private long lastRefSync    = System.currentTimeMillis();
+
+    /**
+     * @param refLog whether commits append to the reflog
+     * @param fsyncObjectFiles whether new loose objects are fsynced before the ref is updated
+     * @param refSyncCommits fsync updated refs once every this many commits; 0 disables the count trigger
+     * @param refSyncInterval fsync updated refs once this many millis passed since the last sync; 0 disables the time trigger
+     * (with both triggers disabled refs are never fsynced explicitly)
+     */
+    public DurabilityProfile( final boolean refLog,
+                              final boolean fsyncObjectFiles,
+                              final int refSyncCommits,
+                              final long refSyncInterval ) {
+        checkCondition( "refSyncCommits can't be negative", refSyncCommits >= 0 );
+        checkCondition( "refSyncInterval can't be negative", refSyncInterval >= 0 );
+        this.refLog = refLog;
+        this.fsyncObjectFiles = fsyncObjectFiles;
+        this.refSyncCommits = refSyncCommits;
+        this.refSyncInterval = refSyncInterval;
+    }
+
+    /**
+     * Reflog on, objects and refs fsynced on every commit.
+     */
+    public static DurabilityProfile safe() {
+        return new DurabilityProfile( true, true, 1, 0 );
+    }
+
+    /**
+     * No reflog, no object fsync, refs fsynced every 100 commits or every second, whatever comes first.
+     */
+    public static DurabilityProfile fast() {
+        return new DurabilityProfile( false, false, 100, 1000 );
+    }
+
+    public static DurabilityProfile valueOf( final Object value ) {
+        if ( value == null ) {
+            return safe();
+        }
+        if ( value instanceof DurabilityProfile ) {
+            return (DurabilityProfile) value;
+        }
+        if ( SAFE.equalsIgnoreCase( value.toString() ) ) {
+            return safe();
+        }
+        if ( FAST.equalsIgnoreCase( value.toString() ) ) {
+            return fast();
+        }
+        throw new IllegalArgumentException( "Unknown durability profile '" + value + "'." );
+    }
+
+    public boolean isRefLog() {
+        return refLog;
+    }
+
+    public boolean isFSyncObjectFiles() {
+        return fsyncObjectFiles;
+    }
+
+    public int getRefSyncCommits() {
+        return refSyncCommits;
+    }
+
+    public long getRefSyncInterval() {
+        return refSyncInterval;
+    }
+
+    /**
+     * Pushes the fsync settings into the repository config (in memory only, nothing is saved).
+     * When refs are synced on every commit JGit does it itself while writing the ref.
+     */
+    public void apply( final Repository repository ) {
+        checkNotNull( "repository", repository );
+        if ( repository.getDirectory() == null ) {
+            return;
+        }
+        final StoredConfig config = repository.getConfig();
+        config.setBoolean( CONFIG_CORE_SECTION, null, CONFIG_FSYNC_OBJECT_KEY, fsyncObjectFiles );
+        config.setBoolean( CONFIG_CORE_SECTION, null, CONFIG_FSYNC_REF_KEY, isRefSyncedByRepository() );
+    }
+
+    /**
+     * Records a ref written by a commit and fsyncs all pending refs once the batch is due.
+     */
+    public synchronized void refUpdated( final Repository repository,
+                                         final String refName ) {
+        checkNotNull( "repository", repository );
+        checkNotEmpty( "refName", refName );
+        if ( repository.getDirectory() == null || isRefSyncedByRepository() || !isRefSyncBatched() ) {
+            return;
+        }
+        pendingRefs.add( new File( repository.getDirectory(), refName ) );
+        pendingCommits++;
+
+        final boolean countDue = refSyncCommits > 0 && pendingCommits >= refSyncCommits;
+        final boolean timeDue = refSyncInterval > 0 && System.currentTimeMillis() - lastRefSync >= refSyncInterval;
+        if ( countDue || timeDue ) {
+            flush();
+        }
+    }
+
+    /**
+     * Fsyncs every ref updated since the last sync.
+     */
+    public synchronized void flush() {
+        try {
+            for ( final File ref : pendingRefs ) {
+                if ( !ref.isFile() ) {
+                    continue;
+                }
+                final RandomAccessFile file = new RandomAccessFile( ref, "rw" );
+                try {
+                    file.getFD().sync();
+                } finally {
+                    file.close();
+                }
+            }
+        } catch ( final java.io.IOException e ) {
+            throw new RuntimeException( e );
+        }
+        pendingRefs.clear();
+        pendingCommits = 0;
+        lastRefSync = System.currentTimeMillis();
+    }
+
+    public synchronized int getPendingRefSyncs() {
+        return pendingCommits;
+    }
+
+    private boolean isRefSyncedByRepository() {
+        return refSyncCommits == 1;
+    }
+
+    private boolean isRefSyncBatched() {
+        return refSyncCommits > 1 || refSyncInterval > 0;
+    }
+
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.commons.java.nio.fs.jgit.util;
+
+import java.io.File;
+import java.util.List;
+
+import static org.kie.commons.validation.Preconditions.*;
+
+/**
+ * Spreads repositories over the roots by the hash of their names, so a given name always lands on the same root.
+ */
+public class HashRepositoryPlacement implements RepositoryPlacement {
+
+    @Override
+    public File selectRoot( final String repositoryName,
+                            final List<File> roots ) {
+        checkNotEmpty( "repositoryName", repositoryName );
+        checkNotEmpty( "roots", roots );
+
+        return roots.get( ( repositoryName.hashCode() & Integer.MAX_VALUE ) % roots.size() );
+    }
+
+}
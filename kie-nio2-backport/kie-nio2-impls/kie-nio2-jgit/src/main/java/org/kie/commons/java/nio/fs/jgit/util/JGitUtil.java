@@ -16,9 +16,14 @@
 
 package org.kie.commons.java.nio.fs.jgit.util;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -43,6 +48,8 @@ import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.api.errors.InvalidRemoteException;
 import org.eclipse.jgit.api.errors.JGitInternalException;
 import org.eclipse.jgit.api.errors.NoHeadException;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.RenameDetector;
 import org.eclipse.jgit.dircache.DirCache;
 import org.eclipse.jgit.dircache.DirCacheBuilder;
 import org.eclipse.jgit.dircache.DirCacheCheckout;
@@ -52,6 +59,7 @@ import org.eclipse.jgit.internal.JGitText;
 import org.eclipse.jgit.lib.CommitBuilder;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.NullProgressMonitor;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectInserter;
 import org.eclipse.jgit.lib.ObjectLoader;
@@ -69,10 +77,15 @@ import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevObject;
 import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.revwalk.RevWalkUtils;
+import org.eclipse.jgit.storage.dfs.DfsRepositoryDescription;
+import org.eclipse.jgit.storage.dfs.InMemoryRepository;
 import org.eclipse.jgit.storage.file.FileRepository;
+import org.eclipse.jgit.storage.file.PackIndex;
+import org.eclipse.jgit.storage.pack.PackWriter;
 import org.eclipse.jgit.transport.CredentialsProvider;
 import org.eclipse.jgit.transport.RefSpec;
 import org.eclipse.jgit.treewalk.CanonicalTreeParser;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
 import org.eclipse.jgit.treewalk.FileTreeIterator;
 import org.eclipse.jgit.treewalk.TreeWalk;
 import org.eclipse.jgit.treewalk.filter.PathFilter;
@@ -110,6 +123,21 @@ public final class JGitUtil {
         }
     }
 
+    /**
+     * Creates a repository that lives only in memory, backed by JGit's DFS {@link InMemoryRepository}.
+     */
+    public static Git newInMemoryRepository( final String name ) throws IOException {
+        checkNotEmpty( "name", name );
+
+        try {
+            final InMemoryRepository repository = new InMemoryRepository( new DfsRepositoryDescription( name ) );
+            repository.create( true );
+            return new Git( repository );
+        } catch ( java.io.IOException e ) {
+            throw new IOException( e );
+        }
+    }
+
     public static List<Ref> branchList( final Git git ) {
         checkNotNull( "git", git );
         return branchList( git, null );
@@ -223,6 +251,178 @@ public final class JGitUtil {
         }
     }
 
+    /**
+     * Creates a bare repository that borrows all objects from <code>origin</code> through
+     * <code>objects/info/alternates</code>, starting with the same branches. Only objects created
+     * afterwards are stored in the new repository.
+     */
+    public static Git forkRepository( final File repoFolder,
+                                      final Git origin ) {
+        checkNotNull( "repoFolder", repoFolder );
+        checkNotNull( "origin", origin );
+        checkCondition( "origin must be stored on disk", origin.getRepository().getDirectory() != null );
+
+        if ( !repoFolder.getName().endsWith( DOT_GIT_EXT ) ) {
+            throw new RuntimeException( "Invalid name" );
+        }
+
+        try {
+            final File gitDir = RepositoryCache.FileKey.resolve( repoFolder, DETECTED );
+            if ( gitDir != null && gitDir.exists() ) {
+                return new Git( new FileRepository( gitDir ) );
+            }
+
+            Git.init().setBare( true ).setDirectory( repoFolder ).call().getRepository().close();
+
+            final File alternates = new File( repoFolder, "objects/info/alternates" );
+            alternates.getParentFile().mkdirs();
+            final OutputStream out = new FileOutputStream( alternates );
+            try {
+                out.write( ( new File( origin.getRepository().getDirectory(), "objects" ).getAbsolutePath() + "\n" ).getBytes( CHARACTER_ENCODING ) );
+            } finally {
+                out.close();
+            }
+
+            final Repository repository = new FileRepository( repoFolder );
+            for ( final Ref ref : origin.getRepository().getRefDatabase().getRefs( R_HEADS ).values() ) {
+                final RefUpdate ru = repository.updateRef( ref.getName() );
+                ru.setNewObjectId( ref.getObjectId() );
+                ru.setExpectedOldObjectId( ObjectId.zeroId() );
+                ru.setRefLogMessage( "fork: " + origin.getRepository().getDirectory().getName(), false );
+                final RefUpdate.Result rc = ru.update();
+                if ( rc != RefUpdate.Result.NEW ) {
+                    throw new JGitInternalException( MessageFormat.format( JGitText.get().updatingRefFailed, ref.getName(), ref.getObjectId().toString(), rc ) );
+                }
+            }
+
+            return new Git( repository );
+        } catch ( final Exception ex ) {
+            throw new RuntimeException( ex );
+        }
+    }
+
+    /**
+     * Packs the objects that are reachable from the repository branches but not from its alternates
+     * into a single pack and removes their loose copies, so a fork keeps only its own objects.
+     * Returns the number of packed objects.
+     */
+    public static long repackLocal( final Git git ) {
+        checkNotNull( "git", git );
+
+        if ( !( git.getRepository() instanceof FileRepository ) ) {
+            return 0L;
+        }
+
+        final FileRepository repository = (FileRepository) git.getRepository();
+        final Set<ObjectId> want = new HashSet<ObjectId>();
+        final Set<ObjectId> have = new HashSet<ObjectId>();
+
+        PackWriter pw = null;
+        try {
+            for ( final Ref ref : repository.getRefDatabase().getRefs( R_HEADS ).values() ) {
+                want.add( ref.getObjectId() );
+            }
+            for ( final File alternate : readAlternates( repository ) ) {
+                final Repository alternateRepo = new FileRepository( alternate.getParentFile() );
+                try {
+                    for ( final Ref ref : alternateRepo.getRefDatabase().getRefs( R_HEADS ).values() ) {
+                        have.add( ref.getObjectId() );
+                    }
+                } finally {
+                    alternateRepo.close();
+                }
+            }
+
+            if ( want.isEmpty() ) {
+                return 0L;
+            }
+
+            pw = new PackWriter( repository );
+            pw.setIgnoreMissingUninteresting( true );
+            pw.preparePack( NullProgressMonitor.INSTANCE, want, have );
+            final long count = pw.getObjectCount();
+            if ( count == 0 ) {
+                return 0L;
+            }
+
+            final File packDir = new File( repository.getObjectDatabase().getDirectory(), "pack" );
+            packDir.mkdirs();
+            final File tmpPack = File.createTempFile( "repack_", ".pack_tmp", packDir );
+            final File tmpIdx = new File( packDir, tmpPack.getName().replace( ".pack_tmp", ".idx_tmp" ) );
+
+            final OutputStream packOut = new BufferedOutputStream( new FileOutputStream( tmpPack ) );
+            try {
+                pw.writePack( NullProgressMonitor.INSTANCE, NullProgressMonitor.INSTANCE, packOut );
+            } finally {
+                packOut.close();
+            }
+            final OutputStream idxOut = new BufferedOutputStream( new FileOutputStream( tmpIdx ) );
+            try {
+                pw.writeIndex( idxOut );
+            } finally {
+                idxOut.close();
+            }
+
+            final String packName = "pack-" + pw.computeName().name();
+            final File pack = new File( packDir, packName + ".pack" );
+            final File idx = new File( packDir, packName + ".idx" );
+            if ( !tmpPack.renameTo( pack ) || !tmpIdx.renameTo( idx ) ) {
+                tmpPack.delete();
+                tmpIdx.delete();
+                throw new IOException( "Can't rename pack '" + packName + "'" );
+            }
+            repository.getObjectDatabase().openPack( pack );
+
+            final PackIndex packIndex = PackIndex.open( idx );
+            long deleted = 0;
+            for ( final PackIndex.MutableEntry entry : packIndex ) {
+                final File loose = repository.getObjectDatabase().fileFor( entry.toObjectId() );
+                if ( loose.exists() && loose.delete() ) {
+                    deleted++;
+                }
+            }
+            RepositoryStatistics.of( repository ).repacked( deleted );
+
+            return count;
+        } catch ( final IOException ex ) {
+            throw ex;
+        } catch ( final Exception ex ) {
+            throw new IOException( ex );
+        } finally {
+            if ( pw != null ) {
+                pw.release();
+            }
+        }
+    }
+
+    private static List<File> readAlternates( final FileRepository repository ) throws java.io.IOException {
+        final List<File> result = new ArrayList<File>();
+        final File alternates = new File( repository.getObjectDatabase().getDirectory(), "info/alternates" );
+        if ( !alternates.exists() ) {
+            return result;
+        }
+
+        final BufferedReader reader = new BufferedReader( new InputStreamReader( new FileInputStream( alternates ), CHARACTER_ENCODING ) );
+        try {
+            String line;
+            while ( ( line = reader.readLine() ) != null ) {
+                if ( line.trim().isEmpty() || line.startsWith( "#" ) ) {
+                    continue;
+                }
+                final File alternate = new File( line.trim() );
+                if ( alternate.isAbsolute() ) {
+                    result.add( alternate );
+                } else {
+                    result.add( new File( repository.getObjectDatabase().getDirectory(), line.trim() ) );
+                }
+            }
+        } finally {
+            reader.close();
+        }
+
+        return result;
+    }
+
     public static void fetchRepository( final Git git,
                                         final CredentialsProvider credentialsProvider,
                                         final RefSpec... refSpecs )
@@ -257,9 +457,21 @@ public final class JGitUtil {
                                final String message,
                                final TimeZone timeZone,
                                final Date when ) {
+        delete( git, branchName, path, name, email, message, timeZone, when, null );
+    }
+
+    public static void delete( final Git git,
+                               final String branchName,
+                               final String path,
+                               final String name,
+                               final String email,
+                               final String message,
+                               final TimeZone timeZone,
+                               final Date when,
+                               final DurabilityProfile durability ) {
         commit( git, branchName, name, email, message, timeZone, when, new HashMap<String, File>() {{
             put( path, null );
-        }} );
+        }}, durability );
     }
 
     public static void commit( final Git git,
@@ -270,11 +482,26 @@ public final class JGitUtil {
                                final TimeZone timeZone,
                                final Date when,
                                final Map<String, File> content ) {
+        commit( git, branchName, name, email, message, timeZone, when, content, null );
+    }
+
+    /**
+     * Commits the content to the branch; a <code>null</code> durability keeps the reflog and the repository's fsync settings.
+     */
+    public static void commit( final Git git,
+                               final String branchName,
+                               final String name,
+                               final String email,
+                               final String message,
+                               final TimeZone timeZone,
+                               final Date when,
+                               final Map<String, File> content,
+                               final DurabilityProfile durability ) {
 
         final PersonIdent author = buildPersonIdent( git, name, email, timeZone, when );
 
         try {
-            final ObjectInserter odi = git.getRepository().newObjectInserter();
+            final ObjectInserter odi = RepositoryStatistics.of( git.getRepository() ).track( git.getRepository().newObjectInserter() );
             try {
                 // Create the in-memory index of the new/updated issue.
                 final ObjectId headId = git.getRepository().resolve( branchName + "^{commit}" );
@@ -307,10 +534,16 @@ public final class JGitUtil {
                         ru.setExpectedOldObjectId( headId );
                     }
                     ru.setNewObjectId( commitId );
-                    ru.setRefLogMessage( "commit: " + revCommit.getShortMessage(), false );
+                    if ( durability == null || durability.isRefLog() ) {
+                        ru.setRefLogMessage( "commit: " + revCommit.getShortMessage(), false );
+                    } else {
+                        ru.disableRefLog();
+                    }
                     final RefUpdate.Result rc = ru.forceUpdate();
                     switch ( rc ) {
                         case NEW:
+                            RepositoryStatistics.of( git.getRepository() ).refCreated();
+                            break;
                         case FORCED:
                         case FAST_FORWARD:
                             break;
@@ -320,6 +553,9 @@ public final class JGitUtil {
                         default:
                             throw new JGitInternalException( MessageFormat.format( JGitText.get().updatingRefFailed, Constants.HEAD, commitId.toString(), rc ) );
                     }
+                    if ( durability != null ) {
+                        durability.refUpdated( git.getRepository(), ru.getName() );
+                    }
 
                 } finally {
                     revWalk.release();
@@ -358,7 +594,7 @@ public final class JGitUtil {
 
         final DirCache inCoreIndex = DirCache.newInCore();
         final DirCacheBuilder dcBuilder = inCoreIndex.builder();
-        final ObjectInserter inserter = git.getRepository().newObjectInserter();
+        final ObjectInserter inserter = RepositoryStatistics.of( git.getRepository() ).track( git.getRepository().newObjectInserter() );
         boolean hadFile = false;
         final Set<String> paths = new HashSet<String>( content.size() );
 
@@ -414,6 +650,8 @@ public final class JGitUtil {
                 treeWalk.release();
             }
 
+            // DFS inserters buffer blobs into a pack until flushed
+            inserter.flush();
             dcBuilder.finish();
 
         } catch ( Exception e ) {
@@ -464,6 +702,7 @@ public final class JGitUtil {
                                      final Ref branch ) {
         try {
             git.branchDelete().setBranchNames( branch.getName() ).setForce( true ).call();
+            RepositoryStatistics.of( git.getRepository() ).refDeleted();
         } catch ( final GitAPIException e ) {
             throw new IOException( e );
         }
@@ -597,6 +836,7 @@ public final class JGitUtil {
                                      final String target ) {
         try {
             git.branchCreate().setName( target ).setStartPoint( source ).call();
+            RepositoryStatistics.of( git.getRepository() ).refCreated();
         } catch ( GitAPIException e ) {
             throw new RuntimeException( e );
         }
@@ -741,6 +981,38 @@ public final class JGitUtil {
         return result;
     }
 
+    /**
+     * Paths changed between two commits, renames detected; a null old commit lists the whole new tree as added.
+     */
+    public static List<DiffEntry> listDiffs( final Git git,
+                                             final ObjectId oldCommit,
+                                             final ObjectId newCommit ) {
+        checkNotNull( "git", git );
+        checkNotNull( "newCommit", newCommit );
+
+        final RevWalk rw = new RevWalk( git.getRepository() );
+        final TreeWalk tw = new TreeWalk( git.getRepository() );
+        try {
+            tw.setRecursive( true );
+            if ( oldCommit == null ) {
+                tw.addTree( new EmptyTreeIterator() );
+            } else {
+                tw.addTree( rw.parseCommit( oldCommit ).getTree() );
+            }
+            tw.addTree( rw.parseCommit( newCommit ).getTree() );
+
+            final RenameDetector renameDetector = new RenameDetector( git.getRepository() );
+            renameDetector.addAll( DiffEntry.scan( tw ) );
+
+            return renameDetector.compute();
+        } catch ( final java.io.IOException e ) {
+            throw new IOException( e );
+        } finally {
+            tw.release();
+            rw.release();
+        }
+    }
+
     public static MergeResult mergeBranches( final Git git,
                                              final String source,
                                              final String target )
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.commons.java.nio.fs.jgit.util;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.kie.commons.validation.Preconditions.*;
+
+/**
+ * Places repositories on explicitly mapped roots, any repository without a mapping is handled by the fallback placement.
+ */
+public class MappedRepositoryPlacement implements RepositoryPlacement {
+
+    private final Map<String, File>   mapping = new ConcurrentHashMap<String, File>();
+    private final RepositoryPlacement fallback;
+
+    public MappedRepositoryPlacement( final RepositoryPlacement fallback ) {
+        this.fallback = checkNotNull( "fallback", fallback );
+    }
+
+    public MappedRepositoryPlacement map( final String repositoryName,
+                                          final File root ) {
+        checkNotEmpty( "repositoryName", repositoryName );
+        checkNotNull( "root", root );
+
+        mapping.put( repositoryName, root );
+
+        return this;
+    }
+
+    @Override
+    public File selectRoot( final String repositoryName,
+                            final List<File> roots ) {
+        checkNotEmpty( "repositoryName", repositoryName );
+        checkNotEmpty( "roots", roots );
+
+        final File root = mapping.get( repositoryName );
+        if ( root != null ) {
+            for ( final File knownRoot : roots ) {
+                if ( knownRoot.getAbsoluteFile().equals( root.getAbsoluteFile() ) ) {
+                    return knownRoot;
+                }
+            }
+            throw new IllegalArgumentException( "Root '" + root + "' mapped for repository '" + repositoryName + "' is not a configured repositories root." );
+        }
+
+        return fallback.selectRoot( repositoryName, roots );
+    }
+
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.commons.java.nio.fs.jgit.util;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Decides on which of the configured repositories roots a new repository is created.
+ */
+public interface RepositoryPlacement {
+
+    File selectRoot( final String repositoryName,
+                     final List<File> roots );
+
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.commons.java.nio.fs.jgit.util;
+
+import java.io.File;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.dfs.DfsPackFile;
+import org.eclipse.jgit.storage.dfs.DfsRepository;
+import org.eclipse.jgit.storage.file.FileRepository;
+import org.eclipse.jgit.storage.file.PackFile;
+import org.eclipse.jgit.storage.pack.PackExt;
+
+import static org.kie.commons.validation.Preconditions.*;
+
+/**
+ * Cheap repository counters: loose objects and (non symbolic) refs are counted once, on first read, and then kept up to
+ * date by the operations in {@link JGitUtil}; packs come from the pack list JGit already keeps in memory.
+ * <p/>
+ * Loose object counts are an upper bound between scans, as re-inserting an existing object is counted too;
+ * {@link #refresh()} rescans the repository.
+ */
+public class RepositoryStatistics {
+
+    private static final Map<Repository, RepositoryStatistics> STATISTICS = new WeakHashMap<Repository, RepositoryStatistics>();
+
+    // weak, so the registry entry doesn't keep its own key alive
+    private final WeakReference<Repository> repository;
+    private final boolean                   fileRepository;
+
+    private long looseObjects = -1;
+    private long refCount     = -1;
+    private long lastGc       = -1;
+
+    RepositoryStatistics( final Repository repository ) {
+        this.repository = new WeakReference<Repository>( checkNotNull( "repository", repository ) );
+        this.fileRepository = repository instanceof FileRepository;
+    }
+
+    public static synchronized RepositoryStatistics of( final Repository repository ) {
+        checkNotNull( "repository", repository );
+        RepositoryStatistics result = STATISTICS.get( repository );
+        if ( result == null ) {
+            result = new RepositoryStatistics( repository );
+            STATISTICS.put( repository, result );
+        }
+        return result;
+    }
+
+    public synchronized long getLooseObjects() {
+        if ( looseObjects < 0 ) {
+            looseObjects = countLooseObjects();
+        }
+        return looseObjects;
+    }
+
+    public synchronized long getRefCount() {
+        if ( refCount < 0 ) {
+            refCount = countRefs();
+        }
+        return refCount;
+    }
+
+    public int getPackCount() {
+        final Repository repository = repository();
+        if ( repository instanceof FileRepository ) {
+            return ( (FileRepository) repository ).getObjectDatabase().getPacks().size();
+        }
+        if ( repository instanceof DfsRepository ) {
+            return ( (DfsRepository) repository ).getObjectDatabase().getCurrentPacks().length;
+        }
+        return 0;
+    }
+
+    public long getPackSize() {
+        final Repository repository = repository();
+        long result = 0;
+        if ( repository instanceof FileRepository ) {
+            for ( final PackFile pack : ( (FileRepository) repository ).getObjectDatabase().getPacks() ) {
+                result += pack.getPackFile().length();
+            }
+        } else if ( repository instanceof DfsRepository ) {
+            for ( final DfsPackFile pack : ( (DfsRepository) repository ).getObjectDatabase().getCurrentPacks() ) {
+                result += pack.getPackDescription().getFileSize( PackExt.PACK );
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Millis of the last repack done through {@link JGitUtil#repackLocal}, or of the newest pack on disk
+     * when none was done since the repository was opened; <code>-1</code> if the repository has no packs.
+     */
+    public synchronized long getLastGc() {
+        if ( lastGc < 0 && fileRepository ) {
+            for ( final PackFile pack : ( (FileRepository) repository() ).getObjectDatabase().getPacks() ) {
+                lastGc = Math.max( lastGc, pack.getPackFile().lastModified() );
+            }
+        }
+        return lastGc;
+    }
+
+    public synchronized void refresh() {
+        looseObjects = -1;
+        refCount = -1;
+        lastGc = -1;
+    }
+
+    /**
+     * Wraps an inserter so the objects it writes are added to the loose objects count once flushed.
+     */
+    public ObjectInserter track( final ObjectInserter inserter ) {
+        checkNotNull( "inserter", inserter );
+        if ( !fileRepository ) {
+            return inserter;
+        }
+        return new ObjectInserter.Filter() {
+            private long inserted = 0;
+
+            @Override
+            protected ObjectInserter delegate() {
+                return inserter;
+            }
+
+            @Override
+            public ObjectId insert( final int type,
+                                    final byte[] data ) throws java.io.IOException {
+                inserted++;
+                return super.insert( type, data );
+            }
+
+            @Override
+            public ObjectId insert( final int type,
+                                    final byte[] data,
+                                    final int off,
+                                    final int len ) throws java.io.IOException {
+                inserted++;
+                return super.insert( type, data, off, len );
+            }
+
+            @Override
+            public ObjectId insert( final int objectType,
+                                    final long length,
+                                    final InputStream in ) throws java.io.IOException {
+                inserted++;
+                return super.insert( objectType, length, in );
+            }
+
+            @Override
+            public void flush() throws java.io.IOException {
+                super.flush();
+                looseObjectsAdded( inserted );
+                inserted = 0;
+            }
+        };
+    }
+
+    synchronized void looseObjectsAdded( final long count ) {
+        if ( looseObjects >= 0 ) {
+            looseObjects += count;
+        }
+    }
+
+    synchronized void repacked( final long packedObjects ) {
+        if ( looseObjects >= 0 ) {
+            looseObjects = Math.max( 0, looseObjects - packedObjects );
+        }
+        lastGc = System.currentTimeMillis();
+    }
+
+    synchronized void refCreated() {
+        if ( refCount >= 0 ) {
+            refCount++;
+        }
+    }
+
+    synchronized void refDeleted() {
+        if ( refCount > 0 ) {
+            refCount--;
+        }
+    }
+
+    private Repository repository() {
+        final Repository result = repository.get();
+        if ( result == null ) {
+            throw new IllegalStateException( "Repository is gone." );
+        }
+        return result;
+    }
+
+    private long countRefs() {
+        long result = 0;
+        for ( final Ref ref : repository().getAllRefs().values() ) {
+            if ( !ref.isSymbolic() ) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    private long countLooseObjects() {
+        if ( !fileRepository ) {
+            return 0;
+        }
+        final File[] fanout = ( (FileRepository) repository() ).getObjectDatabase().getDirectory().listFiles();
+        if ( fanout == null ) {
+            return 0;
+        }
+        long result = 0;
+        for ( final File dir : fanout ) {
+            if ( dir.isDirectory() && dir.getName().length() == 2 ) {
+                final String[] objects = dir.list();
+                if ( objects != null ) {
+                    result += objects.length;
+                }
+            }
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.commons.java.nio.fs.jgit.util;
+
+import java.io.File;
+import java.util.List;
+
+import static org.kie.commons.validation.Preconditions.*;
+
+/**
+ * Creates new repositories on the root that has more usable space available.
+ */
+public class UsableSpaceRepositoryPlacement implements RepositoryPlacement {
+
+    @Override
+    public File selectRoot( final String repositoryName,
+                            final List<File> roots ) {
+        checkNotEmpty( "repositoryName", repositoryName );
+        checkNotEmpty( "roots", roots );
+
+        File result = roots.get( 0 );
+        long resultSpace = usableSpace( result );
+        for ( int i = 1; i < roots.size(); i++ ) {
+            final long space = usableSpace( roots.get( i ) );
+            if ( space > resultSpace ) {
+                result = roots.get( i );
+                resultSpace = space;
+            }
+        }
+
+        return result;
+    }
+
+    private long usableSpace( final File root ) {
+        File dir = root.getAbsoluteFile();
+        while ( dir != null && !dir.exists() ) {
+            dir = dir.getParentFile();
+        }
+        if ( dir == null ) {
+            return 0L;
+        }
+        return dir.getUsableSpace();
+    }
+
+}
@@ -87,10 +87,12 @@ public abstract class AbstractTestInfra {
     @AfterClass
     @BeforeClass
     public static void cleanupGit() {
-        try {
-            FileUtils.delete( JGitFileSystemProvider.FILE_REPOSITORIES_ROOT, FileUtils.RECURSIVE );
-        } catch ( Exception ex ) {
+        for ( final File root : JGitFileSystemProvider.FILE_REPOSITORIES_ROOTS ) {
+            try {
+                FileUtils.delete( root, FileUtils.RECURSIVE );
+            } catch ( Exception ex ) {
 
+            }
         }
     }
 
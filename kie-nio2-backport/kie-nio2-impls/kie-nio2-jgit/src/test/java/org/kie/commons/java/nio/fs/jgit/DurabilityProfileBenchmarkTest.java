@@ -0,0 +1,78 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.commons.java.nio.fs.jgit;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+
+import org.eclipse.jgit.api.Git;
+import org.junit.Test;
+import org.kie.commons.java.nio.fs.jgit.util.DurabilityProfile;
+import org.kie.commons.java.nio.fs.jgit.util.JGitUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.fest.assertions.api.Assertions.*;
+import static org.kie.commons.java.nio.fs.jgit.util.JGitUtil.*;
+
+/**
+ * Rough throughput comparison of the durability profiles; the numbers are only logged.
+ */
+public class DurabilityProfileBenchmarkTest extends AbstractTestInfra {
+
+    private static final Logger LOG = LoggerFactory.getLogger( DurabilityProfileBenchmarkTest.class );
+
+    private static final int COMMITS = 200;
+
+    @Test
+    public void testSafeVersusFast() throws IOException {
+        final long safe = run( "safe.git", DurabilityProfile.safe() );
+        final long fast = run( "fast.git", DurabilityProfile.fast() );
+
+        LOG.info( "{} commits: safe profile {}ms ({} commits/s), fast profile {}ms ({} commits/s)",
+                  new Object[]{ COMMITS, safe, rate( safe ), fast, rate( fast ) } );
+    }
+
+    private long run( final String repoName,
+                      final DurabilityProfile durability ) throws IOException {
+        final Git git = JGitUtil.newRepository( new File( createTempDirectory(), repoName ) );
+        durability.apply( git.getRepository() );
+
+        final File content = tempFile( "content" );
+        final long start = System.currentTimeMillis();
+        for ( int i = 0; i < COMMITS; i++ ) {
+            final int index = i;
+            commit( git, "master", "name", "name@example.com", "commit " + i, null, null, new HashMap<String, File>() {{
+                put( "dir" + ( index % 10 ) + "/file" + index + ".txt", content );
+            }}, durability );
+        }
+        durability.flush();
+        final long elapsed = System.currentTimeMillis() - start;
+
+        assertThat( listPathContent( git, "master", "/dir0" ) ).hasSize( COMMITS / 10 );
+        git.getRepository().close();
+
+        return elapsed;
+    }
+
+    private static long rate( final long elapsed ) {
+        return COMMITS * 1000L / Math.max( 1L, elapsed );
+    }
+
+}
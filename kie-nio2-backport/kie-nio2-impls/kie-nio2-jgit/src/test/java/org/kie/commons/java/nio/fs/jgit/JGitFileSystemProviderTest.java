@@ -139,6 +139,75 @@ public class JGitFileSystemProviderTest extends AbstractTestInfra {
         assertThat( fs.getRootDirectories() ).hasSize( 3 );
     }
 
+    @Test
+    public void testNewFileSystemFork() throws IOException {
+        final URI originRepo = URI.create( "git://fork-origin-repo" );
+        PROVIDER.newFileSystem( originRepo, EMPTY_ENV );
+
+        final Path path = PROVIDER.getPath( URI.create( "git://master@fork-origin-repo/myfile.txt" ) );
+        final OutputStream outStream = PROVIDER.newOutputStream( path );
+        outStream.write( "my cool content".getBytes() );
+        outStream.close();
+
+        final URI newRepo = URI.create( "git://forked-repo" );
+
+        final Map<String, Object> env = new HashMap<String, Object>() {{
+            put( JGitFileSystemProvider.FORK, "fork-origin-repo" );
+        }};
+
+        final FileSystem fs = PROVIDER.newFileSystem( newRepo, env );
+
+        assertThat( fs ).isNotNull();
+        assertThat( fs.getRootDirectories() ).hasSize( 1 );
+
+        final Path forkedPath = PROVIDER.getPath( URI.create( "git://master@forked-repo/myfile.txt" ) );
+        final InputStream inStream = PROVIDER.newInputStream( forkedPath );
+        assertThat( new Scanner( inStream ).useDelimiter( "\\A" ).next() ).isEqualTo( "my cool content" );
+        inStream.close();
+
+        final OutputStream forkStream = PROVIDER.newOutputStream( PROVIDER.getPath( URI.create( "git://master@forked-repo/other.txt" ) ) );
+        forkStream.write( "fork content".getBytes() );
+        forkStream.close();
+
+        PROVIDER.getFileSystem( URI.create( "git://forked-repo?repack" ) );
+
+        assertThat( PROVIDER.newDirectoryStream( PROVIDER.getPath( URI.create( "git://master@forked-repo/" ) ), null ) ).hasSize( 2 );
+        assertThat( PROVIDER.newDirectoryStream( PROVIDER.getPath( URI.create( "git://master@fork-origin-repo/" ) ), null ) ).hasSize( 1 );
+    }
+
+    @Test
+    public void testNewFileSystemInMemory() throws IOException {
+        final URI newRepo = URI.create( "git://in-memory-repo" );
+
+        final Map<String, Object> env = new HashMap<String, Object>() {{
+            put( JGitFileSystemProvider.MEMORY, Boolean.TRUE );
+            put( JGitFileSystemProvider.INIT, Boolean.TRUE );
+        }};
+
+        final FileSystem fs = PROVIDER.newFileSystem( newRepo, env );
+
+        assertThat( fs ).isNotNull();
+        assertThat( fs.getFileStores().iterator().next().name() ).isEqualTo( "in-memory-repo" );
+        assertThat( new File( JGitFileSystemProvider.FILE_REPOSITORIES_ROOT, "in-memory-repo.git" ) ).doesNotExist();
+
+        final Path path = PROVIDER.getPath( URI.create( "git://master@in-memory-repo/myfile.txt" ) );
+        final OutputStream outStream = PROVIDER.newOutputStream( path );
+        outStream.write( "my cool content".getBytes() );
+        outStream.close();
+
+        final InputStream inStream = PROVIDER.newInputStream( path );
+        assertThat( new Scanner( inStream ).useDelimiter( "\\A" ).next() ).isEqualTo( "my cool content" );
+        inStream.close();
+
+        PROVIDER.copy( PROVIDER.getPath( URI.create( "git://master@in-memory-repo" ) ), PROVIDER.getPath( URI.create( "git://user_branch@in-memory-repo" ) ) );
+        assertThat( PROVIDER.newDirectoryStream( PROVIDER.getPath( URI.create( "git://user_branch@in-memory-repo/" ) ), null ) ).hasSize( 2 );
+
+        PROVIDER.delete( path );
+        assertThat( PROVIDER.newDirectoryStream( PROVIDER.getPath( URI.create( "git://master@in-memory-repo/" ) ), null ) ).hasSize( 1 );
+
+        assertThat( new File( JGitFileSystemProvider.FILE_REPOSITORIES_ROOT, "in-memory-repo.git" ) ).doesNotExist();
+    }
+
     @Test
     public void testGetFileSystem() {
         final URI newRepo = URI.create( "git://new-repo-name" );
@@ -671,6 +740,45 @@ public class JGitFileSystemProviderTest extends AbstractTestInfra {
         assertThat( fileStore.getAttribute( "readOnly" ) ).isEqualTo( Boolean.FALSE );
     }
 
+    @Test
+    public void testFileStoreStatistics() throws Exception {
+        final URI newRepo = URI.create( "git://filestore-stats-repo" );
+        PROVIDER.newFileSystem( newRepo, EMPTY_ENV );
+
+        final Path root = PROVIDER.getPath( URI.create( "git://master@filestore-stats-repo" ) );
+        final JGitFileStoreAttributeView view = PROVIDER.getFileStore( root ).getFileStoreAttributeView( JGitFileStoreAttributeView.class );
+
+        assertThat( view ).isNotNull();
+        assertThat( view.name() ).isEqualTo( "stats" );
+        assertThat( view.readAttributes().getLooseObjects() ).isEqualTo( 0L );
+        assertThat( view.readAttributes().getRefCount() ).isEqualTo( 0L );
+        assertThat( view.sinceLastGc() ).isEqualTo( -1L );
+
+        final Path path = PROVIDER.getPath( URI.create( "git://master@filestore-stats-repo/path/to/myfile1.txt" ) );
+        final OutputStream outStream = PROVIDER.newOutputStream( path );
+        outStream.write( "my cool content".getBytes() );
+        outStream.close();
+
+        // blob, three trees and the commit
+        assertThat( view.readAttributes().getLooseObjects() ).isEqualTo( 5L );
+        assertThat( view.readAttributes().getRefCount() ).isEqualTo( 1L );
+
+        PROVIDER.copy( root, PROVIDER.getPath( URI.create( "git://user_branch@filestore-stats-repo" ) ) );
+        assertThat( PROVIDER.getFileStore( root ).getAttribute( "stats:refCount" ) ).isEqualTo( 2L );
+
+        PROVIDER.getFileSystem( URI.create( "git://filestore-stats-repo?repack" ) );
+
+        final Map<String, Object> stats = view.readAttributes( "*" );
+        assertThat( stats.get( JGitFileStoreAttributeView.LOOSE_OBJECTS ) ).isEqualTo( 0L );
+        assertThat( stats.get( JGitFileStoreAttributeView.PACK_COUNT ) ).isEqualTo( 1 );
+        assertThat( (Long) stats.get( JGitFileStoreAttributeView.PACK_SIZE ) ).isGreaterThan( 0L );
+        assertThat( (Long) stats.get( JGitFileStoreAttributeView.SINCE_LAST_GC ) ).isGreaterThanOrEqualTo( 0L );
+
+        view.readAttributes().refresh();
+        assertThat( view.readAttributes().getLooseObjects() ).isEqualTo( 0L );
+        assertThat( view.readAttributes().getRefCount() ).isEqualTo( 2L );
+    }
+
     @Test
     public void testNewDirectoryStream() throws IOException {
         final URI newRepo = URI.create( "git://dirstream-test-repo" );
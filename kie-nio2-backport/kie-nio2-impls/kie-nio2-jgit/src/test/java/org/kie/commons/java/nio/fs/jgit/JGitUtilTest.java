@@ -19,10 +19,14 @@ package org.kie.commons.java.nio.fs.jgit;
 import java.io.File;
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.Map;
 
 import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.transport.CredentialsProvider;
 import org.junit.Test;
+import org.kie.commons.java.nio.fs.jgit.util.DurabilityProfile;
 import org.kie.commons.java.nio.fs.jgit.util.JGitUtil;
 
 import static org.eclipse.jgit.api.ListBranchCommand.ListMode.*;
@@ -105,4 +109,129 @@ public class JGitUtilTest extends AbstractTestInfra {
         assertThat( JGitUtil.checkPath( git, "user_branch", "path/to" ).getK1() ).isEqualTo( DIRECTORY );
     }
 
+    @Test
+    public void testListDiffs() throws IOException {
+        final File parentFolder = createTempDirectory();
+        final File gitFolder = new File( parentFolder, "mytest.git" );
+
+        final Git git = JGitUtil.newRepository( gitFolder );
+
+        commit( git, "master", "name", "name@example.com", "commit", null, null, new HashMap<String, File>() {{
+            put( "path/a.txt", tempFile( "first content of a" ) );
+            put( "path/b.txt", tempFile( "content of b that moves" ) );
+        }} );
+        final ObjectId first = resolveObjectId( git, "master" );
+
+        commit( git, "master", "name", "name@example.com", "commit", null, null, new HashMap<String, File>() {{
+            put( "path/a.txt", tempFile( "second content of a" ) );
+            put( "path/b.txt", null );
+            put( "other/c.txt", tempFile( "content of b that moves" ) );
+            put( "d.txt", tempFile( "brand new" ) );
+        }} );
+        final ObjectId second = resolveObjectId( git, "master" );
+
+        assertThat( listDiffs( git, null, first ) ).hasSize( 2 );
+
+        final Map<String, DiffEntry> diffs = new HashMap<String, DiffEntry>();
+        for ( final DiffEntry entry : listDiffs( git, first, second ) ) {
+            diffs.put( entry.getChangeType() == DiffEntry.ChangeType.DELETE ? entry.getOldPath() : entry.getNewPath(), entry );
+        }
+
+        assertThat( diffs ).hasSize( 3 );
+        assertThat( diffs.get( "path/a.txt" ).getChangeType() ).isEqualTo( DiffEntry.ChangeType.MODIFY );
+        assertThat( diffs.get( "other/c.txt" ).getChangeType() ).isEqualTo( DiffEntry.ChangeType.RENAME );
+        assertThat( diffs.get( "other/c.txt" ).getOldPath() ).isEqualTo( "path/b.txt" );
+        assertThat( diffs.get( "d.txt" ).getChangeType() ).isEqualTo( DiffEntry.ChangeType.ADD );
+        assertThat( listDiffs( git, second, second ) ).isEmpty();
+    }
+
+    @Test
+    public void testCommitDurabilityProfile() throws IOException {
+        final File parentFolder = createTempDirectory();
+        final File gitFolder = new File( parentFolder, "mytest.git" );
+
+        final Git git = JGitUtil.newRepository( gitFolder );
+        git.getRepository().getConfig().setBoolean( "core", null, "logallrefupdates", true );
+        final DurabilityProfile durability = new DurabilityProfile( false, false, 3, 0 );
+        durability.apply( git.getRepository() );
+
+        assertThat( git.getRepository().getConfig().getBoolean( "core", "fsyncobjectfiles", true ) ).isFalse();
+        assertThat( git.getRepository().getConfig().getBoolean( "core", "fsyncreffiles", true ) ).isFalse();
+
+        for ( int i = 0; i < 2; i++ ) {
+            final int index = i;
+            commit( git, "master", "name", "name@example.com", "commit", null, null, new HashMap<String, File>() {{
+                put( "file" + index + ".txt", tempFile( "temp" + index ) );
+            }}, durability );
+        }
+
+        assertThat( durability.getPendingRefSyncs() ).isEqualTo( 2 );
+        assertThat( new File( gitFolder, "logs/refs/heads/master" ) ).doesNotExist();
+
+        commit( git, "master", "name", "name@example.com", "commit", null, null, new HashMap<String, File>() {{
+            put( "file3.txt", tempFile( "temp3" ) );
+        }}, durability );
+
+        assertThat( durability.getPendingRefSyncs() ).isEqualTo( 0 );
+        assertThat( listPathContent( git, "master", "/" ) ).hasSize( 3 );
+
+        final DurabilityProfile safe = DurabilityProfile.safe();
+        safe.apply( git.getRepository() );
+        commit( git, "master", "name", "name@example.com", "commit", null, null, new HashMap<String, File>() {{
+            put( "file4.txt", tempFile( "temp4" ) );
+        }}, safe );
+
+        assertThat( git.getRepository().getConfig().getBoolean( "core", "fsyncreffiles", false ) ).isTrue();
+        assertThat( safe.getPendingRefSyncs() ).isEqualTo( 0 );
+        assertThat( new File( gitFolder, "logs/refs/heads/master" ) ).exists();
+    }
+
+    @Test
+    public void testForkAndRepack() throws IOException {
+        final File parentFolder = createTempDirectory();
+        final File gitFolder = new File( parentFolder, "mytest.git" );
+
+        final Git origin = JGitUtil.newRepository( gitFolder );
+
+        commit( origin, "master", "name", "name@example.com", "commit", null, null, new HashMap<String, File>() {{
+            put( "file.txt", tempFile( "temp" ) );
+        }} );
+        commit( origin, "user_branch", "name", "name@example.com", "commit!", null, null, new HashMap<String, File>() {{
+            put( "file2.txt", tempFile( "temp2222" ) );
+        }} );
+
+        final File gitForkFolder = new File( parentFolder, "myfork.git" );
+
+        final Git fork = forkRepository( gitForkFolder, origin );
+
+        assertThat( fork ).isNotNull();
+        assertThat( new File( gitForkFolder, "objects/info/alternates" ) ).exists();
+        assertThat( branchList( fork ) ).hasSize( 2 );
+        assertThat( looseObjects( gitForkFolder ) ).isEqualTo( 0 );
+        assertThat( JGitUtil.checkPath( fork, "master", "file.txt" ).getK1() ).isEqualTo( FILE );
+
+        commit( fork, "master", "name", "name@example.com", "fork commit", null, null, new HashMap<String, File>() {{
+            put( "file3.txt", tempFile( "temp3" ) );
+        }} );
+
+        assertThat( looseObjects( gitForkFolder ) ).isGreaterThan( 0 );
+
+        assertThat( repackLocal( fork ) ).isEqualTo( 3L );
+        assertThat( looseObjects( gitForkFolder ) ).isEqualTo( 0 );
+
+        assertThat( JGitUtil.checkPath( fork, "master", "file.txt" ).getK1() ).isEqualTo( FILE );
+        assertThat( JGitUtil.checkPath( fork, "master", "file3.txt" ).getK1() ).isEqualTo( FILE );
+        assertThat( JGitUtil.checkPath( origin, "master", "file3.txt" ).getK1() ).isEqualTo( NOT_FOUND );
+    }
+
+    private int looseObjects( final File gitFolder ) {
+        int result = 0;
+        for ( final File dir : new File( gitFolder, "objects" ).listFiles() ) {
+            if ( dir.getName().length() == 2 ) {
+                result += dir.list().length;
+            }
+        }
+        return result;
+    }
+
 }
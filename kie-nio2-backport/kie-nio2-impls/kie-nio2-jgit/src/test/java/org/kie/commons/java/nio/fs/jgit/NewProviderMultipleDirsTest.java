@@ -0,0 +1,126 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.commons.java.nio.fs.jgit;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.jgit.util.FileUtils;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.kie.commons.java.nio.fs.jgit.util.MappedRepositoryPlacement;
+import org.kie.commons.java.nio.fs.jgit.util.UsableSpaceRepositoryPlacement;
+
+import static org.fest.assertions.api.Assertions.*;
+
+public class NewProviderMultipleDirsTest {
+
+    protected static final Map<String, Object> EMPTY_ENV = Collections.emptyMap();
+
+    private static final List<File> tempFiles = new ArrayList<File>();
+
+    protected static File createTempDirectory()
+            throws IOException {
+        final File temp = File.createTempFile( "temp", Long.toString( System.nanoTime() ) );
+        if ( !( temp.delete() ) ) {
+            throw new IOException( "Could not delete temp file: " + temp.getAbsolutePath() );
+        }
+
+        if ( !( temp.mkdir() ) ) {
+            throw new IOException( "Could not create temp directory: " + temp.getAbsolutePath() );
+        }
+
+        tempFiles.add( temp );
+
+        return temp;
+    }
+
+    @AfterClass
+    @BeforeClass
+    public static void cleanup() {
+        for ( final File tempFile : tempFiles ) {
+            try {
+                FileUtils.delete( tempFile, FileUtils.RECURSIVE );
+            } catch ( IOException e ) {
+            }
+        }
+    }
+
+    @After
+    public void resetConfig() {
+        System.setProperty( "org.kie.nio.git.dir", "" );
+        JGitFileSystemProvider.loadConfig();
+    }
+
+    @Test
+    public void testSpreadAndDiscoverRepositories() throws IOException {
+        final File dir1 = createTempDirectory();
+        final File dir2 = createTempDirectory();
+        System.setProperty( "org.kie.nio.git.dir", dir1.toString() + File.pathSeparator + dir2.toString() );
+        JGitFileSystemProvider.loadConfig();
+
+        assertThat( JGitFileSystemProvider.FILE_REPOSITORIES_ROOTS ).hasSize( 2 );
+        assertThat( JGitFileSystemProvider.FILE_REPOSITORIES_ROOT ).isEqualTo( new File( dir1, ".niogit" ) );
+
+        final JGitFileSystemProvider provider = new JGitFileSystemProvider();
+
+        for ( int i = 0; i < 10; i++ ) {
+            provider.newFileSystem( URI.create( "git://sharded-repo-" + i ), EMPTY_ENV );
+        }
+
+        final String[] repos1 = new File( dir1, ".niogit" ).list();
+        final String[] repos2 = new File( dir2, ".niogit" ).list();
+
+        assertThat( repos1 ).isNotEmpty();
+        assertThat( repos2 ).isNotEmpty();
+        assertThat( repos1.length + repos2.length ).isEqualTo( 10 );
+
+        final JGitFileSystemProvider newProvider = new JGitFileSystemProvider();
+        for ( int i = 0; i < 10; i++ ) {
+            assertThat( newProvider.getFileSystem( URI.create( "git://sharded-repo-" + i ) ) ).isNotNull();
+        }
+    }
+
+    @Test
+    public void testExplicitRoot() throws IOException {
+        final File dir1 = createTempDirectory();
+        final File dir2 = createTempDirectory();
+        System.setProperty( "org.kie.nio.git.dir", dir1.toString() + File.pathSeparator + dir2.toString() );
+        JGitFileSystemProvider.loadConfig();
+
+        final JGitFileSystemProvider provider = new JGitFileSystemProvider();
+        provider.setRepositoryPlacement( new MappedRepositoryPlacement( new UsableSpaceRepositoryPlacement() )
+                                                 .map( "mapped-repo", new File( dir1, ".niogit" ) ) );
+
+        provider.newFileSystem( URI.create( "git://mapped-repo" ), EMPTY_ENV );
+        provider.newFileSystem( URI.create( "git://env-repo" ), new HashMap<String, Object>() {{
+            put( JGitFileSystemProvider.ROOT_DIR, dir2.toString() );
+        }} );
+
+        assertThat( new File( dir1, ".niogit" ).list() ).contains( "mapped-repo.git" );
+        assertThat( new File( dir2, ".niogit" ).list() ).contains( "env-repo.git" );
+    }
+
+}
@@ -18,6 +18,7 @@ package org.kie.kieora.engine;
 
 import org.kie.kieora.model.KObject;
 import org.kie.kieora.model.KObjectKey;
+import org.kie.kieora.model.KObjectKeyFactory;
 import org.kie.kieora.model.schema.MetaObject;
 
 public interface MetaIndexEngine {
@@ -26,12 +27,36 @@ public interface MetaIndexEngine {
 
     void index( final KObject... objects );
 
+    /**
+     * Bulk path: the meta model is updated once per type. When the changes become durable is left to the
+     * backend's commit policy; callers that need it call {@link #commit()}.
+     */
+    void index( final Iterable<KObject> objects );
+
     void rename( final KObjectKey from,
                  final KObjectKey to );
 
+    /**
+     * Renames the object at <code>from</code> and every object below its key in one pass with one commit; the
+     * descendants get their new ids from the key factory.
+     */
+    void renameTree( final KObjectKey from,
+                     final KObjectKey to,
+                     final KObjectKeyFactory keyFactory );
+
     void delete( final KObjectKey objectKey );
 
     void delete( final KObjectKey... objectsKey );
 
+    /**
+     * Deletes the object at the given key and every object below it, with one commit.
+     */
+    void deleteTree( final KObjectKey root );
+
+    /**
+     * Makes every change made so far durable, whatever the backend's commit policy.
+     */
+    void commit();
+
     void dispose();
 }
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.engine;
+
+import java.util.Map;
+import java.util.SortedSet;
+
+import org.kie.kieora.model.KObject;
+import org.kie.kieora.search.KQuery;
+
+/**
+ * Lets consistency checks compare what is indexed with what should be without loading whole documents.
+ */
+public interface MetaIndexScanner {
+
+    /**
+     * Digest of an object's property values, as stored with it when indexed; renames keep it.
+     */
+    String fingerprint( final KObject object );
+
+    /**
+     * Stored fingerprint of every object of the shard matching the query, by key; null for objects indexed without
+     * one. Keys repeat across shards, so a null shard stands for the objects indexed without a shard only.
+     */
+    Map<String, String> fingerprints( final String shard,
+                                      final KQuery query );
+
+    /**
+     * Keys directly below the path that have indexed objects of the shard below them, whether indexed themselves
+     * or not; a null shard stands for the objects indexed without one.
+     */
+    SortedSet<String> branches( final String shard,
+                                final String path );
+}
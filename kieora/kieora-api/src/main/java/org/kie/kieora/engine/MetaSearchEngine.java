@@ -0,0 +1,55 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.engine;
+
+import java.util.Map;
+
+import org.kie.kieora.model.KObjectKey;
+import org.kie.kieora.search.KQuery;
+import org.kie.kieora.search.PagedResult;
+
+public interface MetaSearchEngine {
+
+    PagedResult<KObjectKey> search( final KQuery query,
+                                    final int offset,
+                                    final int pageSize );
+
+    /**
+     * Same as {@link #search(KQuery, int, int)}, ordered by a property's value instead of by relevance.
+     */
+    PagedResult<KObjectKey> search( final KQuery query,
+                                    final String sortBy,
+                                    final boolean descending,
+                                    final int offset,
+                                    final int pageSize );
+
+    int count( final KQuery query );
+
+    /**
+     * Number of matches per value of the property; each value of a multi valued property counts.
+     */
+    Map<String, Integer> facets( final KQuery query,
+                                 final String property );
+
+    /**
+     * Number of matches per bucket of a numeric or date property, keyed by the bucket's lower bound.
+     */
+    Map<Long, Integer> facets( final KQuery query,
+                               final String property,
+                               final long bucketSize );
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.engine;
+
+import java.util.List;
+
+public interface MetaSuggestEngine {
+
+    /**
+     * Object keys, file names and values of the engine's suggest properties starting with the prefix, most
+     * frequent first; matching is case sensitive.
+     */
+    List<String> suggest( final String prefix,
+                          final int limit );
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.model;
+
+/**
+ * Builds the key an object of the given type gets at the given key path, id included; lets engines rewrite keys
+ * without knowing how ids are derived.
+ */
+public interface KObjectKeyFactory {
+
+    KObjectKey newKey( final String type,
+                       final String key );
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.kie.commons.validation.PortablePreconditions.*;
+
+/**
+ * Combines queries: all <code>must</code> clauses have to match, none of the <code>mustNot</code> ones, and
+ * at least one <code>should</code> clause when there are no <code>must</code> clauses.
+ */
+public final class KBooleanQuery implements KQuery {
+
+    private final List<KQuery> must    = new ArrayList<KQuery>();
+    private final List<KQuery> should  = new ArrayList<KQuery>();
+    private final List<KQuery> mustNot = new ArrayList<KQuery>();
+
+    public KBooleanQuery must( final KQuery query ) {
+        must.add( checkNotNull( "query", query ) );
+        return this;
+    }
+
+    public KBooleanQuery should( final KQuery query ) {
+        should.add( checkNotNull( "query", query ) );
+        return this;
+    }
+
+    public KBooleanQuery mustNot( final KQuery query ) {
+        mustNot.add( checkNotNull( "query", query ) );
+        return this;
+    }
+
+    public List<KQuery> getMust() {
+        return Collections.unmodifiableList( must );
+    }
+
+    public List<KQuery> getShould() {
+        return Collections.unmodifiableList( should );
+    }
+
+    public List<KQuery> getMustNot() {
+        return Collections.unmodifiableList( mustNot );
+    }
+
+    @Override
+    public String toString() {
+        return "must" + must + " should" + should + " mustNot" + mustNot;
+    }
+}
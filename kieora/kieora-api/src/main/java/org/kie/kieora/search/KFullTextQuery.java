@@ -0,0 +1,48 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.search;
+
+import static org.kie.commons.validation.PortablePreconditions.*;
+
+/**
+ * Matches a searchable property containing all the words of the given text.
+ */
+public final class KFullTextQuery implements KQuery {
+
+    private final String property;
+    private final String text;
+
+    public KFullTextQuery( final String property,
+                           final String text ) {
+        this.property = checkNotEmpty( "property", property );
+        this.text = checkNotEmpty( "text", text );
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    @Override
+    public String toString() {
+        return property + ":\"" + text + "\"";
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.search;
+
+import static org.kie.commons.validation.PortablePreconditions.*;
+
+/**
+ * Matches objects whose key is below the given path: its direct children, or the whole subtree when recursive.
+ */
+public final class KPathQuery implements KQuery {
+
+    private final String  path;
+    private final boolean recursive;
+
+    public KPathQuery( final String path,
+                       final boolean recursive ) {
+        this.path = checkNotEmpty( "path", path );
+        this.recursive = recursive;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public boolean isRecursive() {
+        return recursive;
+    }
+
+    @Override
+    public String toString() {
+        return ( recursive ? "subtree:" : "children:" ) + path;
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.search;
+
+import static org.kie.commons.validation.PortablePreconditions.*;
+
+/**
+ * Matches a property holding a term that starts with the given prefix.
+ */
+public final class KPrefixQuery implements KQuery {
+
+    private final String property;
+    private final String prefix;
+
+    public KPrefixQuery( final String property,
+                         final String prefix ) {
+        this.property = checkNotEmpty( "property", property );
+        this.prefix = checkNotEmpty( "prefix", prefix );
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    @Override
+    public String toString() {
+        return property + ":" + prefix + "*";
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.search;
+
+import java.util.Date;
+
+import static org.kie.commons.validation.PortablePreconditions.*;
+
+/**
+ * Matches a numeric or date property within the given bounds; a <code>null</code> bound is open.
+ */
+public final class KRangeQuery implements KQuery {
+
+    private final String  property;
+    private final Object  from;
+    private final Object  to;
+    private final boolean includeFrom;
+    private final boolean includeTo;
+
+    public KRangeQuery( final String property,
+                        final Object from,
+                        final Object to ) {
+        this( property, from, to, true, true );
+    }
+
+    public KRangeQuery( final String property,
+                        final Object from,
+                        final Object to,
+                        final boolean includeFrom,
+                        final boolean includeTo ) {
+        this.property = checkNotEmpty( "property", property );
+        checkCondition( "at least one bound is required", from != null || to != null );
+        checkCondition( "bounds must be numbers or dates", isBound( from ) && isBound( to ) );
+        checkCondition( "bounds must be of the same type", from == null || to == null || from.getClass().equals( to.getClass() ) );
+        this.from = from;
+        this.to = to;
+        this.includeFrom = includeFrom;
+        this.includeTo = includeTo;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    public Object getFrom() {
+        return from;
+    }
+
+    public Object getTo() {
+        return to;
+    }
+
+    public boolean isIncludeFrom() {
+        return includeFrom;
+    }
+
+    public boolean isIncludeTo() {
+        return includeTo;
+    }
+
+    /**
+     * Type of the bounds, either a {@link Number} subclass or {@link Date}.
+     */
+    public Class<?> getValueType() {
+        return from != null ? from.getClass() : to.getClass();
+    }
+
+    private static boolean isBound( final Object value ) {
+        return value == null || value instanceof Number || value instanceof Date;
+    }
+
+    @Override
+    public String toString() {
+        return property + ":" + ( includeFrom ? "[" : "{" ) + from + " TO " + to + ( includeTo ? "]" : "}" );
+    }
+}
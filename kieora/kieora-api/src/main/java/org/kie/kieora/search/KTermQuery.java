@@ -0,0 +1,48 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.search;
+
+import static org.kie.commons.validation.PortablePreconditions.*;
+
+/**
+ * Matches a property indexed with exactly the given value (not analyzed).
+ */
+public final class KTermQuery implements KQuery {
+
+    private final String property;
+    private final String value;
+
+    public KTermQuery( final String property,
+                       final String value ) {
+        this.property = checkNotEmpty( "property", property );
+        this.value = checkNotNull( "value", value );
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return property + ":" + value;
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.search;
+
+import static org.kie.commons.validation.PortablePreconditions.*;
+
+/**
+ * Matches objects of the given {@link org.kie.kieora.model.schema.MetaType}.
+ */
+public final class KTypeQuery implements KQuery {
+
+    private final String type;
+
+    public KTypeQuery( final String type ) {
+        this.type = checkNotEmpty( "type", type );
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    @Override
+    public String toString() {
+        return "type:" + type;
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.search;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.kie.commons.validation.PortablePreconditions.*;
+
+/**
+ * One page of search results plus the total number of hits of the query.
+ */
+public final class PagedResult<T> {
+
+    private final List<T> content;
+    private final int     totalHits;
+    private final int     offset;
+
+    public PagedResult( final List<T> content,
+                        final int totalHits,
+                        final int offset ) {
+        this.content = Collections.unmodifiableList( checkNotNull( "content", content ) );
+        this.totalHits = totalHits;
+        this.offset = offset;
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public int getTotalHits() {
+        return totalHits;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public boolean hasNext() {
+        return offset + content.size() < totalHits;
+    }
+}
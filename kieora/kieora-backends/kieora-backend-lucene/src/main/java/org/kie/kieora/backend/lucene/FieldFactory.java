@@ -25,4 +25,9 @@ import org.kie.kieora.model.KProperty;
 public interface FieldFactory {
 
     IndexableField build( final KProperty<?> property );
+
+    /**
+     * DocValues field used to sort and facet on the property without loading stored documents, or null.
+     */
+    IndexableField docValues( final KProperty<?> property );
 }
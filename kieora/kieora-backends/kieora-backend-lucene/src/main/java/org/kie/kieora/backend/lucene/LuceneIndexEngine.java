@@ -16,40 +16,111 @@
 
 package org.kie.kieora.backend.lucene;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
 
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.IntField;
+import org.apache.lucene.document.SortedBytesDocValuesField;
+import org.apache.lucene.document.StoredField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TermRangeQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHitCountCollector;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.BytesRef;
+import org.kie.kieora.backend.lucene.facets.BucketFacetCollector;
+import org.kie.kieora.backend.lucene.facets.TermFacetCollector;
+import org.kie.kieora.backend.lucene.queries.LuceneQueryBuilder;
+import org.kie.kieora.backend.lucene.suggest.LuceneSuggester;
 import org.kie.kieora.engine.MetaIndexEngine;
+import org.kie.kieora.engine.MetaIndexScanner;
 import org.kie.kieora.engine.MetaModelStore;
+import org.kie.kieora.engine.MetaSearchEngine;
+import org.kie.kieora.engine.MetaSuggestEngine;
 import org.kie.kieora.model.KObject;
 import org.kie.kieora.model.KObjectKey;
+import org.kie.kieora.model.KObjectKeyFactory;
 import org.kie.kieora.model.KProperty;
+import org.kie.kieora.model.KSharded;
 import org.kie.kieora.model.schema.MetaObject;
 import org.kie.kieora.model.schema.MetaProperty;
 import org.kie.kieora.model.schema.MetaType;
+import org.kie.kieora.search.KQuery;
+import org.kie.kieora.search.PagedResult;
 
 import static org.kie.commons.validation.Preconditions.*;
-
-public class LuceneIndexEngine implements MetaIndexEngine {
-
-    private final LuceneSetup    lucene;
-    private final FieldFactory   fieldFactory;
-    private final MetaModelStore metaModelStore;
+import static org.kie.kieora.backend.lucene.fields.SimpleFieldFactory.*;
+import static org.kie.kieora.backend.lucene.setups.ShardedLuceneSetup.*;
+import static org.kie.kieora.backend.lucene.util.PathHierarchy.*;
+
+public class LuceneIndexEngine implements MetaIndexEngine,
+                                          MetaSearchEngine,
+                                          MetaSuggestEngine,
+                                          MetaIndexScanner {
+
+    private static final int    MAX_SIGNATURES    = 10000;
+    private static final long   SUGGEST_STALENESS = 1000;
+    private static final String FINGERPRINT       = "fingerprint";
+
+    private final LuceneSetup        lucene;
+    private final FieldFactory       fieldFactory;
+    private final MetaModelStore     metaModelStore;
+    private final LuceneQueryBuilder queryBuilder;
+    private final LuceneSuggester    suggester;
+    private final Set<Long>          knownSignatures = Collections.newSetFromMap( new ConcurrentHashMap<Long, Boolean>() );
 
     public LuceneIndexEngine( final MetaModelStore metaModelStore,
                               final LuceneSetup lucene,
                               final FieldFactory fieldFactory ) {
+        this( metaModelStore, lucene, fieldFactory, Collections.<String>emptySet() );
+    }
+
+    /**
+     * @param suggestProperties stored text properties offered by {@link #suggest(String, int)} next to the keys,
+     * e.g. titles
+     */
+    public LuceneIndexEngine( final MetaModelStore metaModelStore,
+                              final LuceneSetup lucene,
+                              final FieldFactory fieldFactory,
+                              final Collection<String> suggestProperties ) {
         this.metaModelStore = checkNotNull( "metaModelStore", metaModelStore );
         this.lucene = checkNotNull( "lucene", lucene );
         this.fieldFactory = checkNotNull( "fieldFactory", fieldFactory );
+        this.queryBuilder = new LuceneQueryBuilder( lucene.getAnalyzer() );
+        this.suggester = new LuceneSuggester( lucene, suggestProperties, SUGGEST_STALENESS );
     }
 
     @Override
@@ -60,70 +131,720 @@ public class LuceneIndexEngine implements MetaIndexEngine {
     }
 
     private Document newDocument( final KObject object ) {
+        return newDocument( object, null );
+    }
+
+    /**
+     * @param fingerprint kept as is when given, computed from the properties otherwise
+     */
+    private Document newDocument( final KObject object,
+                                  final String fingerprint ) {
         final Document doc = new Document();
 
         doc.add( new StringField( "id", object.getId(), Field.Store.YES ) );
         doc.add( new StringField( "type", object.getType().getName(), Field.Store.YES ) );
+        doc.add( new SortedBytesDocValuesField( "type", new BytesRef( object.getType().getName() ) ) );
         doc.add( new TextField( "key", object.getKey(), Field.Store.YES ) );
+        for ( final String ancestor : ancestors( object.getKey() ) ) {
+            doc.add( new StringField( ANCESTOR, ancestor, Field.Store.NO ) );
+        }
+        final String parent = parent( object.getKey() );
+        if ( parent != null ) {
+            doc.add( new StringField( PARENT, parent, Field.Store.NO ) );
+        }
+        doc.add( new IntField( DEPTH, depth( object.getKey() ), Field.Store.NO ) );
+        if ( object instanceof KSharded ) {
+            doc.add( new StringField( SHARD_FIELD, ( (KSharded) object ).getShard(), Field.Store.YES ) );
+        }
 
+        final List<IndexableField> fields = new ArrayList<IndexableField>();
         for ( final KProperty<?> property : object.getProperties() ) {
-            doc.add( fieldFactory.build( property ) );
+            final IndexableField field = fieldFactory.build( property );
+            fields.add( field );
+            doc.add( field );
+            final IndexableField docValues = fieldFactory.docValues( property );
+            if ( docValues != null ) {
+                doc.add( docValues );
+            }
         }
+        doc.add( new StoredField( FINGERPRINT, fingerprint != null ? fingerprint : fingerprint( fields ) ) );
 
         return doc;
     }
 
     @Override
     public void index( final KObject... objects ) {
+        index( Arrays.asList( objects ) );
+    }
+
+    @Override
+    public void index( final Iterable<KObject> objects ) {
+        checkNotNull( "objects", objects );
+
+        final Map<String, MetaObject> changedMetaObjects = new HashMap<String, MetaObject>();
+        final Set<Long> newSignatures = new HashSet<Long>();
         for ( final KObject object : objects ) {
-            index( object );
+            final long signature = signature( object );
+            if ( knownSignatures.contains( signature ) || !newSignatures.add( signature ) ) {
+                lucene.indexDocument( object.getId(), newDocument( object ) );
+                continue;
+            }
+            final String type = object.getType().getName();
+            synchronized ( metaModelStore ) {
+                MetaObject metaObject = changedMetaObjects.get( type );
+                if ( metaObject == null ) {
+                    metaObject = metaModelStore.getMetaObject( type );
+                }
+                if ( metaObject == null ) {
+                    metaObject = newMetaObect( object );
+                    metaModelStore.add( metaObject );
+                } else if ( mergeMetaModel( metaObject, object ) ) {
+                    changedMetaObjects.put( type, metaObject );
+                }
+            }
+
+            lucene.indexDocument( object.getId(), newDocument( object ) );
+        }
+
+        synchronized ( metaModelStore ) {
+            for ( final MetaObject metaObject : changedMetaObjects.values() ) {
+                metaModelStore.update( metaObject );
+            }
+        }
+        for ( final Long signature : newSignatures ) {
+            remember( signature );
         }
     }
 
     @Override
     public void rename( final KObjectKey from,
                         final KObjectKey to ) {
-        lucene.rename( from.getId(), to.getId() );
+        checkNotNull( "from", from );
+        checkNotNull( "to", to );
+
+        move( from, to, null );
+    }
+
+    @Override
+    public void renameTree( final KObjectKey from,
+                            final KObjectKey to,
+                            final KObjectKeyFactory keyFactory ) {
+        checkNotNull( "from", from );
+        checkNotNull( "to", to );
+        checkNotNull( "keyFactory", keyFactory );
+
+        move( from, to, keyFactory );
+        lucene.commit();
+    }
+
+    /**
+     * Rewrites the stored documents of <code>from</code>, and of its descendants when a key factory is given,
+     * under their new keys; ids, key and path hierarchy fields are rebuilt, properties are restored from the
+     * stored values. Only documents of the shard of <code>from</code> move, or of no shard when it has none.
+     */
+    private void move( final KObjectKey from,
+                       final KObjectKey to,
+                       final KObjectKeyFactory keyFactory ) {
+        final String fromKey = normalize( from.getKey() );
+        final String toKey = normalize( to.getKey() );
+
+        final BooleanQuery query = new BooleanQuery();
+        query.add( new TermQuery( new Term( "id", from.getId() ) ), BooleanClause.Occur.SHOULD );
+        if ( keyFactory != null ) {
+            query.add( new TermQuery( new Term( ANCESTOR, fromKey ) ), BooleanClause.Occur.SHOULD );
+        }
+
+        final IndexSearcher searcher = lucene.nrtSearcher();
+        try {
+            for ( final int docId : collect( searcher, ofShard( query, shardOf( from ) ) ) ) {
+                final Document stored = searcher.doc( docId );
+                final String id = stored.get( "id" );
+                final String type = stored.get( "type" );
+                final String key = stored.get( "key" );
+
+                final KObjectKey target;
+                if ( id.equals( from.getId() ) ) {
+                    target = to;
+                } else {
+                    target = keyFactory.newKey( type, toKey + normalize( key ).substring( fromKey.length() ) );
+                }
+
+                delete( id, stored.get( SHARD_FIELD ) );
+                lucene.indexDocument( target.getId(), restore( stored, target ) );
+            }
+        } catch ( final IOException e ) {
+            throw new RuntimeException( e );
+        } finally {
+            lucene.nrtRelease( searcher );
+        }
+    }
+
+    private List<Integer> collect( final IndexSearcher searcher,
+                                   final Query query ) throws IOException {
+        final List<Integer> result = new ArrayList<Integer>();
+        searcher.search( query, new Collector() {
+            private int docBase;
+
+            @Override
+            public void setScorer( final Scorer scorer ) {
+            }
+
+            @Override
+            public void collect( final int doc ) {
+                result.add( docBase + doc );
+            }
+
+            @Override
+            public void setNextReader( final AtomicReaderContext context ) {
+                docBase = context.docBase;
+            }
+
+            @Override
+            public boolean acceptsDocsOutOfOrder() {
+                return true;
+            }
+        } );
+        return result;
+    }
+
+    /**
+     * Rebuilds a document from its stored fields under a new key, in the key's shard or else in the stored one. Dates
+     * come back as the longs they are indexed as and collections are split again from their stored text; searchable
+     * flags come from the meta model and binary values are copied as they are.
+     */
+    private Document restore( final Document stored,
+                              final KObjectKey target ) {
+        final MetaObject metaObject = metaModelStore.getMetaObject( target.getType().getName() );
+        final List<KProperty<?>> properties = new ArrayList<KProperty<?>>();
+        final List<IndexableField> binaries = new ArrayList<IndexableField>();
+
+        for ( final IndexableField field : stored.getFields() ) {
+            final String name = field.name();
+            if ( name.equals( "id" ) || name.equals( "type" ) || name.equals( "key" ) || name.equals( SHARD_FIELD ) || name.equals( FINGERPRINT ) ) {
+                continue;
+            }
+            final Object value;
+            if ( field.numericValue() != null ) {
+                value = field.numericValue();
+            } else if ( field.stringValue() != null ) {
+                value = field.stringValue();
+            } else {
+                binaries.add( new StoredField( name, field.binaryValue() ) );
+                continue;
+            }
+            final MetaProperty metaProperty = metaObject != null ? metaObject.getProperty( name ) : null;
+            properties.add( new StoredProperty( name, isCollection( metaProperty ) ? split( value ) : value, metaProperty == null || metaProperty.isSearchable() ) );
+        }
+
+        final Document doc = newDocument( new KObject() {
+            @Override
+            public String getId() {
+                return target.getId();
+            }
+
+            @Override
+            public MetaType getType() {
+                return target.getType();
+            }
+
+            @Override
+            public String getKey() {
+                return target.getKey();
+            }
+
+            @Override
+            public Iterable<KProperty<?>> getProperties() {
+                return properties;
+            }
+        }, stored.get( FINGERPRINT ) );
+        for ( final IndexableField binary : binaries ) {
+            doc.add( binary );
+        }
+        final String shard = shardOf( target ) != null ? shardOf( target ) : stored.get( SHARD_FIELD );
+        if ( shard != null ) {
+            doc.add( new StringField( SHARD_FIELD, shard, Field.Store.YES ) );
+        }
+        return doc;
     }
 
     @Override
     public void delete( final KObjectKey objectKey ) {
-        lucene.deleteIfExists( objectKey.getId() );
+        delete( objectKey.getId(), shardOf( objectKey ) );
     }
 
     @Override
     public void delete( final KObjectKey... objectsKey ) {
-        final String[] ids = new String[ objectsKey.length ];
-        for ( int i = 0; i < ids.length; i++ ) {
-            ids[ i ] = objectsKey[ i ].getId();
+        final List<String> ids = new ArrayList<String>();
+        final List<Query> queries = new ArrayList<Query>();
+        for ( final KObjectKey objectKey : objectsKey ) {
+            if ( shardOf( objectKey ) == null ) {
+                ids.add( objectKey.getId() );
+            } else {
+                queries.add( inShard( new TermQuery( new Term( "id", objectKey.getId() ) ), shardOf( objectKey ) ) );
+            }
+        }
+        if ( !ids.isEmpty() ) {
+            lucene.deleteIfExists( ids.toArray( new String[ ids.size() ] ) );
+        }
+        if ( !queries.isEmpty() ) {
+            lucene.deleteByQueries( queries.toArray( new Query[ queries.size() ] ) );
+        }
+    }
+
+    @Override
+    public void deleteTree( final KObjectKey root ) {
+        checkNotNull( "root", root );
+
+        final BooleanQuery query = new BooleanQuery();
+        query.add( new TermQuery( new Term( "id", root.getId() ) ), BooleanClause.Occur.SHOULD );
+        query.add( new TermQuery( new Term( ANCESTOR, normalize( root.getKey() ) ) ), BooleanClause.Occur.SHOULD );
+        lucene.deleteByQueries( ofShard( query, shardOf( root ) ) );
+        lucene.commit();
+    }
+
+    /**
+     * Ids repeat across shards, so a document of a known shard is deleted by id and shard.
+     */
+    private void delete( final String id,
+                         final String shard ) {
+        if ( shard == null ) {
+            lucene.deleteIfExists( id );
+        } else {
+            lucene.deleteByQueries( inShard( new TermQuery( new Term( "id", id ) ), shard ) );
+        }
+    }
+
+    private static String shardOf( final Object key ) {
+        return key instanceof KSharded ? ( (KSharded) key ).getShard() : null;
+    }
+
+    /**
+     * Limits the query to the documents of the shard; without a shard it is returned as it is.
+     */
+    private static Query inShard( final Query query,
+                                  final String shard ) {
+        if ( shard == null ) {
+            return query;
+        }
+        final BooleanQuery result = new BooleanQuery();
+        result.add( query, BooleanClause.Occur.MUST );
+        result.add( new TermQuery( new Term( SHARD_FIELD, shard ) ), BooleanClause.Occur.MUST );
+        return result;
+    }
+
+    /**
+     * Limits the query to the documents of the shard, or to those indexed without one when there is no shard.
+     */
+    private static Query ofShard( final Query query,
+                                  final String shard ) {
+        if ( shard != null ) {
+            return inShard( query, shard );
+        }
+        final BooleanQuery result = new BooleanQuery();
+        result.add( query, BooleanClause.Occur.MUST );
+        result.add( new TermRangeQuery( SHARD_FIELD, null, null, true, true ), BooleanClause.Occur.MUST_NOT );
+        return result;
+    }
+
+    @Override
+    public void commit() {
+        lucene.commit();
+    }
+
+    @Override
+    public PagedResult<KObjectKey> search( final KQuery query,
+                                           final int offset,
+                                           final int pageSize ) {
+        checkNotNull( "query", query );
+        checkCondition( "offset can't be negative", offset >= 0 );
+        checkCondition( "pageSize must be positive", pageSize > 0 );
+
+        final IndexSearcher searcher = lucene.nrtSearcher();
+        try {
+            return toPagedResult( searcher, searcher.search( queryBuilder.build( query ), offset + pageSize ), offset, pageSize );
+        } catch ( final IOException e ) {
+            throw new RuntimeException( e );
+        } finally {
+            lucene.nrtRelease( searcher );
+        }
+    }
+
+    @Override
+    public PagedResult<KObjectKey> search( final KQuery query,
+                                           final String sortBy,
+                                           final boolean descending,
+                                           final int offset,
+                                           final int pageSize ) {
+        checkNotNull( "query", query );
+        checkNotEmpty( "sortBy", sortBy );
+        checkCondition( "offset can't be negative", offset >= 0 );
+        checkCondition( "pageSize must be positive", pageSize > 0 );
+
+        final IndexSearcher searcher = lucene.nrtSearcher();
+        try {
+            final Sort sort = new Sort( sortField( searcher, sortBy, descending ) );
+            return toPagedResult( searcher, searcher.search( queryBuilder.build( query ), offset + pageSize, sort ), offset, pageSize );
+        } catch ( final IOException e ) {
+            throw new RuntimeException( e );
+        } finally {
+            lucene.nrtRelease( searcher );
+        }
+    }
+
+    private PagedResult<KObjectKey> toPagedResult( final IndexSearcher searcher,
+                                                   final TopDocs topDocs,
+                                                   final int offset,
+                                                   final int pageSize ) throws IOException {
+        final List<KObjectKey> result = new ArrayList<KObjectKey>( pageSize );
+        for ( int i = offset; i < topDocs.scoreDocs.length; i++ ) {
+            result.add( toKObjectKey( searcher.doc( topDocs.scoreDocs[ i ].doc ) ) );
+        }
+        return new PagedResult<KObjectKey>( result, topDocs.totalHits, offset );
+    }
+
+    /**
+     * Sorts on the field's DocValues when it has them, otherwise falls back to the field cache over its terms.
+     */
+    private SortField sortField( final IndexSearcher searcher,
+                                 final String field,
+                                 final boolean descending ) {
+        DocValues.Type docValuesType = null;
+        for ( final AtomicReaderContext leaf : searcher.getIndexReader().leaves() ) {
+            final FieldInfo fieldInfo = leaf.reader().getFieldInfos().fieldInfo( field );
+            if ( fieldInfo != null && fieldInfo.hasDocValues() ) {
+                docValuesType = fieldInfo.getDocValuesType();
+                break;
+            }
+        }
+        if ( docValuesType == null ) {
+            return new SortField( field, SortField.Type.STRING, descending );
+        }
+
+        final SortField sortField;
+        switch ( docValuesType ) {
+            case BYTES_FIXED_SORTED:
+            case BYTES_VAR_SORTED:
+                sortField = new SortField( field, SortField.Type.STRING, descending );
+                break;
+            case FLOAT_32:
+            case FLOAT_64:
+                sortField = new SortField( field, SortField.Type.DOUBLE, descending );
+                break;
+            default:
+                sortField = new SortField( field, SortField.Type.LONG, descending );
+        }
+        sortField.setUseIndexValues( true );
+        return sortField;
+    }
+
+    @Override
+    public int count( final KQuery query ) {
+        checkNotNull( "query", query );
+
+        final IndexSearcher searcher = lucene.nrtSearcher();
+        try {
+            final TotalHitCountCollector collector = new TotalHitCountCollector();
+            searcher.search( queryBuilder.build( query ), collector );
+            return collector.getTotalHits();
+        } catch ( final IOException e ) {
+            throw new RuntimeException( e );
+        } finally {
+            lucene.nrtRelease( searcher );
+        }
+    }
+
+    @Override
+    public Map<String, Integer> facets( final KQuery query,
+                                        final String property ) {
+        checkNotNull( "query", query );
+        checkNotEmpty( "property", property );
+
+        final IndexSearcher searcher = lucene.nrtSearcher();
+        try {
+            final TermFacetCollector collector = new TermFacetCollector( property );
+            searcher.search( queryBuilder.build( query ), collector );
+            return collector.getCounts();
+        } catch ( final IOException e ) {
+            throw new RuntimeException( e );
+        } finally {
+            lucene.nrtRelease( searcher );
+        }
+    }
+
+    @Override
+    public Map<Long, Integer> facets( final KQuery query,
+                                      final String property,
+                                      final long bucketSize ) {
+        checkNotNull( "query", query );
+        checkNotEmpty( "property", property );
+        checkCondition( "bucketSize must be positive", bucketSize > 0 );
+
+        final IndexSearcher searcher = lucene.nrtSearcher();
+        try {
+            final BucketFacetCollector collector = new BucketFacetCollector( property, bucketSize );
+            searcher.search( queryBuilder.build( query ), collector );
+            return collector.getCounts();
+        } catch ( final IOException e ) {
+            throw new RuntimeException( e );
+        } finally {
+            lucene.nrtRelease( searcher );
+        }
+    }
+
+    private KObjectKey toKObjectKey( final Document document ) {
+        final String id = document.get( "id" );
+        final String type = document.get( "type" );
+        final String key = document.get( "key" );
+
+        return new KObjectKey() {
+            @Override
+            public String getId() {
+                return id;
+            }
+
+            @Override
+            public MetaType getType() {
+                return new MetaType() {
+                    @Override
+                    public String getName() {
+                        return type;
+                    }
+                };
+            }
+
+            @Override
+            public String getKey() {
+                return key;
+            }
+        };
+    }
+
+    @Override
+    public String fingerprint( final KObject object ) {
+        checkNotNull( "object", object );
+
+        final List<IndexableField> fields = new ArrayList<IndexableField>();
+        for ( final KProperty<?> property : object.getProperties() ) {
+            fields.add( fieldFactory.build( property ) );
+        }
+        return fingerprint( fields );
+    }
+
+    @Override
+    public Map<String, String> fingerprints( final String shard,
+                                             final KQuery query ) {
+        checkNotNull( "query", query );
+
+        final Set<String> toLoad = new HashSet<String>( Arrays.asList( "key", FINGERPRINT ) );
+        final IndexSearcher searcher = lucene.nrtSearcher();
+        try {
+            final Map<String, String> result = new HashMap<String, String>();
+            for ( final int docId : collect( searcher, ofShard( queryBuilder.build( query ), shard ) ) ) {
+                final Document stored = searcher.getIndexReader().document( docId, toLoad );
+                result.put( stored.get( "key" ), stored.get( FINGERPRINT ) );
+            }
+            return result;
+        } catch ( final IOException e ) {
+            throw new RuntimeException( e );
+        } finally {
+            lucene.nrtRelease( searcher );
+        }
+    }
+
+    /**
+     * Walks the ancestor terms below the path, seeking past each child's own subtree; terms only left by
+     * deleted documents or by other shards don't count.
+     */
+    @Override
+    public SortedSet<String> branches( final String shard,
+                                       final String path ) {
+        checkNotEmpty( "path", path );
+
+        final String normalized = normalize( path );
+        final String prefix = normalized.endsWith( "/" ) ? normalized : normalized + "/";
+        final SortedSet<String> result = new TreeSet<String>();
+        final IndexSearcher searcher = lucene.nrtSearcher();
+        try {
+            final Terms terms = MultiFields.getTerms( searcher.getIndexReader(), ANCESTOR );
+            if ( terms == null ) {
+                return result;
+            }
+            final TermsEnum termsEnum = terms.iterator( null );
+            TermsEnum.SeekStatus status = termsEnum.seekCeil( new BytesRef( prefix ) );
+            while ( status != TermsEnum.SeekStatus.END ) {
+                final String term = termsEnum.term().utf8ToString();
+                if ( !term.startsWith( prefix ) ) {
+                    break;
+                }
+                final int end = term.indexOf( '/', prefix.length() );
+                final String child = end < 0 ? term : term.substring( 0, end );
+                if ( child.length() <= prefix.length() ) {
+                    status = termsEnum.seekCeil( new BytesRef( term + '\u0000' ) );
+                    continue;
+                }
+                if ( isLive( searcher, child, shard ) ) {
+                    result.add( child );
+                }
+                // '0' follows '/', so this skips everything below the child
+                status = termsEnum.seekCeil( new BytesRef( child + '0' ) );
+            }
+            return result;
+        } catch ( final IOException e ) {
+            throw new RuntimeException( e );
+        } finally {
+            lucene.nrtRelease( searcher );
+        }
+    }
+
+    /**
+     * Whether a live document of the shard lies below the path; only the first match of each segment is looked
+     * for, not all of them.
+     */
+    private static boolean isLive( final IndexSearcher searcher,
+                                   final String path,
+                                   final String shard ) throws IOException {
+        final Query query = ofShard( new TermQuery( new Term( ANCESTOR, path ) ), shard );
+        final Weight weight = searcher.createNormalizedWeight( query );
+        for ( final AtomicReaderContext leaf : searcher.getTopReaderContext().leaves() ) {
+            final Scorer scorer = weight.scorer( leaf, true, false, leaf.reader().getLiveDocs() );
+            if ( scorer != null && scorer.nextDoc() != DocIdSetIterator.NO_MORE_DOCS ) {
+                return true;
+            }
         }
-        lucene.deleteIfExists( ids );
+        return false;
+    }
+
+    /**
+     * Served from the current FST, which a background thread rebuilds after the index changed, at most once a
+     * second; empty until the first one is built.
+     */
+    @Override
+    public List<String> suggest( final String prefix,
+                                 final int limit ) {
+        return suggester.suggest( prefix, limit );
     }
 
     @Override
     public void dispose() {
+        suggester.dispose();
         metaModelStore.dispose();
         lucene.dispose();
     }
 
+    /**
+     * Objects with an already seen signature can't change the schema, so they skip it with one lookup.
+     */
     private void updateMetaModel( final KObject object ) {
-        final MetaObject metaObject = metaModelStore.getMetaObject( object.getType().getName() );
-        if ( metaObject == null ) {
-            metaModelStore.add( newMetaObect( object ) );
-        } else {
-            for ( final KProperty property : object.getProperties() ) {
-                final MetaProperty metaProperty = metaObject.getProperty( property.getName() );
-                if ( metaProperty == null ) {
-                    metaObject.addProperty( newMetaProperty( property ) );
-                } else {
+        final long signature = signature( object );
+        if ( knownSignatures.contains( signature ) ) {
+            return;
+        }
+        synchronized ( metaModelStore ) {
+            final MetaObject metaObject = metaModelStore.getMetaObject( object.getType().getName() );
+            if ( metaObject == null ) {
+                metaModelStore.add( newMetaObect( object ) );
+            } else if ( mergeMetaModel( metaObject, object ) ) {
+                metaModelStore.update( metaObject );
+            }
+        }
+        remember( signature );
+    }
+
+    /**
+     * 64 bit hash of the type and of each property's name, value class and searchable flag. Names are hashed
+     * whole, as their 32 bit hash codes collide too easily ("Aa" and "BB") for a hit to be trusted.
+     */
+    private long signature( final KObject object ) {
+        long hash = mix( 0x9E3779B97F4A7C15L, object.getType().getName() );
+        for ( final KProperty<?> property : object.getProperties() ) {
+            hash = mix( hash, property.getName() );
+            hash = mix( hash, property.getValue().getClass().getName() );
+            hash = mix( hash, property.isSearchable() ? 1 : 2 );
+        }
+        return hash;
+    }
+
+    /**
+     * Order independent digest of the stored form of the properties: one hash per field, sorted, then mixed.
+     */
+    private static String fingerprint( final List<IndexableField> fields ) {
+        final long[] hashes = new long[ fields.size() ];
+        for ( int i = 0; i < hashes.length; i++ ) {
+            final IndexableField field = fields.get( i );
+            final long nameHash = mix( 0x9E3779B97F4A7C15L, field.name() );
+            if ( field.binaryValue() != null ) {
+                hashes[ i ] = mix( nameHash, field.binaryValue() );
+            } else if ( field.numericValue() != null ) {
+                hashes[ i ] = mix( nameHash, field.numericValue().toString() );
+            } else {
+                hashes[ i ] = mix( nameHash, String.valueOf( field.stringValue() ) );
+            }
+        }
+        Arrays.sort( hashes );
+        long hash = 0x9E3779B97F4A7C15L;
+        for ( final long fieldHash : hashes ) {
+            hash = mix( mix( hash, (int) fieldHash ), (int) ( fieldHash >>> 32 ) );
+        }
+        return Long.toHexString( hash );
+    }
+
+    private static long mix( final long hash,
+                             final int value ) {
+        long h = ( hash ^ value ) * 0xFF51AFD7ED558CCDL;
+        return h ^ ( h >>> 33 );
+    }
+
+    /**
+     * Folds in every character, then the length, so strings split differently don't collide either.
+     */
+    private static long mix( final long hash,
+                             final String value ) {
+        long h = hash;
+        for ( int i = 0; i < value.length(); i++ ) {
+            h = ( h ^ value.charAt( i ) ) * 0x100000001B3L;
+        }
+        return mix( h, value.length() );
+    }
+
+    private static long mix( final long hash,
+                             final BytesRef value ) {
+        long h = hash;
+        for ( int i = value.offset; i < value.offset + value.length; i++ ) {
+            h = ( h ^ ( value.bytes[ i ] & 0xFF ) ) * 0x100000001B3L;
+        }
+        return mix( h, value.length );
+    }
+
+    private void remember( final long signature ) {
+        if ( knownSignatures.size() >= MAX_SIGNATURES ) {
+            knownSignatures.clear();
+        }
+        knownSignatures.add( signature );
+    }
+
+    /**
+     * Adds the object's properties, types and searchable flags to the meta object; returns whether anything changed.
+     */
+    private boolean mergeMetaModel( final MetaObject metaObject,
+                                    final KObject object ) {
+        boolean changed = false;
+        for ( final KProperty property : object.getProperties() ) {
+            final MetaProperty metaProperty = metaObject.getProperty( property.getName() );
+            if ( metaProperty == null ) {
+                metaObject.addProperty( newMetaProperty( property ) );
+                changed = true;
+            } else {
+                if ( !metaProperty.getTypes().contains( property.getValue().getClass() ) ) {
                     metaProperty.addType( property.getValue().getClass() );
-                    if ( property.isSearchable() ) {
-                        metaProperty.setAsSearchable();
-                    }
+                    changed = true;
+                }
+                if ( property.isSearchable() && !metaProperty.isSearchable() ) {
+                    metaProperty.setAsSearchable();
+                    changed = true;
                 }
             }
-            metaModelStore.update( metaObject );
         }
+        return changed;
     }
 
     private MetaObject newMetaObect( final KObject object ) {
@@ -214,4 +935,65 @@ public class LuceneIndexEngine implements MetaIndexEngine {
             }
         };
     }
+
+    private static boolean isCollection( final MetaProperty metaProperty ) {
+        if ( metaProperty == null ) {
+            return false;
+        }
+        for ( final Class<?> type : metaProperty.getTypes() ) {
+            if ( Collection.class.isAssignableFrom( type ) ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Values end in the factory's VALUE_SEPARATOR; text without one was stored space separated by
+     * earlier versions and is split on spaces as it was then.
+     */
+    private static Object split( final Object value ) {
+        if ( !( value instanceof String ) ) {
+            return value;
+        }
+        final String text = (String) value;
+        if ( text.endsWith( VALUE_SEPARATOR ) ) {
+            return Arrays.asList( text.split( VALUE_SEPARATOR ) );
+        }
+        if ( text.trim().isEmpty() ) {
+            return Collections.emptyList();
+        }
+        return Arrays.asList( text.trim().split( " " ) );
+    }
+
+    private static class StoredProperty implements KProperty<Object> {
+
+        private final String  name;
+        private final Object  value;
+        private final boolean searchable;
+
+        StoredProperty( final String name,
+                        final Object value,
+                        final boolean searchable ) {
+            this.name = name;
+            this.value = value;
+            this.searchable = searchable;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public Object getValue() {
+            return value;
+        }
+
+        @Override
+        public boolean isSearchable() {
+            return searchable;
+        }
+    }
+
 }
@@ -18,6 +18,9 @@ package org.kie.kieora.backend.lucene;
 
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
 
 /**
  *
@@ -31,8 +34,35 @@ public interface LuceneSetup {
 
     void deleteIfExists( final String... ids );
 
+    /**
+     * Deletes every document holding any of the given terms.
+     */
+    void deleteByTerms( final Term... terms );
+
+    /**
+     * Deletes every document matching any of the given queries.
+     */
+    void deleteByQueries( final Query... queries );
+
+    void commit();
+
+    /**
+     * Value stored with the index commits under the given key, as of the last commit or {@link #setCommitData}.
+     */
+    String getCommitData( final String key );
+
+    /**
+     * Sets a value to be stored with the next commit; it becomes durable together with the documents.
+     */
+    void setCommitData( final String key,
+                        final String value );
+
     void rename( final String source,
                  final String target );
 
+    IndexSearcher nrtSearcher();
+
+    void nrtRelease( final IndexSearcher searcher );
+
     void dispose();
 }
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.backend.lucene.facets;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.Scorer;
+
+/**
+ * Counts matches per fixed size bucket of a numeric DocValues field. Lucene 4.0 DocValues have no notion of a
+ * missing value, documents without one read as 0 and are counted in the bucket holding 0.
+ */
+public class BucketFacetCollector extends Collector {
+
+    private final String             field;
+    private final long               bucketSize;
+    private final Map<Long, Integer> counts = new TreeMap<Long, Integer>();
+
+    private DocValues.Source source;
+
+    public BucketFacetCollector( final String field,
+                                 final long bucketSize ) {
+        this.field = field;
+        this.bucketSize = bucketSize;
+    }
+
+    @Override
+    public void setScorer( final Scorer scorer ) {
+    }
+
+    @Override
+    public void collect( final int doc ) {
+        if ( source == null ) {
+            return;
+        }
+        final long bucket = floor( source.getInt( doc ) );
+        final Integer count = counts.get( bucket );
+        counts.put( bucket, count == null ? 1 : count + 1 );
+    }
+
+    @Override
+    public void setNextReader( final AtomicReaderContext context ) throws IOException {
+        final DocValues docValues = context.reader().docValues( field );
+        source = docValues == null ? null : docValues.getSource();
+    }
+
+    @Override
+    public boolean acceptsDocsOutOfOrder() {
+        return true;
+    }
+
+    public Map<Long, Integer> getCounts() {
+        return counts;
+    }
+
+    private long floor( final long value ) {
+        final long bucket = value / bucketSize;
+        return ( value < 0 && value % bucketSize != 0 ? bucket - 1 : bucket ) * bucketSize;
+    }
+
+}
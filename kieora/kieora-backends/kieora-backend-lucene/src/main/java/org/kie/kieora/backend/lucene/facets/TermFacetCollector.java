@@ -0,0 +1,99 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.backend.lucene.facets;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.util.BytesRef;
+
+import static org.kie.kieora.backend.lucene.fields.SimpleFieldFactory.*;
+
+/**
+ * Counts matches per value of a sorted bytes DocValues field. Hits are counted per segment ordinal and resolved
+ * to values once per segment, so stored documents are never loaded.
+ */
+public class TermFacetCollector extends Collector {
+
+    private final String               field;
+    private final Map<String, Integer> counts = new HashMap<String, Integer>();
+
+    private DocValues.SortedSource source;
+    private int[]                  ordCounts;
+
+    public TermFacetCollector( final String field ) {
+        this.field = field;
+    }
+
+    @Override
+    public void setScorer( final Scorer scorer ) {
+    }
+
+    @Override
+    public void collect( final int doc ) {
+        if ( source != null ) {
+            ordCounts[ source.ord( doc ) ]++;
+        }
+    }
+
+    @Override
+    public void setNextReader( final AtomicReaderContext context ) throws IOException {
+        flush();
+        final DocValues docValues = context.reader().docValues( field );
+        source = docValues == null ? null : docValues.getSource().asSortedSource();
+        ordCounts = source == null ? null : new int[ source.getValueCount() ];
+    }
+
+    @Override
+    public boolean acceptsDocsOutOfOrder() {
+        return true;
+    }
+
+    public Map<String, Integer> getCounts() {
+        flush();
+        return counts;
+    }
+
+    private void flush() {
+        if ( source == null ) {
+            return;
+        }
+        final BytesRef spare = new BytesRef();
+        for ( int ord = 0; ord < ordCounts.length; ord++ ) {
+            if ( ordCounts[ ord ] == 0 ) {
+                continue;
+            }
+            final String value = source.getByOrd( ord, spare ).utf8ToString();
+            if ( value.isEmpty() ) {
+                continue;
+            }
+            for ( final String element : value.split( VALUE_SEPARATOR ) ) {
+                final Integer count = counts.get( element );
+                counts.put( element, count == null ? ordCounts[ ord ] : count + ordCounts[ ord ] );
+            }
+        }
+        source = null;
+        ordCounts = null;
+    }
+
+}
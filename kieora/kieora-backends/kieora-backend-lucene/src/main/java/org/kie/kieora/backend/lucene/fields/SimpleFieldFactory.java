@@ -16,25 +16,72 @@
 
 package org.kie.kieora.backend.lucene.fields;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
 
 import org.apache.lucene.document.DoubleField;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.FloatField;
 import org.apache.lucene.document.IntField;
 import org.apache.lucene.document.LongField;
+import org.apache.lucene.document.PackedLongDocValuesField;
+import org.apache.lucene.document.SortedBytesDocValuesField;
 import org.apache.lucene.document.StoredField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
 import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.util.BytesRef;
 import org.kie.kieora.backend.lucene.FieldFactory;
+import org.kie.kieora.backend.lucene.values.ValueCodecs;
 import org.kie.kieora.model.KProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import static org.kie.kieora.backend.lucene.util.Serializer.*;
+import static org.kie.commons.validation.Preconditions.*;
 
 public class SimpleFieldFactory implements FieldFactory {
 
+    private static final Logger LOG = LoggerFactory.getLogger( SimpleFieldFactory.class );
+
+    /**
+     * Separates the values of a multi valued property inside its single DocValues entry, and ends each value in
+     * its stored text so the collection can be split again.
+     */
+    public static final String VALUE_SEPARATOR = "\u001F";
+
+    public static final Set<String> DEFAULT_FACETS = Collections.unmodifiableSet( new HashSet<String>( Arrays.asList(
+            "dcore.creator", "dcore.subject", "dcore.type", "dcore.format", "dcore.language" ) ) );
+
+    private final Set<String> facets;
+    private final ValueCodecs codecs;
+
+    public SimpleFieldFactory() {
+        this( DEFAULT_FACETS );
+    }
+
+    /**
+     * Integral and date properties always get DocValues; text properties only when named here, as faceting is
+     * the only reason to pay for them.
+     */
+    public SimpleFieldFactory( final Set<String> facets ) {
+        this( facets, ValueCodecs.defaults() );
+    }
+
+    /**
+     * Values of other types are stored in the binary form of the given codecs, or as their string form when no
+     * codec takes them.
+     */
+    public SimpleFieldFactory( final Set<String> facets,
+                               final ValueCodecs codecs ) {
+        this.facets = new HashSet<String>( facets );
+        this.codecs = checkNotNull( "codecs", codecs );
+    }
+
     @Override
     public IndexableField build( final KProperty<?> property ) {
 
@@ -83,7 +130,7 @@ public class SimpleFieldFactory implements FieldFactory {
         if ( Collection.class.isAssignableFrom( property.getValue().getClass() ) ) {
             final StringBuilder sb = new StringBuilder();
             for ( final java.lang.Object ovalue : (Collection) property.getValue() ) {
-                sb.append( ovalue ).append( ' ' );
+                sb.append( ovalue ).append( VALUE_SEPARATOR );
             }
 
             if ( property.isSearchable() ) {
@@ -92,11 +139,55 @@ public class SimpleFieldFactory implements FieldFactory {
             return new StringField( property.getName(), sb.toString(), Field.Store.YES );
         }
 
-        try {
-            return new StoredField( property.getName(), toByteArray( property.getValue() ) );
-        } catch ( final Exception ex ) {
-            return new StoredField( property.getName(), property.getValue().toString() );
+        if ( codecs.canEncode( property.getValue() ) ) {
+            try {
+                return new StoredField( property.getName(), codecs.encode( property.getValue() ) );
+            } catch ( final RuntimeException ex ) {
+                // some nested value no codec takes
+                LOG.debug( "Storing " + property.getName() + " as text, its value can't be encoded", ex );
+            }
+        }
+        return new StoredField( property.getName(), property.getValue().toString() );
+    }
+
+    @Override
+    public IndexableField docValues( final KProperty<?> property ) {
+        final Object value = property.getValue();
+
+        if ( value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte ) {
+            return new PackedLongDocValuesField( property.getName(), ( (Number) value ).longValue() );
+        }
+
+        if ( value instanceof Date ) {
+            return new PackedLongDocValuesField( property.getName(), ( (Date) value ).getTime() );
+        }
+
+        if ( !facets.contains( property.getName() ) ) {
+            return null;
+        }
+
+        if ( value instanceof String ) {
+            return new SortedBytesDocValuesField( property.getName(), new BytesRef( (String) value ) );
         }
+
+        if ( value instanceof Collection ) {
+            final Set<String> values = new TreeSet<String>();
+            for ( final Object element : (Collection<?>) value ) {
+                if ( element != null ) {
+                    values.add( element.toString() );
+                }
+            }
+            final StringBuilder sb = new StringBuilder();
+            for ( final String element : values ) {
+                if ( sb.length() > 0 ) {
+                    sb.append( VALUE_SEPARATOR );
+                }
+                sb.append( element );
+            }
+            return new SortedBytesDocValuesField( property.getName(), new BytesRef( sb.toString() ) );
+        }
+
+        return null;
     }
 
 }
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.backend.lucene.metamodels;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+import org.kie.kieora.backend.lucene.LuceneSetup;
+import org.kie.kieora.engine.MetaModelStore;
+import org.kie.kieora.model.schema.MetaObject;
+import org.kie.kieora.model.schema.MetaProperty;
+import org.kie.kieora.model.schema.MetaType;
+
+import static org.kie.commons.validation.Preconditions.*;
+
+/**
+ * Keeps the meta model in the user data of the index commits, so it survives restarts and is always as durable
+ * as the documents it describes. It's loaded once at construction; changes are handed to the setup only when
+ * the serialized schema actually differs from the stored one.
+ */
+public class LuceneMetaModelStore implements MetaModelStore {
+
+    public static final String COMMIT_DATA_KEY = "kieora.metamodel";
+
+    private final LuceneSetup                           lucene;
+    private final ConcurrentHashMap<String, MetaObject> metaModel = new ConcurrentHashMap<String, MetaObject>();
+
+    private String stored;
+
+    public LuceneMetaModelStore( final LuceneSetup lucene ) {
+        this.lucene = checkNotNull( "lucene", lucene );
+        this.stored = lucene.getCommitData( COMMIT_DATA_KEY );
+        if ( stored != null ) {
+            load( stored );
+        }
+    }
+
+    @Override
+    public void add( final MetaObject metaObject ) {
+        metaModel.put( metaObject.getType().getName(), metaObject );
+        store();
+    }
+
+    @Override
+    public void update( final MetaObject metaObject ) {
+        metaModel.put( metaObject.getType().getName(), metaObject );
+        store();
+    }
+
+    @Override
+    public MetaObject getMetaObject( final String type ) {
+        return metaModel.get( type );
+    }
+
+    @Override
+    public void dispose() {
+    }
+
+    private synchronized void store() {
+        final String serialized = serialize();
+        if ( !serialized.equals( stored ) ) {
+            lucene.setCommitData( COMMIT_DATA_KEY, serialized );
+            stored = serialized;
+        }
+    }
+
+    /**
+     * One line per property: type, property name, searchable flag and value classes, tab separated; sorted so
+     * the same schema always serializes the same way.
+     */
+    private String serialize() {
+        final Map<String, MetaObject> sorted = new TreeMap<String, MetaObject>( metaModel );
+        final StringBuilder sb = new StringBuilder();
+        for ( final MetaObject metaObject : sorted.values() ) {
+            final Map<String, MetaProperty> properties = new TreeMap<String, MetaProperty>();
+            for ( final MetaProperty property : metaObject.getProperties() ) {
+                properties.put( property.getName(), property );
+            }
+            if ( properties.isEmpty() ) {
+                sb.append( metaObject.getType().getName() ).append( '\n' );
+            }
+            for ( final MetaProperty property : properties.values() ) {
+                final Set<String> types = new TreeSet<String>();
+                for ( final Class<?> type : property.getTypes() ) {
+                    types.add( type.getName() );
+                }
+                sb.append( metaObject.getType().getName() ).append( '\t' )
+                        .append( property.getName() ).append( '\t' )
+                        .append( property.isSearchable() ).append( '\t' );
+                for ( final String type : types ) {
+                    sb.append( type ).append( ',' );
+                }
+                sb.append( '\n' );
+            }
+        }
+        return sb.toString();
+    }
+
+    private void load( final String serialized ) {
+        for ( final String line : serialized.split( "\n" ) ) {
+            if ( line.isEmpty() ) {
+                continue;
+            }
+            final String[] fields = line.split( "\t" );
+            StoredMetaObject metaObject = (StoredMetaObject) metaModel.get( fields[ 0 ] );
+            if ( metaObject == null ) {
+                metaObject = new StoredMetaObject( fields[ 0 ] );
+                metaModel.put( fields[ 0 ], metaObject );
+            }
+            if ( fields.length < 4 ) {
+                continue;
+            }
+            final StoredMetaProperty property = new StoredMetaProperty( fields[ 1 ], Boolean.parseBoolean( fields[ 2 ] ) );
+            for ( final String type : fields[ 3 ].split( "," ) ) {
+                try {
+                    property.addType( Class.forName( type ) );
+                } catch ( final ClassNotFoundException ignored ) {
+                }
+            }
+            metaObject.addProperty( property );
+        }
+    }
+
+    private static class StoredMetaObject implements MetaObject {
+
+        private final String                    type;
+        private final Map<String, MetaProperty> properties = new ConcurrentHashMap<String, MetaProperty>();
+
+        StoredMetaObject( final String type ) {
+            this.type = type;
+        }
+
+        @Override
+        public MetaType getType() {
+            return new MetaType() {
+                @Override
+                public String getName() {
+                    return type;
+                }
+            };
+        }
+
+        @Override
+        public Collection<MetaProperty> getProperties() {
+            return properties.values();
+        }
+
+        @Override
+        public MetaProperty getProperty( final String name ) {
+            return properties.get( name );
+        }
+
+        @Override
+        public void addProperty( final MetaProperty metaProperty ) {
+            if ( !properties.containsKey( metaProperty.getName() ) ) {
+                properties.put( metaProperty.getName(), metaProperty );
+            }
+        }
+    }
+
+    private static class StoredMetaProperty implements MetaProperty {
+
+        private final String        name;
+        private final Set<Class<?>> types = new CopyOnWriteArraySet<Class<?>>();
+        private volatile boolean    searchable;
+
+        StoredMetaProperty( final String name,
+                            final boolean searchable ) {
+            this.name = name;
+            this.searchable = searchable;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public Set<Class<?>> getTypes() {
+            return types;
+        }
+
+        @Override
+        public boolean isSearchable() {
+            return searchable;
+        }
+
+        @Override
+        public void setAsSearchable() {
+            this.searchable = true;
+        }
+
+        @Override
+        public void addType( final Class<?> type ) {
+            types.add( type );
+        }
+    }
+
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.backend.lucene.queries;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Date;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.NumericRangeQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.kie.kieora.search.KBooleanQuery;
+import org.kie.kieora.search.KFullTextQuery;
+import org.kie.kieora.search.KPathQuery;
+import org.kie.kieora.search.KPrefixQuery;
+import org.kie.kieora.search.KQuery;
+import org.kie.kieora.search.KRangeQuery;
+import org.kie.kieora.search.KTermQuery;
+import org.kie.kieora.search.KTypeQuery;
+
+import static org.kie.commons.validation.Preconditions.*;
+import static org.kie.kieora.backend.lucene.util.PathHierarchy.*;
+
+/**
+ * Translates {@link KQuery} instances into Lucene queries over the fields built by
+ * {@link org.kie.kieora.backend.lucene.fields.SimpleFieldFactory}.
+ */
+public class LuceneQueryBuilder {
+
+    private final Analyzer analyzer;
+
+    public LuceneQueryBuilder( final Analyzer analyzer ) {
+        this.analyzer = checkNotNull( "analyzer", analyzer );
+    }
+
+    public Query build( final KQuery query ) {
+        checkNotNull( "query", query );
+
+        if ( query instanceof KTermQuery ) {
+            final KTermQuery termQuery = (KTermQuery) query;
+            return new TermQuery( new Term( termQuery.getProperty(), termQuery.getValue() ) );
+        }
+        if ( query instanceof KPrefixQuery ) {
+            final KPrefixQuery prefixQuery = (KPrefixQuery) query;
+            return new PrefixQuery( new Term( prefixQuery.getProperty(), prefixQuery.getPrefix() ) );
+        }
+        if ( query instanceof KTypeQuery ) {
+            return new TermQuery( new Term( "type", ( (KTypeQuery) query ).getType() ) );
+        }
+        if ( query instanceof KFullTextQuery ) {
+            return buildFullText( (KFullTextQuery) query );
+        }
+        if ( query instanceof KRangeQuery ) {
+            return buildRange( (KRangeQuery) query );
+        }
+        if ( query instanceof KBooleanQuery ) {
+            return buildBoolean( (KBooleanQuery) query );
+        }
+        if ( query instanceof KPathQuery ) {
+            final KPathQuery pathQuery = (KPathQuery) query;
+            return new TermQuery( new Term( pathQuery.isRecursive() ? ANCESTOR : PARENT, normalize( pathQuery.getPath() ) ) );
+        }
+
+        throw new IllegalArgumentException( "Unsupported query '" + query.getClass().getName() + "'." );
+    }
+
+    private Query buildFullText( final KFullTextQuery query ) {
+        final BooleanQuery result = new BooleanQuery();
+        try {
+            final TokenStream stream = analyzer.tokenStream( query.getProperty(), new StringReader( query.getText() ) );
+            final CharTermAttribute term = stream.addAttribute( CharTermAttribute.class );
+            try {
+                stream.reset();
+                while ( stream.incrementToken() ) {
+                    result.add( new TermQuery( new Term( query.getProperty(), term.toString() ) ), BooleanClause.Occur.MUST );
+                }
+                stream.end();
+            } finally {
+                stream.close();
+            }
+        } catch ( final IOException e ) {
+            throw new RuntimeException( e );
+        }
+        return result;
+    }
+
+    private Query buildRange( final KRangeQuery query ) {
+        final Class<?> type = query.getValueType();
+        final String property = query.getProperty();
+
+        if ( type == Integer.class ) {
+            return NumericRangeQuery.newIntRange( property, (Integer) query.getFrom(), (Integer) query.getTo(), query.isIncludeFrom(), query.isIncludeTo() );
+        }
+        if ( type == Long.class ) {
+            return NumericRangeQuery.newLongRange( property, (Long) query.getFrom(), (Long) query.getTo(), query.isIncludeFrom(), query.isIncludeTo() );
+        }
+        if ( type == Double.class ) {
+            return NumericRangeQuery.newDoubleRange( property, (Double) query.getFrom(), (Double) query.getTo(), query.isIncludeFrom(), query.isIncludeTo() );
+        }
+        if ( type == Float.class ) {
+            return NumericRangeQuery.newFloatRange( property, (Float) query.getFrom(), (Float) query.getTo(), query.isIncludeFrom(), query.isIncludeTo() );
+        }
+        if ( Date.class.isAssignableFrom( type ) ) {
+            return NumericRangeQuery.newLongRange( property, toTime( query.getFrom() ), toTime( query.getTo() ), query.isIncludeFrom(), query.isIncludeTo() );
+        }
+
+        throw new IllegalArgumentException( "Unsupported range type '" + type.getName() + "'." );
+    }
+
+    private Query buildBoolean( final KBooleanQuery query ) {
+        if ( query.getMust().isEmpty() && query.getShould().isEmpty() && query.getMustNot().isEmpty() ) {
+            return new MatchAllDocsQuery();
+        }
+
+        final BooleanQuery result = new BooleanQuery();
+        for ( final KQuery clause : query.getMust() ) {
+            result.add( build( clause ), BooleanClause.Occur.MUST );
+        }
+        for ( final KQuery clause : query.getShould() ) {
+            result.add( build( clause ), BooleanClause.Occur.SHOULD );
+        }
+        for ( final KQuery clause : query.getMustNot() ) {
+            result.add( build( clause ), BooleanClause.Occur.MUST_NOT );
+        }
+        // pure negations need something to subtract from
+        if ( query.getMust().isEmpty() && query.getShould().isEmpty() ) {
+            result.add( new MatchAllDocsQuery(), BooleanClause.Occur.MUST );
+        }
+
+        return result;
+    }
+
+    private static Long toTime( final Object value ) {
+        if ( value == null ) {
+            return null;
+        }
+        return ( (Date) value ).getTime();
+    }
+
+}
@@ -17,110 +17,155 @@
 package org.kie.kieora.backend.lucene.setups;
 
 import java.io.IOException;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.StringField;
-import org.apache.lucene.index.AtomicReader;
-import org.apache.lucene.index.AtomicReaderContext;
-import org.apache.lucene.index.DocsEnum;
 import org.apache.lucene.index.IndexWriter;
-import org.apache.lucene.index.TermsEnum;
-import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.index.Term;
 import org.apache.lucene.search.IndexSearcher;
-import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
 import org.kie.kieora.backend.lucene.LuceneSetup;
 
 public abstract class BaseLuceneSetup implements LuceneSetup {
 
+    private static final String COMMIT_DATA_MARKER = "kieora.commit-data";
+
+    private final Map<String, String> commitData        = new ConcurrentHashMap<String, String>();
+    private final AtomicBoolean       commitDataChanged = new AtomicBoolean( false );
+
+    /**
+     * Upserts by the "id" primary key: the writer buffers the delete of any previous version, no reader involved.
+     */
     @Override
     public void indexDocument( final String id,
                                final Document doc ) {
         try {
-            deleteIfExists( id );
-            writer().addDocument( doc );
+            writer().updateDocument( idTerm( id ), doc );
         } catch ( IOException e ) {
             throw new RuntimeException( e );
         }
+        updated( 1 );
     }
 
     @Override
     public void deleteIfExists( final String... docIds ) {
-        final IndexSearcher searcher = nrtSearcher();
+        final Term[] terms = new Term[ docIds.length ];
+        for ( int i = 0; i < docIds.length; i++ ) {
+            terms[ i ] = idTerm( docIds[ i ] );
+        }
+        deleteByTerms( terms );
+    }
+
+    @Override
+    public void deleteByTerms( final Term... terms ) {
         try {
-            final int[] answers = lookupDocIdByPK( searcher, docIds );
-            for ( final int docId : answers ) {
-                if ( docId != -1 ) {
-                    writer().tryDeleteDocument( searcher.getIndexReader(), docId );
-                }
-            }
-        } catch ( Exception ex ) {
-        } finally {
-            nrtRelease( searcher );
+            writer().deleteDocuments( terms );
+        } catch ( IOException e ) {
+            throw new RuntimeException( e );
+        }
+        updated( terms.length );
+    }
+
+    @Override
+    public void deleteByQueries( final Query... queries ) {
+        try {
+            writer().deleteDocuments( queries );
+        } catch ( IOException e ) {
+            throw new RuntimeException( e );
+        }
+        updated( queries.length );
+    }
+
+    @Override
+    public void commit() {
+        try {
+            commitWriter();
+        } catch ( IOException e ) {
+            throw new RuntimeException( e );
         }
     }
 
+    @Override
+    public String getCommitData( final String key ) {
+        return commitData.get( key );
+    }
+
+    @Override
+    public void setCommitData( final String key,
+                               final String value ) {
+        final String previous = value == null ? commitData.remove( key ) : commitData.put( key, value );
+        if ( previous == null ? value != null : !previous.equals( value ) ) {
+            commitDataChanged.set( true );
+        }
+        updated( 1 );
+    }
+
+    /**
+     * Commits the writer with the current commit data. Lucene skips a commit that changes no documents, so when
+     * only the data changed a marker document is added and deleted again to carry it.
+     */
+    protected void commitWriter() throws IOException {
+        if ( commitDataChanged.getAndSet( false ) ) {
+            final Document marker = new Document();
+            marker.add( new StringField( "id", COMMIT_DATA_MARKER, Field.Store.NO ) );
+            writer().updateDocument( idTerm( COMMIT_DATA_MARKER ), marker );
+            writer().deleteDocuments( idTerm( COMMIT_DATA_MARKER ) );
+        }
+        writer().commit( commitData() );
+    }
+
+    /**
+     * Snapshot of the user data every commit has to carry.
+     */
+    protected Map<String, String> commitData() {
+        return new HashMap<String, String>( commitData );
+    }
+
+    protected void loadCommitData( final Map<String, String> data ) {
+        commitData.putAll( data );
+    }
+
     @Override
     public void rename( final String sourceId,
                         final String targetId ) {
         final IndexSearcher searcher = nrtSearcher();
         try {
-            int docId = lookupDocIdByPK( searcher, sourceId )[ 0 ];
-            final Document source = searcher.getIndexReader().document( docId );
+            final TopDocs hits = searcher.search( new TermQuery( idTerm( sourceId ) ), 1 );
+            if ( hits.totalHits == 0 ) {
+                return;
+            }
+            final Document source = searcher.doc( hits.scoreDocs[ 0 ].doc );
 
             source.removeField( "id" );
             source.add( new StringField( "id", targetId, Field.Store.YES ) );
 
-            indexDocument( sourceId, source );
+            writer().updateDocument( idTerm( targetId ), source );
+            writer().deleteDocuments( idTerm( sourceId ) );
         } catch ( IOException ex ) {
+            throw new RuntimeException( ex );
         } finally {
             nrtRelease( searcher );
         }
+        updated( 2 );
     }
 
-    protected int[] lookupDocIdByPK( final IndexSearcher searcher,
-                                     final String... ids ) throws IOException {
-        final List<AtomicReaderContext> subReaders = searcher.getIndexReader().leaves();
-        final TermsEnum[] termsEnums = new TermsEnum[ subReaders.size() ];
-        final DocsEnum[] docsEnums = new DocsEnum[ subReaders.size() ];
-        for ( int subIDX = 0; subIDX < subReaders.size(); subIDX++ ) {
-            termsEnums[ subIDX ] = subReaders.get( subIDX ).reader().fields().terms( "id" ).iterator( null );
-        }
-
-        int[] results = new int[ ids.length ];
-
-        for ( int i = 0; i < results.length; i++ ) {
-            results[ i ] = -1;
-        }
-
-        for ( int idx = 0; idx < ids.length; idx++ ) {
-            int base = 0;
-            final BytesRef id = new BytesRef( ids[ idx ] );
-            for ( int subIDX = 0; subIDX < subReaders.size(); subIDX++ ) {
-                final AtomicReader sub = subReaders.get( subIDX ).reader();
-                final TermsEnum termsEnum = termsEnums[ subIDX ];
-                if ( termsEnum.seekExact( id, false ) ) {
-                    final DocsEnum docs = docsEnums[ subIDX ] = termsEnum.docs( sub.getLiveDocs(), docsEnums[ subIDX ], 0 );
-                    if ( docs != null ) {
-                        final int docID = docs.nextDoc();
-                        if ( docID != DocIdSetIterator.NO_MORE_DOCS ) {
-                            results[ idx ] = base + docID;
-                            break;
-                        }
-                    }
-                }
-                base += sub.maxDoc();
-            }
-        }
+    /**
+     * Called after every write with the number of documents it touched; a hook for commit policies.
+     */
+    protected void updated( final int operations ) {
+    }
 
-        return results;
+    protected Term idTerm( final String id ) {
+        return new Term( "id", id );
     }
 
     public abstract IndexWriter writer();
 
-    public abstract IndexSearcher nrtSearcher();
-
-    public abstract void nrtRelease( final IndexSearcher searcher );
-
 }
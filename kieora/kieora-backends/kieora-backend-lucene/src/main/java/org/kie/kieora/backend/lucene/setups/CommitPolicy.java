@@ -0,0 +1,102 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.backend.lucene.setups;
+
+import static org.kie.commons.validation.Preconditions.*;
+
+/**
+ * When a {@link DirectoryLuceneSetup} commits on its own: after a number of updates, once the oldest uncommitted
+ * update is older than an interval, or once updates have been idle for a while. A zero value disables a trigger;
+ * a crash loses at most what the enabled triggers let accumulate.
+ */
+public class CommitPolicy {
+
+    private final int  everyOps;
+    private final long everyMillis;
+    private final long idleMillis;
+
+    public CommitPolicy( final int everyOps,
+                         final long everyMillis,
+                         final long idleMillis ) {
+        checkCondition( "everyOps can't be negative", everyOps >= 0 );
+        checkCondition( "everyMillis can't be negative", everyMillis >= 0 );
+        checkCondition( "idleMillis can't be negative", idleMillis >= 0 );
+        this.everyOps = everyOps;
+        this.everyMillis = everyMillis;
+        this.idleMillis = idleMillis;
+    }
+
+    /**
+     * Commits every 1000 updates, at least every 10 seconds and after one idle second.
+     */
+    public static CommitPolicy defaults() {
+        return new CommitPolicy( 1000, 10000, 1000 );
+    }
+
+    /**
+     * Only explicit commits and dispose make updates durable.
+     */
+    public static CommitPolicy manual() {
+        return new CommitPolicy( 0, 0, 0 );
+    }
+
+    public int getEveryOps() {
+        return everyOps;
+    }
+
+    public long getEveryMillis() {
+        return everyMillis;
+    }
+
+    public long getIdleMillis() {
+        return idleMillis;
+    }
+
+    public boolean isTimed() {
+        return everyMillis > 0 || idleMillis > 0;
+    }
+
+    public boolean isManual() {
+        return everyOps == 0 && !isTimed();
+    }
+
+    /**
+     * How often pending updates have to be checked against the time based triggers.
+     */
+    long checkInterval() {
+        if ( everyMillis > 0 && idleMillis > 0 ) {
+            return Math.min( everyMillis, idleMillis );
+        }
+        return Math.max( everyMillis, idleMillis );
+    }
+
+    /**
+     * Whether pending updates are due for a commit.
+     */
+    boolean isDue( final int pendingOps,
+                   final long firstPending,
+                   final long lastUpdate,
+                   final long now ) {
+        if ( pendingOps == 0 ) {
+            return false;
+        }
+        return ( everyOps > 0 && pendingOps >= everyOps ) ||
+                ( everyMillis > 0 && now - firstPending >= everyMillis ) ||
+                ( idleMillis > 0 && now - lastUpdate >= idleMillis );
+    }
+}
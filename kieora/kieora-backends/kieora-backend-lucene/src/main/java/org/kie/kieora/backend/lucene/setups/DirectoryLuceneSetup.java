@@ -17,36 +17,102 @@
 package org.kie.kieora.backend.lucene.setups;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.codecs.Codec;
 import org.apache.lucene.codecs.PostingsFormat;
 import org.apache.lucene.codecs.lucene40.Lucene40Codec;
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.index.AtomicReaderContext;
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.DocsEnum;
+import org.apache.lucene.index.IndexCommit;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.KeepOnlyLastCommitDeletionPolicy;
+import org.apache.lucene.index.SnapshotDeletionPolicy;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.store.Directory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import static org.apache.lucene.util.Version.*;
 import static org.kie.commons.validation.Preconditions.*;
 
 /**
- *
+ * Commits requested by the {@link CommitPolicy} run on a background thread, so writers never wait for a commit
+ * they didn't ask for.
  */
 public class DirectoryLuceneSetup extends BaseLuceneSetup {
 
-    private final IndexWriter writer;
-    private final Analyzer    analyzer;
-    private final Directory   directory;
+    private static final Logger LOG = LoggerFactory.getLogger( DirectoryLuceneSetup.class );
+
+    private static final long DISPOSE_TIMEOUT_SECONDS = 60;
+
+    private final IndexWriter              writer;
+    private final Analyzer                 analyzer;
+    private final Directory                directory;
+    private final SearcherManager          searcherManager;
+    private final CommitPolicy             commitPolicy;
+    private final ScheduledExecutorService commitScheduler;
+    private final SnapshotDeletionPolicy   snapshots;
+
+    private final AtomicInteger pendingOps      = new AtomicInteger( 0 );
+    private final AtomicLong    snapshotIds     = new AtomicLong( 0 );
+    private final AtomicBoolean commitRequested = new AtomicBoolean( false );
+    private volatile long       firstPending    = 0;
+    private volatile long       lastUpdate      = 0;
+
+    private final Runnable commitTask = new Runnable() {
+        @Override
+        public void run() {
+            commitRequested.set( false );
+            try {
+                commitIfDue();
+            } catch ( final Exception ex ) {
+                // thrown out of a scheduled task it would cancel every later run
+                LOG.error( "Scheduled index commit failed, updates stay pending until the next one", ex );
+            }
+        }
+    };
 
     public DirectoryLuceneSetup( final Directory directory ) {
+        this( directory, CommitPolicy.defaults(), WriterSettings.defaults() );
+    }
+
+    public DirectoryLuceneSetup( final Directory directory,
+                                 final CommitPolicy commitPolicy,
+                                 final WriterSettings writerSettings ) {
         try {
             this.directory = checkNotNull( "directory", directory );
+            this.commitPolicy = checkNotNull( "commitPolicy", commitPolicy );
+            checkNotNull( "writerSettings", writerSettings );
             this.analyzer = new StandardAnalyzer( LUCENE_40 );
             final IndexWriterConfig config = new IndexWriterConfig( LUCENE_40, getAnalyzer() );
+            writerSettings.apply( config );
+            this.snapshots = new SnapshotDeletionPolicy( new KeepOnlyLastCommitDeletionPolicy() );
+            config.setIndexDeletionPolicy( snapshots );
 
             final Codec codec = new Lucene40Codec() {
                 @Override
@@ -61,9 +127,31 @@ public class DirectoryLuceneSetup extends BaseLuceneSetup {
             config.setCodec( codec );
 
             this.writer = new IndexWriter( directory, config );
+            if ( DirectoryReader.indexExists( directory ) ) {
+                final List<IndexCommit> commits = DirectoryReader.listCommits( directory );
+                loadCommitData( commits.get( commits.size() - 1 ).getUserData() );
+            }
+            this.searcherManager = new SearcherManager( writer, true, new SearcherFactory() );
         } catch ( final Exception ex ) {
             throw new RuntimeException( ex );
         }
+
+        if ( !commitPolicy.isManual() ) {
+            this.commitScheduler = Executors.newSingleThreadScheduledExecutor( new ThreadFactory() {
+                @Override
+                public Thread newThread( final Runnable r ) {
+                    final Thread thread = new Thread( r, "kieora-lucene-commit" );
+                    thread.setDaemon( true );
+                    return thread;
+                }
+            } );
+            if ( commitPolicy.isTimed() ) {
+                final long interval = commitPolicy.checkInterval();
+                commitScheduler.scheduleWithFixedDelay( commitTask, interval, interval, TimeUnit.MILLISECONDS );
+            }
+        } else {
+            this.commitScheduler = null;
+        }
     }
 
     @Override
@@ -71,10 +159,15 @@ public class DirectoryLuceneSetup extends BaseLuceneSetup {
         return writer;
     }
 
+    /**
+     * Hands out the shared searcher, reopened first only if the writer has changes it doesn't see yet;
+     * reopening is incremental, unchanged segments keep their readers. Callers must {@link #nrtRelease} it.
+     */
     @Override
     public IndexSearcher nrtSearcher() {
         try {
-            return new SearcherFactory().newSearcher( DirectoryReader.open( writer, true ) );
+            searcherManager.maybeRefreshBlocking();
+            return searcherManager.acquire();
         } catch ( IOException e ) {
             throw new RuntimeException( e );
         }
@@ -83,25 +176,169 @@ public class DirectoryLuceneSetup extends BaseLuceneSetup {
     @Override
     public void nrtRelease( final IndexSearcher searcher ) {
         try {
-            searcher.getIndexReader().close();
+            searcherManager.release( searcher );
         } catch ( IOException e ) {
             throw new RuntimeException( e );
         }
     }
 
+    /**
+     * Reads the terms and postings of the id field and of the given fields in every segment, and loads their
+     * DocValues, so the first queries after a restart don't pay the page faults. Blocks until done.
+     */
+    public WarmUpReport warmUp( final Collection<String> fields ) {
+        checkNotNull( "fields", fields );
+        final Set<String> warmFields = new LinkedHashSet<String>();
+        warmFields.add( "id" );
+        warmFields.addAll( fields );
+
+        final long start = System.currentTimeMillis();
+        final Map<String, Long> fieldMillis = new LinkedHashMap<String, Long>();
+        final IndexSearcher searcher = nrtSearcher();
+        long terms = 0;
+        long postings = 0;
+        try {
+            final List<AtomicReaderContext> leaves = searcher.getTopReaderContext().leaves();
+            for ( final String field : warmFields ) {
+                final long fieldStart = System.currentTimeMillis();
+                for ( final AtomicReaderContext leaf : leaves ) {
+                    final AtomicReader reader = leaf.reader();
+                    final Terms fieldTerms = reader.terms( field );
+                    if ( fieldTerms != null ) {
+                        final TermsEnum termsEnum = fieldTerms.iterator( null );
+                        DocsEnum docs = null;
+                        while ( termsEnum.next() != null ) {
+                            terms++;
+                            docs = termsEnum.docs( null, docs, 0 );
+                            while ( docs.nextDoc() != DocIdSetIterator.NO_MORE_DOCS ) {
+                                postings++;
+                            }
+                        }
+                    }
+                    final DocValues docValues = reader.docValues( field );
+                    if ( docValues != null ) {
+                        docValues.getSource();
+                    }
+                }
+                fieldMillis.put( field, System.currentTimeMillis() - fieldStart );
+            }
+            return new WarmUpReport( leaves.size(), terms, postings, System.currentTimeMillis() - start, fieldMillis );
+        } catch ( final IOException e ) {
+            throw new RuntimeException( e );
+        } finally {
+            nrtRelease( searcher );
+        }
+    }
+
+    /**
+     * Commits what's pending and pins that commit until the snapshot is released; indexing carries on meanwhile.
+     * Snapshots are held in memory only, they don't survive {@link #dispose()}.
+     */
+    public IndexSnapshot snapshot() {
+        commit();
+        final String id = "kieora-snapshot-" + snapshotIds.incrementAndGet();
+        try {
+            return new IndexSnapshot( this, id, snapshots.snapshot( id ) );
+        } catch ( final IOException e ) {
+            throw new RuntimeException( e );
+        }
+    }
+
+    void release( final IndexSnapshot snapshot ) {
+        try {
+            snapshots.release( snapshot.getId() );
+            writer.deleteUnusedFiles();
+        } catch ( final IOException e ) {
+            throw new RuntimeException( e );
+        }
+    }
+
+    public CommitPolicy getCommitPolicy() {
+        return commitPolicy;
+    }
+
+    public int getPendingOps() {
+        return pendingOps.get();
+    }
+
+    /**
+     * Checks the policy without locking; a due commit is handed to the commit thread, at most one at a time.
+     */
+    @Override
+    protected void updated( final int operations ) {
+        final long now = System.currentTimeMillis();
+        final int pending = pendingOps.addAndGet( operations );
+        if ( pending == operations ) {
+            firstPending = now;
+        }
+        lastUpdate = now;
+        if ( commitScheduler != null && commitPolicy.isDue( pending, firstPending, now, now ) && commitRequested.compareAndSet( false, true ) ) {
+            try {
+                commitScheduler.execute( commitTask );
+            } catch ( final RejectedExecutionException ex ) {
+                // disposing, which commits anyway
+            }
+        }
+    }
+
+    @Override
+    public synchronized void commit() {
+        final int committing = pendingOps.get();
+        super.commit();
+        committed( committing );
+    }
+
+    private synchronized void commitIfDue() {
+        final int committing = pendingOps.get();
+        if ( commitPolicy.isDue( committing, firstPending, lastUpdate, System.currentTimeMillis() ) ) {
+            try {
+                commitWriter();
+            } catch ( final Exception ex ) {
+                throw new RuntimeException( ex );
+            }
+            committed( committing );
+        }
+    }
+
+    /**
+     * Updates that raced the commit are still pending; their age counts from now, not from the committed ones.
+     */
+    private void committed( final int committing ) {
+        if ( pendingOps.addAndGet( -committing ) > 0 ) {
+            firstPending = System.currentTimeMillis();
+        }
+    }
+
     @Override
     public Analyzer getAnalyzer() {
         return analyzer;
     }
 
+    /**
+     * Lets a running background commit finish before the final commit and close.
+     */
     @Override
     public void dispose() {
-        try {
-            writer.close();
-            analyzer.close();
-            directory.close();
-        } catch ( IOException e ) {
-            throw new RuntimeException( e );
+        if ( commitScheduler != null ) {
+            commitScheduler.shutdown();
+            try {
+                if ( !commitScheduler.awaitTermination( DISPOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS ) ) {
+                    LOG.warn( "Index commit thread didn't stop within " + DISPOSE_TIMEOUT_SECONDS + " seconds" );
+                }
+            } catch ( final InterruptedException e ) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized ( this ) {
+            try {
+                searcherManager.close();
+                commitWriter();
+                writer.close();
+                analyzer.close();
+                directory.close();
+            } catch ( IOException e ) {
+                throw new RuntimeException( e );
+            }
         }
     }
 }
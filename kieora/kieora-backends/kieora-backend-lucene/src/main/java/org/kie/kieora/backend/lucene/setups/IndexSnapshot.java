@@ -0,0 +1,118 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.backend.lucene.setups;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.lucene.index.IndexCommit;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.IOContext;
+
+import static org.kie.commons.validation.Preconditions.*;
+
+/**
+ * A commit pinned by {@link DirectoryLuceneSetup#snapshot()}. Its files are never modified, so they can be copied
+ * while the writer goes on; they stay on disk until {@link #release()}.
+ */
+public class IndexSnapshot {
+
+    private final DirectoryLuceneSetup setup;
+    private final String               id;
+    private final IndexCommit          commit;
+
+    IndexSnapshot( final DirectoryLuceneSetup setup,
+                   final String id,
+                   final IndexCommit commit ) {
+        this.setup = setup;
+        this.id = id;
+        this.commit = commit;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public long getGeneration() {
+        return commit.getGeneration();
+    }
+
+    public Collection<String> getFileNames() {
+        try {
+            return commit.getFileNames();
+        } catch ( final IOException e ) {
+            throw new RuntimeException( e );
+        }
+    }
+
+    public Map<String, String> getUserData() {
+        try {
+            return commit.getUserData();
+        } catch ( final IOException e ) {
+            throw new RuntimeException( e );
+        }
+    }
+
+    /**
+     * Copies the snapshot's files, the segments file last so an interrupted copy is never mistaken for an index.
+     */
+    public void copyTo( final Directory target ) {
+        checkNotNull( "target", target );
+        final List<String> files = new ArrayList<String>( getFileNames() );
+        files.remove( commit.getSegmentsFileName() );
+        files.add( commit.getSegmentsFileName() );
+        try {
+            for ( final String file : files ) {
+                commit.getDirectory().copy( target, file, file, IOContext.DEFAULT );
+            }
+            target.sync( files );
+        } catch ( final IOException e ) {
+            throw new RuntimeException( e );
+        }
+    }
+
+    /**
+     * Restores the snapshot into an empty or missing directory; an {@link NIOLuceneSetup} or
+     * {@link MMapLuceneSetup} opened there starts from this commit, commit data included, with no reindex.
+     */
+    public void copyTo( final File target ) {
+        checkNotNull( "target", target );
+        final String[] existing = target.list();
+        checkCondition( "target must be empty", existing == null || existing.length == 0 );
+        try {
+            final Directory directory = FSDirectory.open( target );
+            try {
+                copyTo( directory );
+            } finally {
+                directory.close();
+            }
+        } catch ( final IOException e ) {
+            throw new RuntimeException( e );
+        }
+    }
+
+    public void release() {
+        setup.release( this );
+    }
+
+}
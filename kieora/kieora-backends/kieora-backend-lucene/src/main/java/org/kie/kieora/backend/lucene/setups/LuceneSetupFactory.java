@@ -0,0 +1,41 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.backend.lucene.setups;
+
+import java.util.Collection;
+
+import org.kie.kieora.backend.lucene.LuceneSetup;
+
+/**
+ * Creates and removes the per shard indexes of a {@link ShardedLuceneSetup}.
+ */
+public interface LuceneSetupFactory {
+
+    /**
+     * Shards that already have an index, opened when the sharded setup starts.
+     */
+    Collection<String> existingShards();
+
+    LuceneSetup newSetup( final String shard );
+
+    /**
+     * Removes the shard's storage; called once its setup is disposed.
+     */
+    void drop( final String shard );
+
+}
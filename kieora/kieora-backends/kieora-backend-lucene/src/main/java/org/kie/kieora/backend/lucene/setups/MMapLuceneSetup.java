@@ -18,6 +18,7 @@ package org.kie.kieora.backend.lucene.setups;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collection;
 
 import org.apache.lucene.store.MMapDirectory;
 
@@ -26,7 +27,35 @@ import org.apache.lucene.store.MMapDirectory;
  */
 public class MMapLuceneSetup extends DirectoryLuceneSetup {
 
+    private final WarmUpReport warmUpReport;
+
     public MMapLuceneSetup( final File file ) throws IOException {
         super( new MMapDirectory( file ) );
+        this.warmUpReport = null;
+    }
+
+    public MMapLuceneSetup( final File file,
+                            final CommitPolicy commitPolicy,
+                            final WriterSettings writerSettings ) throws IOException {
+        super( new MMapDirectory( file ), commitPolicy, writerSettings );
+        this.warmUpReport = null;
+    }
+
+    /**
+     * Warms the id field and the given fields up before returning, see {@link #warmUp(Collection)}.
+     */
+    public MMapLuceneSetup( final File file,
+                            final CommitPolicy commitPolicy,
+                            final WriterSettings writerSettings,
+                            final Collection<String> warmFields ) throws IOException {
+        super( new MMapDirectory( file ), commitPolicy, writerSettings );
+        this.warmUpReport = warmUp( warmFields );
+    }
+
+    /**
+     * The startup warm-up's report, null if the setup wasn't warmed up on creation.
+     */
+    public WarmUpReport getWarmUpReport() {
+        return warmUpReport;
     }
 }
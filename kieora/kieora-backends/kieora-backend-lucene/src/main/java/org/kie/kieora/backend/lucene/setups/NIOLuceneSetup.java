@@ -29,4 +29,10 @@ public class NIOLuceneSetup extends DirectoryLuceneSetup {
     public NIOLuceneSetup( final File file ) throws IOException {
         super( new NIOFSDirectory( file ) );
     }
+
+    public NIOLuceneSetup( final File file,
+                           final CommitPolicy commitPolicy,
+                           final WriterSettings writerSettings ) throws IOException {
+        super( new NIOFSDirectory( file ), commitPolicy, writerSettings );
+    }
 }
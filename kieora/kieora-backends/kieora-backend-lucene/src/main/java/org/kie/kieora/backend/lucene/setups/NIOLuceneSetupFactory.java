@@ -0,0 +1,108 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.backend.lucene.setups;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.kie.kieora.backend.lucene.LuceneSetup;
+
+import static org.kie.commons.validation.Preconditions.*;
+
+/**
+ * Keeps each shard in its own sub directory of the root, named after the URL encoded shard.
+ */
+public class NIOLuceneSetupFactory implements LuceneSetupFactory {
+
+    private static final String ENCODING = "UTF-8";
+
+    private final File           root;
+    private final CommitPolicy   commitPolicy;
+    private final WriterSettings writerSettings;
+
+    public NIOLuceneSetupFactory( final File root ) {
+        this( root, CommitPolicy.defaults(), WriterSettings.defaults() );
+    }
+
+    public NIOLuceneSetupFactory( final File root,
+                                  final CommitPolicy commitPolicy,
+                                  final WriterSettings writerSettings ) {
+        this.root = checkNotNull( "root", root );
+        this.commitPolicy = checkNotNull( "commitPolicy", commitPolicy );
+        this.writerSettings = checkNotNull( "writerSettings", writerSettings );
+    }
+
+    @Override
+    public Collection<String> existingShards() {
+        final List<String> result = new ArrayList<String>();
+        final File[] dirs = root.listFiles();
+        if ( dirs == null ) {
+            return result;
+        }
+        for ( final File dir : dirs ) {
+            if ( dir.isDirectory() ) {
+                try {
+                    result.add( URLDecoder.decode( dir.getName(), ENCODING ) );
+                } catch ( final UnsupportedEncodingException e ) {
+                    throw new RuntimeException( e );
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public LuceneSetup newSetup( final String shard ) {
+        try {
+            return new NIOLuceneSetup( dir( shard ), commitPolicy, writerSettings );
+        } catch ( final IOException e ) {
+            throw new RuntimeException( e );
+        }
+    }
+
+    @Override
+    public void drop( final String shard ) {
+        delete( dir( shard ) );
+    }
+
+    private File dir( final String shard ) {
+        try {
+            return new File( root, URLEncoder.encode( shard, ENCODING ) );
+        } catch ( final UnsupportedEncodingException e ) {
+            throw new RuntimeException( e );
+        }
+    }
+
+    private static void delete( final File file ) {
+        final File[] children = file.listFiles();
+        if ( children != null ) {
+            for ( final File child : children ) {
+                delete( child );
+            }
+        }
+        if ( file.exists() && !file.delete() ) {
+            throw new RuntimeException( "Can't delete '" + file + "'." );
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.backend.lucene.setups;
+
+import java.util.Collection;
+import java.util.Collections;
+
+import org.kie.kieora.backend.lucene.LuceneSetup;
+
+/**
+ *
+ */
+public class RAMLuceneSetupFactory implements LuceneSetupFactory {
+
+    @Override
+    public Collection<String> existingShards() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public LuceneSetup newSetup( final String shard ) {
+        return new RAMLuceneSetup();
+    }
+
+    @Override
+    public void drop( final String shard ) {
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.backend.lucene.setups;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.MultiReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.kie.kieora.backend.lucene.LuceneSetup;
+
+import static org.apache.lucene.util.Version.*;
+import static org.kie.commons.validation.Preconditions.*;
+
+/**
+ * Keeps one index per shard, chosen by the document's {@link #SHARD_FIELD}, so a shard can be dropped as a whole
+ * and each one merges on its own. Ids are only unique within a shard, as the same path has the same id on every
+ * branch: deletes reach every shard, so callers limit them to one with a {@link #SHARD_FIELD} clause. Searches run
+ * over a {@link MultiReader} of all of them, in parallel when an executor is given. Commit data lives in the
+ * {@link #DEFAULT_SHARD}, and only reaches it once the other shards are committed: data describing the indexed
+ * documents is never durable before they are.
+ */
+public class ShardedLuceneSetup implements LuceneSetup {
+
+    public static final String SHARD_FIELD   = "shard";
+    public static final String DEFAULT_SHARD = "default";
+
+    private final LuceneSetupFactory       factory;
+    private final ExecutorService          searchExecutor;
+    private final Analyzer                 analyzer = new StandardAnalyzer( LUCENE_40 );
+    private final Map<String, LuceneSetup> shards   = new ConcurrentHashMap<String, LuceneSetup>();
+
+    private final Map<IndexSearcher, Map<LuceneSetup, IndexSearcher>> leases            = new ConcurrentHashMap<IndexSearcher, Map<LuceneSetup, IndexSearcher>>();
+    private final Map<String, String>                                 pendingCommitData = new HashMap<String, String>();
+
+    public ShardedLuceneSetup( final LuceneSetupFactory factory ) {
+        this( factory, null );
+    }
+
+    /**
+     * @param searchExecutor shared by all searches to visit the shards in parallel; owned by the caller
+     */
+    public ShardedLuceneSetup( final LuceneSetupFactory factory,
+                               final ExecutorService searchExecutor ) {
+        this.factory = checkNotNull( "factory", factory );
+        this.searchExecutor = searchExecutor;
+        for ( final String shard : factory.existingShards() ) {
+            shard( shard );
+        }
+        shard( DEFAULT_SHARD );
+    }
+
+    public Set<String> getShards() {
+        return new HashSet<String>( shards.keySet() );
+    }
+
+    /**
+     * Disposes the shard's index and removes its storage; documents of the shard disappear at once.
+     */
+    public synchronized void dropShard( final String shard ) {
+        checkNotEmpty( "shard", shard );
+        checkCondition( "the default shard can't be dropped", !DEFAULT_SHARD.equals( shard ) );
+
+        final LuceneSetup setup = shards.remove( shard );
+        if ( setup != null ) {
+            setup.dispose();
+            factory.drop( shard );
+        }
+    }
+
+    @Override
+    public Analyzer getAnalyzer() {
+        return analyzer;
+    }
+
+    @Override
+    public void indexDocument( final String id,
+                               final Document doc ) {
+        final String shard = doc.get( SHARD_FIELD );
+        shard( shard != null ? shard : DEFAULT_SHARD ).indexDocument( id, doc );
+    }
+
+    @Override
+    public void deleteIfExists( final String... ids ) {
+        for ( final LuceneSetup setup : shards.values() ) {
+            setup.deleteIfExists( ids );
+        }
+    }
+
+    @Override
+    public void deleteByTerms( final Term... terms ) {
+        for ( final LuceneSetup setup : shards.values() ) {
+            setup.deleteByTerms( terms );
+        }
+    }
+
+    @Override
+    public void deleteByQueries( final Query... queries ) {
+        for ( final LuceneSetup setup : shards.values() ) {
+            setup.deleteByQueries( queries );
+        }
+    }
+
+    @Override
+    public void rename( final String source,
+                        final String target ) {
+        for ( final LuceneSetup setup : shards.values() ) {
+            setup.rename( source, target );
+        }
+    }
+
+    @Override
+    public void commit() {
+        final Map<String, String> committing = pendingCommitData();
+        for ( final Map.Entry<String, LuceneSetup> entry : shards.entrySet() ) {
+            if ( !DEFAULT_SHARD.equals( entry.getKey() ) ) {
+                entry.getValue().commit();
+            }
+        }
+        final LuceneSetup defaultShard = shard( DEFAULT_SHARD );
+        moveCommitData( committing, defaultShard );
+        defaultShard.commit();
+    }
+
+    @Override
+    public String getCommitData( final String key ) {
+        synchronized ( pendingCommitData ) {
+            if ( pendingCommitData.containsKey( key ) ) {
+                return pendingCommitData.get( key );
+            }
+        }
+        return shard( DEFAULT_SHARD ).getCommitData( key );
+    }
+
+    /**
+     * Held back until the next {@link #commit()}, as the default shard may commit on its own before the others.
+     */
+    @Override
+    public void setCommitData( final String key,
+                               final String value ) {
+        checkNotEmpty( "key", key );
+        synchronized ( pendingCommitData ) {
+            pendingCommitData.put( key, value );
+        }
+    }
+
+    @Override
+    public IndexSearcher nrtSearcher() {
+        final Map<LuceneSetup, IndexSearcher> acquired = new ConcurrentHashMap<LuceneSetup, IndexSearcher>();
+        final List<IndexReader> readers = new ArrayList<IndexReader>();
+        for ( final LuceneSetup setup : shards.values() ) {
+            final IndexSearcher searcher = setup.nrtSearcher();
+            acquired.put( setup, searcher );
+            readers.add( searcher.getIndexReader() );
+        }
+
+        final MultiReader reader = new MultiReader( readers.toArray( new IndexReader[ readers.size() ] ), false );
+        final IndexSearcher searcher = searchExecutor != null ? new IndexSearcher( reader, searchExecutor ) : new IndexSearcher( reader );
+        leases.put( searcher, acquired );
+        return searcher;
+    }
+
+    @Override
+    public void nrtRelease( final IndexSearcher searcher ) {
+        final Map<LuceneSetup, IndexSearcher> acquired = leases.remove( searcher );
+        if ( acquired == null ) {
+            return;
+        }
+        try {
+            searcher.getIndexReader().close();
+        } catch ( final IOException e ) {
+            throw new RuntimeException( e );
+        } finally {
+            for ( final Map.Entry<LuceneSetup, IndexSearcher> entry : acquired.entrySet() ) {
+                entry.getKey().nrtRelease( entry.getValue() );
+            }
+        }
+    }
+
+    @Override
+    public synchronized void dispose() {
+        final Map<String, String> committing = pendingCommitData();
+        final LuceneSetup defaultShard = shards.remove( DEFAULT_SHARD );
+        for ( final LuceneSetup setup : shards.values() ) {
+            setup.dispose();
+        }
+        shards.clear();
+        if ( defaultShard != null ) {
+            moveCommitData( committing, defaultShard );
+            defaultShard.dispose();
+        }
+        analyzer.close();
+    }
+
+    private Map<String, String> pendingCommitData() {
+        synchronized ( pendingCommitData ) {
+            return new HashMap<String, String>( pendingCommitData );
+        }
+    }
+
+    /**
+     * Hands the data taken before the other shards committed to the default shard; values set since stay pending.
+     */
+    private void moveCommitData( final Map<String, String> committing,
+                                 final LuceneSetup defaultShard ) {
+        synchronized ( pendingCommitData ) {
+            for ( final Map.Entry<String, String> entry : committing.entrySet() ) {
+                defaultShard.setCommitData( entry.getKey(), entry.getValue() );
+                final String pending = pendingCommitData.get( entry.getKey() );
+                if ( pending == null ? entry.getValue() == null : pending.equals( entry.getValue() ) ) {
+                    pendingCommitData.remove( entry.getKey() );
+                }
+            }
+        }
+    }
+
+    private LuceneSetup shard( final String shard ) {
+        final LuceneSetup setup = shards.get( shard );
+        if ( setup != null ) {
+            return setup;
+        }
+        synchronized ( this ) {
+            LuceneSetup created = shards.get( shard );
+            if ( created == null ) {
+                created = factory.newSetup( shard );
+                shards.put( shard, created );
+            }
+            return created;
+        }
+    }
+}
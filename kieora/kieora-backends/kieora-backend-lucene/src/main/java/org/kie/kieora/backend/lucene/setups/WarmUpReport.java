@@ -0,0 +1,70 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.backend.lucene.setups;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * What {@link DirectoryLuceneSetup#warmUp(java.util.Collection)} touched and how long it took.
+ */
+public class WarmUpReport {
+
+    private final int               segments;
+    private final long              terms;
+    private final long              postings;
+    private final long              elapsedMillis;
+    private final Map<String, Long> fieldMillis;
+
+    WarmUpReport( final int segments,
+                  final long terms,
+                  final long postings,
+                  final long elapsedMillis,
+                  final Map<String, Long> fieldMillis ) {
+        this.segments = segments;
+        this.terms = terms;
+        this.postings = postings;
+        this.elapsedMillis = elapsedMillis;
+        this.fieldMillis = Collections.unmodifiableMap( new LinkedHashMap<String, Long>( fieldMillis ) );
+    }
+
+    public int getSegments() {
+        return segments;
+    }
+
+    public long getTerms() {
+        return terms;
+    }
+
+    public long getPostings() {
+        return postings;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * Time spent per field, in warm-up order.
+     */
+    public Map<String, Long> getFieldMillis() {
+        return fieldMillis;
+    }
+
+}
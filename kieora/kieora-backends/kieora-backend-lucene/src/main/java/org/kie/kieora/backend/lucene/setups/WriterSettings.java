@@ -0,0 +1,89 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.backend.lucene.setups;
+
+import org.apache.lucene.index.ConcurrentMergeScheduler;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.TieredMergePolicy;
+
+import static org.kie.commons.validation.Preconditions.*;
+
+/**
+ * Index writer buffering and merging settings. Merges run on background threads, and more merges may queue than
+ * run at once before the writer throttles updates, so steady indexing isn't blocked behind a large merge.
+ */
+public class WriterSettings {
+
+    private final double ramBufferSizeMB;
+    private final double segmentsPerTier;
+    private final double maxMergedSegmentMB;
+    private final int    mergeThreads;
+
+    public WriterSettings( final double ramBufferSizeMB,
+                           final double segmentsPerTier,
+                           final double maxMergedSegmentMB,
+                           final int mergeThreads ) {
+        checkCondition( "ramBufferSizeMB must be positive", ramBufferSizeMB > 0 );
+        checkCondition( "segmentsPerTier must be at least 2", segmentsPerTier >= 2 );
+        checkCondition( "maxMergedSegmentMB must be positive", maxMergedSegmentMB > 0 );
+        checkCondition( "mergeThreads must be positive", mergeThreads > 0 );
+        this.ramBufferSizeMB = ramBufferSizeMB;
+        this.segmentsPerTier = segmentsPerTier;
+        this.maxMergedSegmentMB = maxMergedSegmentMB;
+        this.mergeThreads = mergeThreads;
+    }
+
+    /**
+     * 32MB RAM buffer, flushed by size only; 10 segments per tier up to 2GB segments; one merge thread.
+     */
+    public static WriterSettings defaults() {
+        return new WriterSettings( 32, 10, 2048, 1 );
+    }
+
+    public double getRamBufferSizeMB() {
+        return ramBufferSizeMB;
+    }
+
+    public double getSegmentsPerTier() {
+        return segmentsPerTier;
+    }
+
+    public double getMaxMergedSegmentMB() {
+        return maxMergedSegmentMB;
+    }
+
+    public int getMergeThreads() {
+        return mergeThreads;
+    }
+
+    public void apply( final IndexWriterConfig config ) {
+        config.setRAMBufferSizeMB( ramBufferSizeMB );
+        config.setMaxBufferedDocs( IndexWriterConfig.DISABLE_AUTO_FLUSH );
+
+        final TieredMergePolicy mergePolicy = new TieredMergePolicy();
+        mergePolicy.setSegmentsPerTier( segmentsPerTier );
+        mergePolicy.setMaxMergeAtOnce( (int) Math.max( 2, segmentsPerTier ) );
+        mergePolicy.setMaxMergedSegmentMB( maxMergedSegmentMB );
+        config.setMergePolicy( mergePolicy );
+
+        final ConcurrentMergeScheduler mergeScheduler = new ConcurrentMergeScheduler();
+        mergeScheduler.setMaxMergeCount( mergeThreads + 4 );
+        mergeScheduler.setMaxThreadCount( mergeThreads );
+        config.setMergeScheduler( mergeScheduler );
+    }
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.backend.lucene.suggest;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.spell.TermFreqIterator;
+import org.apache.lucene.search.suggest.Lookup;
+import org.apache.lucene.search.suggest.fst.WFSTCompletionLookup;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.kie.kieora.backend.lucene.LuceneSetup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.kie.commons.validation.Preconditions.*;
+
+/**
+ * Weighted FST over the stored keys, their file names and the values of the given properties, weighted by how
+ * many objects carry them. Built on a background thread on first use and rebuilt there when the index changed, at
+ * most once per <code>maxStaleMillis</code>; suggestions never wait for a build, the previous FST keeps answering
+ * until the new one is published.
+ */
+public class LuceneSuggester {
+
+    private static final Logger LOG = LoggerFactory.getLogger( LuceneSuggester.class );
+
+    private static final String KEY                     = "key";
+    private static final long   DISPOSE_TIMEOUT_SECONDS = 60;
+
+    private final LuceneSetup     lucene;
+    private final Set<String>     fields;
+    private final long            maxStaleMillis;
+    private final ExecutorService builder;
+    private final AtomicBoolean   building = new AtomicBoolean();
+
+    private final Runnable buildTask = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                refresh( false );
+            } catch ( final Exception ex ) {
+                LOG.error( "Suggestion rebuild failed, the previous suggestions stay in use", ex );
+            } finally {
+                building.set( false );
+            }
+        }
+    };
+
+    private volatile Built built = null;
+
+    public LuceneSuggester( final LuceneSetup lucene,
+                            final Collection<String> properties,
+                            final long maxStaleMillis ) {
+        this.lucene = checkNotNull( "lucene", lucene );
+        checkNotNull( "properties", properties );
+        checkCondition( "maxStaleMillis can't be negative", maxStaleMillis >= 0 );
+        this.fields = new LinkedHashSet<String>();
+        this.fields.add( KEY );
+        this.fields.addAll( properties );
+        this.maxStaleMillis = maxStaleMillis;
+        this.builder = Executors.newSingleThreadExecutor( new ThreadFactory() {
+            @Override
+            public Thread newThread( final Runnable r ) {
+                final Thread thread = new Thread( r, "kieora-lucene-suggest" );
+                thread.setDaemon( true );
+                return thread;
+            }
+        } );
+    }
+
+    /**
+     * Empty until the first FST is built.
+     */
+    public List<String> suggest( final String prefix,
+                                 final int limit ) {
+        checkNotNull( "prefix", prefix );
+        checkCondition( "limit must be positive", limit > 0 );
+
+        final Built current = built;
+        if ( current == null || System.currentTimeMillis() - current.builtAt >= maxStaleMillis ) {
+            requestRefresh();
+        }
+        final List<String> result = new ArrayList<String>();
+        if ( current == null || current.lookup == null ) {
+            return result;
+        }
+        for ( final Lookup.LookupResult suggestion : current.lookup.lookup( prefix, false, limit ) ) {
+            result.add( suggestion.key.toString() );
+        }
+        return result;
+    }
+
+    /**
+     * Rebuilds now on the caller's thread, whatever the index state.
+     */
+    public void rebuild() {
+        refresh( true );
+    }
+
+    /**
+     * Distinct entries in the current FST.
+     */
+    public int size() {
+        final Built current = built;
+        return current == null ? 0 : current.entries;
+    }
+
+    /**
+     * Lets a running build finish; later suggestions keep the last FST.
+     */
+    public void dispose() {
+        builder.shutdown();
+        try {
+            if ( !builder.awaitTermination( DISPOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS ) ) {
+                LOG.warn( "Suggestion build thread didn't stop within " + DISPOSE_TIMEOUT_SECONDS + " seconds" );
+            }
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Starts a refresh in the background unless one is already under way.
+     */
+    private void requestRefresh() {
+        if ( !building.compareAndSet( false, true ) ) {
+            return;
+        }
+        try {
+            builder.execute( buildTask );
+        } catch ( final RejectedExecutionException ex ) {
+            building.set( false );
+        }
+    }
+
+    private synchronized void refresh( final boolean force ) {
+        final IndexSearcher searcher = lucene.nrtSearcher();
+        try {
+            final IndexReader reader = searcher.getIndexReader();
+            final List<Object> version = version( reader );
+            final Built current = built;
+            if ( !force && current != null &&
+                    ( version.equals( current.version ) || System.currentTimeMillis() - current.builtAt < maxStaleMillis ) ) {
+                return;
+            }
+
+            final Map<String, Long> weights = weights( reader );
+            Lookup lookup = null;
+            if ( !weights.isEmpty() ) {
+                final WFSTCompletionLookup wfst = new WFSTCompletionLookup( true );
+                wfst.build( new WeightIterator( weights ) );
+                lookup = wfst;
+            }
+            built = new Built( lookup, version, System.currentTimeMillis(), weights.size() );
+        } catch ( final IOException e ) {
+            throw new RuntimeException( e );
+        } finally {
+            lucene.nrtRelease( searcher );
+        }
+    }
+
+    private Map<String, Long> weights( final IndexReader reader ) throws IOException {
+        final Map<String, Long> weights = new TreeMap<String, Long>();
+        for ( final AtomicReaderContext leaf : reader.leaves() ) {
+            final AtomicReader segment = leaf.reader();
+            final Bits liveDocs = segment.getLiveDocs();
+            for ( int doc = 0; doc < segment.maxDoc(); doc++ ) {
+                if ( liveDocs != null && !liveDocs.get( doc ) ) {
+                    continue;
+                }
+                final Document document = segment.document( doc, fields );
+                for ( final String field : fields ) {
+                    for ( final String value : document.getValues( field ) ) {
+                        increment( weights, value );
+                        if ( KEY.equals( field ) && !name( value ).equals( value ) ) {
+                            increment( weights, name( value ) );
+                        }
+                    }
+                }
+            }
+        }
+        return weights;
+    }
+
+    /**
+     * Identifies what the FST was built from: segments and their deletions.
+     */
+    private static List<Object> version( final IndexReader reader ) {
+        final List<Object> version = new ArrayList<Object>();
+        for ( final AtomicReaderContext leaf : reader.leaves() ) {
+            version.add( leaf.reader().getCombinedCoreAndDeletesKey() );
+        }
+        return version;
+    }
+
+    private static String name( final String key ) {
+        final int separator = key.lastIndexOf( '/', key.length() - 2 );
+        final String name = separator < 0 ? key : key.substring( separator + 1 );
+        return name.endsWith( "/" ) ? name.substring( 0, name.length() - 1 ) : name;
+    }
+
+    private static void increment( final Map<String, Long> weights,
+                                   final String value ) {
+        if ( value == null || value.isEmpty() ) {
+            return;
+        }
+        final Long weight = weights.get( value );
+        weights.put( value, weight == null ? 1L : weight + 1 );
+    }
+
+    /**
+     * An FST with what it was built from, published as a whole so readers never see a half updated one.
+     */
+    private static class Built {
+
+        private final Lookup       lookup;
+        private final List<Object> version;
+        private final long         builtAt;
+        private final int          entries;
+
+        Built( final Lookup lookup,
+               final List<Object> version,
+               final long builtAt,
+               final int entries ) {
+            this.lookup = lookup;
+            this.version = version;
+            this.builtAt = builtAt;
+            this.entries = entries;
+        }
+    }
+
+    private static class WeightIterator implements TermFreqIterator {
+
+        private final Iterator<Map.Entry<String, Long>> entries;
+        private       long                              weight;
+
+        WeightIterator( final Map<String, Long> weights ) {
+            this.entries = weights.entrySet().iterator();
+        }
+
+        @Override
+        public long weight() {
+            return weight;
+        }
+
+        @Override
+        public BytesRef next() {
+            if ( !entries.hasNext() ) {
+                return null;
+            }
+            final Map.Entry<String, Long> entry = entries.next();
+            weight = entry.getValue();
+            return new BytesRef( entry.getKey() );
+        }
+
+        @Override
+        public Comparator<BytesRef> getComparator() {
+            return null;
+        }
+    }
+
+}
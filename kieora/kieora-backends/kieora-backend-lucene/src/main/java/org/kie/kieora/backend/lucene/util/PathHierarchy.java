@@ -0,0 +1,73 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.backend.lucene.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits object keys, absolute '/' separated paths, into the ancestors, parent and depth indexed with every
+ * document, so subtree and listing queries are single term lookups.
+ */
+public final class PathHierarchy {
+
+    public static final String ANCESTOR = "key.ancestor";
+    public static final String PARENT   = "key.parent";
+    public static final String DEPTH    = "key.depth";
+
+    private PathHierarchy() {
+
+    }
+
+    /**
+     * Drops trailing separators, "/" stays as is.
+     */
+    public static String normalize( final String path ) {
+        int end = path.length();
+        while ( end > 1 && path.charAt( end - 1 ) == '/' ) {
+            end--;
+        }
+        return path.substring( 0, end );
+    }
+
+    /**
+     * Every directory above the path, outermost first; "/a/b/c" gives "/", "/a" and "/a/b".
+     */
+    public static List<String> ancestors( final String key ) {
+        final String path = normalize( key );
+        final List<String> result = new ArrayList<String>();
+        if ( !path.startsWith( "/" ) || path.length() == 1 ) {
+            return result;
+        }
+        result.add( "/" );
+        for ( int i = path.indexOf( '/', 1 ); i != -1; i = path.indexOf( '/', i + 1 ) ) {
+            result.add( path.substring( 0, i ) );
+        }
+        return result;
+    }
+
+    public static String parent( final String key ) {
+        final List<String> ancestors = ancestors( key );
+        return ancestors.isEmpty() ? null : ancestors.get( ancestors.size() - 1 );
+    }
+
+    public static int depth( final String key ) {
+        return ancestors( key ).size();
+    }
+
+}
@@ -0,0 +1,447 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.backend.lucene.values;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.lucene.store.DataInput;
+import org.apache.lucene.store.DataOutput;
+
+import static org.kie.kieora.backend.lucene.values.ValueCodecs.*;
+
+/**
+ * Codecs for the JDK types properties usually hold. Tags are part of the stored format, never renumber them.
+ * Collections and maps decode to their insertion ordered counterparts.
+ */
+final class BuiltInValueCodecs {
+
+    static final int STRING    = 1;
+    static final int BOOLEAN   = 2;
+    static final int INTEGER   = 3;
+    static final int LONG      = 4;
+    static final int SHORT     = 5;
+    static final int BYTE      = 6;
+    static final int CHARACTER = 7;
+    static final int DOUBLE    = 8;
+    static final int FLOAT     = 9;
+    static final int DATE      = 10;
+    static final int ENUM      = 11;
+    static final int SET       = 12;
+    static final int LIST      = 13;
+    static final int MAP       = 14;
+    static final int BYTES     = 15;
+
+    private BuiltInValueCodecs() {
+    }
+
+    /**
+     * Sets before other collections, the first codec whose type fits wins.
+     */
+    static List<ValueCodec<?>> all() {
+        return Arrays.<ValueCodec<?>>asList( new StringCodec(), new BooleanCodec(), new IntegerCodec(), new LongCodec(),
+                                             new ShortCodec(), new ByteCodec(), new CharacterCodec(), new DoubleCodec(),
+                                             new FloatCodec(), new DateCodec(), new EnumCodec(), new SetCodec(),
+                                             new ListCodec(), new MapCodec(), new BytesCodec() );
+    }
+
+    private abstract static class BaseCodec<T> implements ValueCodec<T> {
+
+        private final int      tag;
+        private final Class<T> type;
+
+        BaseCodec( final int tag,
+                   final Class<T> type ) {
+            this.tag = tag;
+            this.type = type;
+        }
+
+        @Override
+        public int getTag() {
+            return tag;
+        }
+
+        @Override
+        public Class<T> getType() {
+            return type;
+        }
+    }
+
+    static class StringCodec extends BaseCodec<String> {
+
+        StringCodec() {
+            super( STRING, String.class );
+        }
+
+        @Override
+        public void write( final ValueCodecs codecs,
+                           final String value,
+                           final DataOutput out ) throws IOException {
+            out.writeString( value );
+        }
+
+        @Override
+        public String read( final ValueCodecs codecs,
+                            final DataInput in ) throws IOException {
+            return in.readString();
+        }
+    }
+
+    static class BooleanCodec extends BaseCodec<Boolean> {
+
+        BooleanCodec() {
+            super( BOOLEAN, Boolean.class );
+        }
+
+        @Override
+        public void write( final ValueCodecs codecs,
+                           final Boolean value,
+                           final DataOutput out ) throws IOException {
+            out.writeByte( (byte) ( value ? 1 : 0 ) );
+        }
+
+        @Override
+        public Boolean read( final ValueCodecs codecs,
+                             final DataInput in ) throws IOException {
+            return in.readByte() != 0;
+        }
+    }
+
+    static class IntegerCodec extends BaseCodec<Integer> {
+
+        IntegerCodec() {
+            super( INTEGER, Integer.class );
+        }
+
+        @Override
+        public void write( final ValueCodecs codecs,
+                           final Integer value,
+                           final DataOutput out ) throws IOException {
+            writeZLong( value, out );
+        }
+
+        @Override
+        public Integer read( final ValueCodecs codecs,
+                             final DataInput in ) throws IOException {
+            return (int) readZLong( in );
+        }
+    }
+
+    static class LongCodec extends BaseCodec<Long> {
+
+        LongCodec() {
+            super( LONG, Long.class );
+        }
+
+        @Override
+        public void write( final ValueCodecs codecs,
+                           final Long value,
+                           final DataOutput out ) throws IOException {
+            writeZLong( value, out );
+        }
+
+        @Override
+        public Long read( final ValueCodecs codecs,
+                          final DataInput in ) throws IOException {
+            return readZLong( in );
+        }
+    }
+
+    static class ShortCodec extends BaseCodec<Short> {
+
+        ShortCodec() {
+            super( SHORT, Short.class );
+        }
+
+        @Override
+        public void write( final ValueCodecs codecs,
+                           final Short value,
+                           final DataOutput out ) throws IOException {
+            writeZLong( value, out );
+        }
+
+        @Override
+        public Short read( final ValueCodecs codecs,
+                           final DataInput in ) throws IOException {
+            return (short) readZLong( in );
+        }
+    }
+
+    static class ByteCodec extends BaseCodec<Byte> {
+
+        ByteCodec() {
+            super( BYTE, Byte.class );
+        }
+
+        @Override
+        public void write( final ValueCodecs codecs,
+                           final Byte value,
+                           final DataOutput out ) throws IOException {
+            out.writeByte( value );
+        }
+
+        @Override
+        public Byte read( final ValueCodecs codecs,
+                          final DataInput in ) throws IOException {
+            return in.readByte();
+        }
+    }
+
+    static class CharacterCodec extends BaseCodec<Character> {
+
+        CharacterCodec() {
+            super( CHARACTER, Character.class );
+        }
+
+        @Override
+        public void write( final ValueCodecs codecs,
+                           final Character value,
+                           final DataOutput out ) throws IOException {
+            out.writeVInt( value );
+        }
+
+        @Override
+        public Character read( final ValueCodecs codecs,
+                               final DataInput in ) throws IOException {
+            return (char) in.readVInt();
+        }
+    }
+
+    static class DoubleCodec extends BaseCodec<Double> {
+
+        DoubleCodec() {
+            super( DOUBLE, Double.class );
+        }
+
+        @Override
+        public void write( final ValueCodecs codecs,
+                           final Double value,
+                           final DataOutput out ) throws IOException {
+            out.writeLong( Double.doubleToLongBits( value ) );
+        }
+
+        @Override
+        public Double read( final ValueCodecs codecs,
+                            final DataInput in ) throws IOException {
+            return Double.longBitsToDouble( in.readLong() );
+        }
+    }
+
+    static class FloatCodec extends BaseCodec<Float> {
+
+        FloatCodec() {
+            super( FLOAT, Float.class );
+        }
+
+        @Override
+        public void write( final ValueCodecs codecs,
+                           final Float value,
+                           final DataOutput out ) throws IOException {
+            out.writeInt( Float.floatToIntBits( value ) );
+        }
+
+        @Override
+        public Float read( final ValueCodecs codecs,
+                           final DataInput in ) throws IOException {
+            return Float.intBitsToFloat( in.readInt() );
+        }
+    }
+
+    static class DateCodec extends BaseCodec<Date> {
+
+        DateCodec() {
+            super( DATE, Date.class );
+        }
+
+        @Override
+        public void write( final ValueCodecs codecs,
+                           final Date value,
+                           final DataOutput out ) throws IOException {
+            writeZLong( value.getTime(), out );
+        }
+
+        @Override
+        public Date read( final ValueCodecs codecs,
+                          final DataInput in ) throws IOException {
+            return new Date( readZLong( in ) );
+        }
+    }
+
+    /**
+     * Stores class and constant name; if the enum class isn't visible when reading, the constant name is returned.
+     */
+    static class EnumCodec extends BaseCodec<Object> {
+
+        @SuppressWarnings("unchecked")
+        EnumCodec() {
+            super( ENUM, (Class) Enum.class );
+        }
+
+        @Override
+        public void write( final ValueCodecs codecs,
+                           final Object value,
+                           final DataOutput out ) throws IOException {
+            out.writeString( ( (Enum<?>) value ).getDeclaringClass().getName() );
+            out.writeString( ( (Enum<?>) value ).name() );
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object read( final ValueCodecs codecs,
+                            final DataInput in ) throws IOException {
+            final String type = in.readString();
+            final String name = in.readString();
+            try {
+                return Enum.valueOf( (Class<Enum>) Class.forName( type, false, loader() ), name );
+            } catch ( final ClassNotFoundException e ) {
+                return name;
+            }
+        }
+
+        private static ClassLoader loader() {
+            final ClassLoader context = Thread.currentThread().getContextClassLoader();
+            return context != null ? context : BuiltInValueCodecs.class.getClassLoader();
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    static class SetCodec extends BaseCodec<Set> {
+
+        SetCodec() {
+            super( SET, Set.class );
+        }
+
+        @Override
+        public void write( final ValueCodecs codecs,
+                           final Set value,
+                           final DataOutput out ) throws IOException {
+            writeElements( codecs, value, out );
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Set read( final ValueCodecs codecs,
+                         final DataInput in ) throws IOException {
+            final int size = in.readVInt();
+            final Set<Object> result = new LinkedHashSet<Object>( size * 2 );
+            for ( int i = 0; i < size; i++ ) {
+                result.add( codecs.read( in ) );
+            }
+            return result;
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    static class ListCodec extends BaseCodec<Collection> {
+
+        ListCodec() {
+            super( LIST, Collection.class );
+        }
+
+        @Override
+        public void write( final ValueCodecs codecs,
+                           final Collection value,
+                           final DataOutput out ) throws IOException {
+            writeElements( codecs, value, out );
+        }
+
+        @Override
+        public Collection read( final ValueCodecs codecs,
+                                final DataInput in ) throws IOException {
+            final int size = in.readVInt();
+            final List<Object> result = new ArrayList<Object>( size );
+            for ( int i = 0; i < size; i++ ) {
+                result.add( codecs.read( in ) );
+            }
+            return result;
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    static class MapCodec extends BaseCodec<Map> {
+
+        MapCodec() {
+            super( MAP, Map.class );
+        }
+
+        @Override
+        public void write( final ValueCodecs codecs,
+                           final Map value,
+                           final DataOutput out ) throws IOException {
+            out.writeVInt( value.size() );
+            for ( final Object o : value.entrySet() ) {
+                final Map.Entry entry = (Map.Entry) o;
+                codecs.write( entry.getKey(), out );
+                codecs.write( entry.getValue(), out );
+            }
+        }
+
+        @Override
+        public Map read( final ValueCodecs codecs,
+                         final DataInput in ) throws IOException {
+            final int size = in.readVInt();
+            final Map<Object, Object> result = new LinkedHashMap<Object, Object>( size * 2 );
+            for ( int i = 0; i < size; i++ ) {
+                final Object key = codecs.read( in );
+                result.put( key, codecs.read( in ) );
+            }
+            return result;
+        }
+    }
+
+    static class BytesCodec extends BaseCodec<byte[]> {
+
+        BytesCodec() {
+            super( BYTES, byte[].class );
+        }
+
+        @Override
+        public void write( final ValueCodecs codecs,
+                           final byte[] value,
+                           final DataOutput out ) throws IOException {
+            out.writeVInt( value.length );
+            out.writeBytes( value, value.length );
+        }
+
+        @Override
+        public byte[] read( final ValueCodecs codecs,
+                            final DataInput in ) throws IOException {
+            final byte[] result = new byte[ in.readVInt() ];
+            in.readBytes( result, 0, result.length );
+            return result;
+        }
+    }
+
+    private static void writeElements( final ValueCodecs codecs,
+                                       final Collection<?> value,
+                                       final DataOutput out ) throws IOException {
+        out.writeVInt( value.size() );
+        for ( final Object element : value ) {
+            codecs.write( element, out );
+        }
+    }
+
+}
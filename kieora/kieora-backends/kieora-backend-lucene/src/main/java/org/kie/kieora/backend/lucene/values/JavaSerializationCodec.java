@@ -0,0 +1,66 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.backend.lucene.values;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+import org.apache.lucene.store.DataInput;
+import org.apache.lucene.store.DataOutput;
+
+import static org.kie.kieora.backend.lucene.util.Serializer.*;
+
+/**
+ * Last resort for values no other codec takes; large and slow, and only registered when asked for.
+ */
+final class JavaSerializationCodec implements ValueCodec<Serializable> {
+
+    static final int TAG = 31;
+
+    @Override
+    public int getTag() {
+        return TAG;
+    }
+
+    @Override
+    public Class<Serializable> getType() {
+        return Serializable.class;
+    }
+
+    @Override
+    public void write( final ValueCodecs codecs,
+                       final Serializable value,
+                       final DataOutput out ) throws IOException {
+        final byte[] bytes = toByteArray( value );
+        out.writeVInt( bytes.length );
+        out.writeBytes( bytes, bytes.length );
+    }
+
+    @Override
+    public Serializable read( final ValueCodecs codecs,
+                              final DataInput in ) throws IOException {
+        final byte[] bytes = new byte[ in.readVInt() ];
+        in.readBytes( bytes, 0, bytes.length );
+        try {
+            return (Serializable) fromByteArray( bytes );
+        } catch ( final ClassNotFoundException e ) {
+            throw new IOException( e );
+        }
+    }
+
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.backend.lucene.values;
+
+import java.io.IOException;
+
+import org.apache.lucene.store.DataInput;
+import org.apache.lucene.store.DataOutput;
+
+/**
+ * Binary encoding of one value type in a stored field. Implementations listed in
+ * <code>META-INF/services/org.kie.kieora.backend.lucene.values.ValueCodec</code> are picked up by
+ * {@link ValueCodecs#defaults()}; they need a public no argument constructor.
+ */
+public interface ValueCodec<T> {
+
+    /**
+     * Written in front of every encoded value, so it must never change once data was stored with it.
+     * Tags below {@link ValueCodecs#FIRST_CUSTOM_TAG} are reserved for the built in codecs.
+     */
+    int getTag();
+
+    Class<T> getType();
+
+    /**
+     * @param codecs for nested values, written with {@link ValueCodecs#write(Object, DataOutput)}
+     */
+    void write( final ValueCodecs codecs,
+                final T value,
+                final DataOutput out ) throws IOException;
+
+    T read( final ValueCodecs codecs,
+            final DataInput in ) throws IOException;
+
+}
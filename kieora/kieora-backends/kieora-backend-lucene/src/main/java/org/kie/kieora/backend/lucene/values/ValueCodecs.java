@@ -0,0 +1,201 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.backend.lucene.values;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.lucene.store.ByteArrayDataInput;
+import org.apache.lucene.store.DataInput;
+import org.apache.lucene.store.DataOutput;
+import org.apache.lucene.store.OutputStreamDataOutput;
+import org.apache.lucene.util.BytesRef;
+
+import static org.kie.commons.validation.Preconditions.*;
+
+/**
+ * Encodes stored field values as a one byte codec tag followed by the codec's own compact encoding. Custom codecs
+ * are consulted before the built in ones, Java serialization is only tried last and only when enabled.
+ */
+public final class ValueCodecs {
+
+    public static final int FIRST_CUSTOM_TAG = 32;
+
+    private static final int NULL    = 0;
+    private static final int MAX_TAG = 255;
+
+    private static ValueCodecs defaults = null;
+
+    private final ValueCodec<?>[]                      byTag   = new ValueCodec<?>[ MAX_TAG + 1 ];
+    private final List<ValueCodec<?>>                  ordered = new ArrayList<ValueCodec<?>>();
+    private final ConcurrentMap<Class<?>, ValueCodec<?>> byClass = new ConcurrentHashMap<Class<?>, ValueCodec<?>>();
+
+    /**
+     * Built in codecs and those registered through {@link java.util.ServiceLoader}, without the Java serialization
+     * fallback; the service lookup happens once.
+     */
+    public static synchronized ValueCodecs defaults() {
+        if ( defaults == null ) {
+            final List<ValueCodec<?>> services = new ArrayList<ValueCodec<?>>();
+            for ( final ValueCodec<?> codec : ServiceLoader.load( ValueCodec.class ) ) {
+                services.add( codec );
+            }
+            defaults = new ValueCodecs( false, services );
+        }
+        return defaults;
+    }
+
+    public ValueCodecs( final boolean javaSerialization,
+                        final ValueCodec<?>... codecs ) {
+        this( javaSerialization, Arrays.asList( codecs ) );
+    }
+
+    public ValueCodecs( final boolean javaSerialization,
+                        final Iterable<? extends ValueCodec<?>> codecs ) {
+        checkNotNull( "codecs", codecs );
+        for ( final ValueCodec<?> codec : codecs ) {
+            checkCondition( "tag " + codec.getTag() + " of " + codec.getClass().getName() + " outside " + FIRST_CUSTOM_TAG + ".." + MAX_TAG,
+                            codec.getTag() >= FIRST_CUSTOM_TAG && codec.getTag() <= MAX_TAG );
+            register( codec );
+        }
+        for ( final ValueCodec<?> codec : BuiltInValueCodecs.all() ) {
+            register( codec );
+        }
+        if ( javaSerialization ) {
+            register( new JavaSerializationCodec() );
+        }
+    }
+
+    public List<ValueCodec<?>> getCodecs() {
+        return Collections.unmodifiableList( ordered );
+    }
+
+    public boolean canEncode( final Object value ) {
+        return value == null || codecFor( value.getClass() ) != null;
+    }
+
+    /**
+     * @throws IllegalArgumentException if no codec takes the value
+     */
+    public byte[] encode( final Object value ) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            write( value, new OutputStreamDataOutput( bytes ) );
+        } catch ( final IOException e ) {
+            throw new RuntimeException( e );
+        }
+        return bytes.toByteArray();
+    }
+
+    public Object decode( final byte[] bytes ) {
+        checkNotNull( "bytes", bytes );
+        return decode( new BytesRef( bytes ) );
+    }
+
+    public Object decode( final BytesRef bytes ) {
+        checkNotNull( "bytes", bytes );
+        try {
+            return read( new ByteArrayDataInput( bytes.bytes, bytes.offset, bytes.length ) );
+        } catch ( final IOException e ) {
+            throw new RuntimeException( e );
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public void write( final Object value,
+                       final DataOutput out ) throws IOException {
+        if ( value == null ) {
+            out.writeByte( (byte) NULL );
+            return;
+        }
+        final ValueCodec<Object> codec = (ValueCodec<Object>) codecFor( value.getClass() );
+        if ( codec == null ) {
+            throw new IllegalArgumentException( "No value codec for " + value.getClass().getName() );
+        }
+        out.writeByte( (byte) codec.getTag() );
+        codec.write( this, value, out );
+    }
+
+    public Object read( final DataInput in ) throws IOException {
+        final int tag = in.readByte() & 0xFF;
+        if ( tag == NULL ) {
+            return null;
+        }
+        final ValueCodec<?> codec = byTag[ tag ];
+        if ( codec == null ) {
+            throw new IOException( "Unknown value codec tag " + tag );
+        }
+        return codec.read( this, in );
+    }
+
+    /**
+     * Zig-zag variable length encoding, small negative numbers stay short. Lucene's own vLong refuses the top bit,
+     * so the seven bit groups are written here.
+     */
+    public static void writeZLong( final long value,
+                                   final DataOutput out ) throws IOException {
+        long zigzag = ( value << 1 ) ^ ( value >> 63 );
+        while ( ( zigzag & ~0x7FL ) != 0 ) {
+            out.writeByte( (byte) ( ( zigzag & 0x7F ) | 0x80 ) );
+            zigzag >>>= 7;
+        }
+        out.writeByte( (byte) zigzag );
+    }
+
+    public static long readZLong( final DataInput in ) throws IOException {
+        long zigzag = 0;
+        for ( int shift = 0; shift < 64; shift += 7 ) {
+            final byte b = in.readByte();
+            zigzag |= ( b & 0x7FL ) << shift;
+            if ( b >= 0 ) {
+                return ( zigzag >>> 1 ) ^ -( zigzag & 1 );
+            }
+        }
+        throw new IOException( "Invalid zig-zag long" );
+    }
+
+    private void register( final ValueCodec<?> codec ) {
+        checkCondition( "tag " + codec.getTag() + " already taken by " + ( byTag[ codec.getTag() ] == null ? null : byTag[ codec.getTag() ].getClass().getName() ),
+                        byTag[ codec.getTag() ] == null );
+        byTag[ codec.getTag() ] = codec;
+        ordered.add( codec );
+    }
+
+    private ValueCodec<?> codecFor( final Class<?> type ) {
+        final ValueCodec<?> cached = byClass.get( type );
+        if ( cached != null ) {
+            return cached;
+        }
+        for ( final ValueCodec<?> codec : ordered ) {
+            if ( codec.getType().isAssignableFrom( type ) ) {
+                byClass.putIfAbsent( type, codec );
+                return codec;
+            }
+        }
+        return null;
+    }
+
+}
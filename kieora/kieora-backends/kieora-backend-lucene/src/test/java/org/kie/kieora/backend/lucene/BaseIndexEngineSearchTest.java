@@ -0,0 +1,202 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.backend.lucene;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.kie.kieora.backend.lucene.fields.SimpleFieldFactory;
+import org.kie.kieora.backend.lucene.setups.BaseLuceneSetup;
+import org.kie.kieora.engine.MetaModelStore;
+import org.kie.kieora.model.KObject;
+import org.kie.kieora.model.KObjectKey;
+import org.kie.kieora.model.KProperty;
+import org.kie.kieora.model.schema.MetaType;
+import org.kie.kieora.search.KBooleanQuery;
+import org.kie.kieora.search.KFullTextQuery;
+import org.kie.kieora.search.KPrefixQuery;
+import org.kie.kieora.search.KRangeQuery;
+import org.kie.kieora.search.KTermQuery;
+import org.kie.kieora.search.KTypeQuery;
+import org.kie.kieora.search.PagedResult;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+public abstract class BaseIndexEngineSearchTest {
+
+    private LuceneIndexEngine engine;
+
+    @Before
+    public void setup() {
+        engine = new LuceneIndexEngine( getMetaModelStore(), getLuceneSetup(), new SimpleFieldFactory() );
+
+        engine.index( newKObject( "Path", "/a/rules.drl", "John Doe", "Validation rules for the loan process.", 10, new Date( 1000L ) ) );
+        engine.index( newKObject( "Path", "/a/process.bpmn", "Jane Roe", "The loan process itself.", 5, new Date( 2000L ) ) );
+        engine.index( newKObject( "Path", "/b/model.java", "John Doe", "Plain data model.", 1, new Date( 3000L ) ) );
+        engine.index( newKObject( "Other", "/b/other", "John Doe", "Not a path at all.", 7, new Date( 4000L ) ) );
+    }
+
+    @Test
+    public void testTypeAndTermQueries() {
+        assertEquals( 3, engine.count( new KTypeQuery( "Path" ) ) );
+        assertEquals( 1, engine.count( new KTypeQuery( "Other" ) ) );
+        assertEquals( 0, engine.count( new KTypeQuery( "Unknown" ) ) );
+
+        final PagedResult<KObjectKey> result = engine.search( new KTermQuery( "id", "Path|/a/rules.drl" ), 0, 10 );
+        assertEquals( 1, result.getTotalHits() );
+        assertEquals( "/a/rules.drl", result.getContent().get( 0 ).getKey() );
+        assertEquals( "Path", result.getContent().get( 0 ).getType().getName() );
+    }
+
+    @Test
+    public void testPrefixQuery() {
+        assertEquals( 2, engine.count( new KPrefixQuery( "dcore.comment", "pro" ) ) );
+        assertEquals( 1, engine.count( new KPrefixQuery( "dcore.comment", "valid" ) ) );
+        assertEquals( 0, engine.count( new KPrefixQuery( "dcore.comment", "unknown" ) ) );
+    }
+
+    @Test
+    public void testFullTextQuery() {
+        assertEquals( 2, engine.count( new KFullTextQuery( "dcore.comment", "loan process" ) ) );
+        assertEquals( 1, engine.count( new KFullTextQuery( "dcore.comment", "Validation rules" ) ) );
+        assertEquals( 3, engine.count( new KFullTextQuery( "dcore.author", "john" ) ) );
+        assertEquals( 0, engine.count( new KFullTextQuery( "dcore.author", "john roe" ) ) );
+    }
+
+    @Test
+    public void testRangeQueries() {
+        assertEquals( 3, engine.count( new KRangeQuery( "dcore.review", 5, 10 ) ) );
+        assertEquals( 1, engine.count( new KRangeQuery( "dcore.review", 5, 10, false, false ) ) );
+        assertEquals( 2, engine.count( new KRangeQuery( "dcore.review", null, 5 ) ) );
+        assertEquals( 2, engine.count( new KRangeQuery( "dcore.lastModifiedTime", new Date( 2000L ), new Date( 3000L ) ) ) );
+        assertEquals( 1, engine.count( new KRangeQuery( "dcore.lastModifiedTime", new Date( 3500L ), null ) ) );
+    }
+
+    @Test
+    public void testBooleanQueries() {
+        assertEquals( 2, engine.count( new KBooleanQuery()
+                                               .must( new KTypeQuery( "Path" ) )
+                                               .must( new KFullTextQuery( "dcore.author", "john" ) ) ) );
+
+        assertEquals( 1, engine.count( new KBooleanQuery()
+                                               .must( new KTypeQuery( "Path" ) )
+                                               .must( new KFullTextQuery( "dcore.author", "john" ) )
+                                               .mustNot( new KRangeQuery( "dcore.review", null, 5 ) ) ) );
+
+        assertEquals( 2, engine.count( new KBooleanQuery()
+                                               .should( new KTermQuery( "id", "Path|/a/rules.drl" ) )
+                                               .should( new KTypeQuery( "Other" ) ) ) );
+
+        assertEquals( 3, engine.count( new KBooleanQuery().mustNot( new KTypeQuery( "Other" ) ) ) );
+        assertEquals( 4, engine.count( new KBooleanQuery() ) );
+    }
+
+    @Test
+    public void testPaging() {
+        final List<String> keys = new ArrayList<String>();
+
+        PagedResult<KObjectKey> page = engine.search( new KBooleanQuery(), 0, 3 );
+        assertEquals( 4, page.getTotalHits() );
+        assertEquals( 3, page.getContent().size() );
+        assertTrue( page.hasNext() );
+        for ( final KObjectKey key : page.getContent() ) {
+            keys.add( key.getKey() );
+        }
+
+        page = engine.search( new KBooleanQuery(), 3, 3 );
+        assertEquals( 4, page.getTotalHits() );
+        assertEquals( 1, page.getContent().size() );
+        assertFalse( page.hasNext() );
+        keys.add( page.getContent().get( 0 ).getKey() );
+
+        assertEquals( 4, new HashSet<String>( keys ).size() );
+
+        assertEquals( 0, engine.search( new KBooleanQuery(), 10, 3 ).getContent().size() );
+    }
+
+    private KObject newKObject( final String type,
+                                final String key,
+                                final String author,
+                                final String comment,
+                                final int review,
+                                final Date lastModified ) {
+        return new KObject() {
+            @Override
+            public String getId() {
+                return type + "|" + key;
+            }
+
+            @Override
+            public MetaType getType() {
+                return new MetaType() {
+                    @Override
+                    public String getName() {
+                        return type;
+                    }
+                };
+            }
+
+            @Override
+            public String getKey() {
+                return key;
+            }
+
+            @Override
+            public Iterable<KProperty<?>> getProperties() {
+                return new ArrayList<KProperty<?>>() {{
+                    add( newProperty( "dcore.author", author ) );
+                    add( newProperty( "dcore.comment", comment ) );
+                    add( newProperty( "dcore.review", review ) );
+                    add( newProperty( "dcore.lastModifiedTime", lastModified ) );
+                }};
+            }
+        };
+    }
+
+    private <T> KProperty<T> newProperty( final String name,
+                                          final T value ) {
+        return new KProperty<T>() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public T getValue() {
+                return value;
+            }
+
+            @Override
+            public boolean isSearchable() {
+                return true;
+            }
+        };
+    }
+
+    protected abstract BaseLuceneSetup getLuceneSetup();
+
+    protected abstract MetaModelStore getMetaModelStore();
+
+}
@@ -73,6 +73,60 @@ public abstract class BaseLuceneSetupTest {
         assertEquals( 1, hits2.length );
     }
 
+    @Test
+    public void testUpsert() throws IOException {
+        final BaseLuceneSetup config = getLuceneSetup();
+
+        for ( int i = 0; i < 3; i++ ) {
+            final Document doc = new Document();
+            doc.add( new StringField( "id", "upsert.id", Field.Store.YES ) );
+            doc.add( new StringField( "version", String.valueOf( i ), Field.Store.YES ) );
+            config.indexDocument( "upsert.id", doc );
+        }
+        config.deleteIfExists( "missing.id" );
+
+        final IndexSearcher searcher = config.nrtSearcher();
+        assertEquals( 1, searcher.getIndexReader().numDocs() );
+        assertEquals( 1, searcher.search( new TermQuery( new Term( "version", "2" ) ), 10 ).totalHits );
+        config.nrtRelease( searcher );
+
+        config.rename( "upsert.id", "renamed.id" );
+        config.rename( "missing.id", "other.id" );
+
+        final IndexSearcher renamed = config.nrtSearcher();
+        assertEquals( 1, renamed.getIndexReader().numDocs() );
+        assertEquals( 1, renamed.search( new TermQuery( new Term( "id", "renamed.id" ) ), 10 ).totalHits );
+        config.nrtRelease( renamed );
+    }
+
+    @Test
+    public void testSearcherReuse() throws IOException {
+        final BaseLuceneSetup config = getLuceneSetup();
+
+        final Document doc = new Document();
+        doc.add( new StringField( "id", "reuse.id", Field.Store.YES ) );
+        doc.add( new TextField( "content", "reused searcher", Field.Store.YES ) );
+        config.indexDocument( "reuse.id", doc );
+
+        final IndexSearcher first = config.nrtSearcher();
+        config.nrtRelease( first );
+
+        final IndexSearcher second = config.nrtSearcher();
+        assertSame( first, second );
+
+        final Document other = new Document();
+        other.add( new StringField( "id", "other.reuse.id", Field.Store.YES ) );
+        other.add( new TextField( "content", "reused searcher", Field.Store.YES ) );
+        config.indexDocument( "other.reuse.id", other );
+
+        final IndexSearcher third = config.nrtSearcher();
+        assertNotSame( second, third );
+        assertEquals( second.getIndexReader().numDocs() + 1, third.getIndexReader().numDocs() );
+
+        config.nrtRelease( second );
+        config.nrtRelease( third );
+    }
+
     protected abstract BaseLuceneSetup getLuceneSetup();
 
 }
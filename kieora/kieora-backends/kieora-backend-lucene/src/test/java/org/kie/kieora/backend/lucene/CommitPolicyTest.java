@@ -0,0 +1,150 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.backend.lucene;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.NIOFSDirectory;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.Test;
+import org.kie.kieora.backend.lucene.setups.CommitPolicy;
+import org.kie.kieora.backend.lucene.setups.DirectoryLuceneSetup;
+import org.kie.kieora.backend.lucene.setups.NIOLuceneSetup;
+import org.kie.kieora.backend.lucene.setups.WriterSettings;
+
+import static org.junit.Assert.*;
+import static org.kie.kieora.backend.lucene.FileTestUtil.*;
+
+public class CommitPolicyTest {
+
+    @Test
+    public void testCommitEveryOps() throws Exception {
+        final File dir = createTempDirectory();
+        final NIOLuceneSetup setup = new NIOLuceneSetup( dir, new CommitPolicy( 3, 0, 0 ), WriterSettings.defaults() );
+
+        index( setup, "a" );
+        index( setup, "b" );
+        assertEquals( 2, setup.getPendingOps() );
+        assertEquals( -1, committedDocs( dir ) );
+
+        // committed on the commit thread, not by the writer
+        index( setup, "c" );
+        awaitCommitted( setup );
+        assertEquals( 0, setup.getPendingOps() );
+        assertEquals( 3, committedDocs( dir ) );
+
+        setup.dispose();
+    }
+
+    @Test
+    public void testCommitOnIdle() throws Exception {
+        final File dir = createTempDirectory();
+        final NIOLuceneSetup setup = new NIOLuceneSetup( dir, new CommitPolicy( 0, 0, 50 ), WriterSettings.defaults() );
+
+        index( setup, "a" );
+        index( setup, "b" );
+
+        awaitCommitted( setup );
+        assertEquals( 0, setup.getPendingOps() );
+        assertEquals( 2, committedDocs( dir ) );
+
+        setup.dispose();
+    }
+
+    @Test
+    public void testTimedCommitsSurviveFailure() throws Exception {
+        final AtomicInteger failures = new AtomicInteger( 1 );
+        final Directory directory = new RAMDirectory() {
+            @Override
+            public void sync( final Collection<String> names ) throws IOException {
+                if ( failures.getAndDecrement() > 0 ) {
+                    throw new IOException( "disk full" );
+                }
+                super.sync( names );
+            }
+        };
+        final DirectoryLuceneSetup setup = new DirectoryLuceneSetup( directory, new CommitPolicy( 0, 0, 20 ), WriterSettings.defaults() );
+
+        index( setup, "a" );
+        awaitCommitted( setup );
+        assertEquals( 0, setup.getPendingOps() );
+        assertTrue( failures.get() < 0 );
+
+        setup.dispose();
+    }
+
+    @Test
+    public void testManual() throws IOException {
+        final File dir = createTempDirectory();
+        final NIOLuceneSetup setup = new NIOLuceneSetup( dir, CommitPolicy.manual(), new WriterSettings( 8, 4, 64, 2 ) );
+
+        for ( int i = 0; i < 10; i++ ) {
+            index( setup, "doc" + i );
+        }
+        assertEquals( 10, setup.getPendingOps() );
+        assertEquals( -1, committedDocs( dir ) );
+
+        setup.commit();
+        assertEquals( 0, setup.getPendingOps() );
+        assertEquals( 10, committedDocs( dir ) );
+
+        setup.dispose();
+    }
+
+    private void awaitCommitted( final DirectoryLuceneSetup setup ) throws InterruptedException {
+        for ( int i = 0; i < 100 && setup.getPendingOps() > 0; i++ ) {
+            Thread.sleep( 20 );
+        }
+    }
+
+    private void index( final DirectoryLuceneSetup setup,
+                        final String id ) {
+        final Document doc = new Document();
+        doc.add( new StringField( "id", id, Field.Store.YES ) );
+        setup.indexDocument( id, doc );
+    }
+
+    /**
+     * What a process opening the index after a crash would see; -1 when nothing was ever committed.
+     */
+    private int committedDocs( final File dir ) throws IOException {
+        final Directory directory = new NIOFSDirectory( dir );
+        try {
+            if ( !DirectoryReader.indexExists( directory ) ) {
+                return -1;
+            }
+            final DirectoryReader reader = DirectoryReader.open( directory );
+            try {
+                return reader.numDocs();
+            } finally {
+                reader.close();
+            }
+        } finally {
+            directory.close();
+        }
+    }
+
+}
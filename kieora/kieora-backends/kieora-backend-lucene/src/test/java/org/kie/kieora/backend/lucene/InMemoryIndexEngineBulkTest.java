@@ -0,0 +1,94 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.backend.lucene;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.lucene.search.IndexSearcher;
+import org.junit.After;
+import org.junit.Test;
+import org.kie.kieora.backend.lucene.fields.SimpleFieldFactory;
+import org.kie.kieora.backend.lucene.metamodels.InMemoryMetaModelStore;
+import org.kie.kieora.backend.lucene.setups.RAMLuceneSetup;
+import org.kie.kieora.model.KObject;
+import org.kie.kieora.model.schema.MetaObject;
+import org.kie.kieora.search.KTypeQuery;
+
+import static org.junit.Assert.*;
+import static org.kie.kieora.backend.lucene.KObjectTestUtil.*;
+
+/**
+ *
+ */
+public class InMemoryIndexEngineBulkTest {
+
+    private int metaModelUpdates = 0;
+    private int commits          = 0;
+
+    private final RAMLuceneSetup luceneSetup = new RAMLuceneSetup() {
+        @Override
+        public void commit() {
+            commits++;
+            super.commit();
+        }
+    };
+
+    private final InMemoryMetaModelStore metaModelStore = new InMemoryMetaModelStore() {
+        @Override
+        public void update( final MetaObject metaObject ) {
+            metaModelUpdates++;
+            super.update( metaObject );
+        }
+    };
+
+    @After
+    public void cleanup() {
+        luceneSetup.dispose();
+    }
+
+    @Test
+    public void testBulkIndex() {
+        final LuceneIndexEngine engine = new LuceneIndexEngine( metaModelStore, luceneSetup, new SimpleFieldFactory() );
+
+        final List<KObject> objects = new ArrayList<KObject>();
+        for ( int i = 0; i < 1000; i++ ) {
+            objects.add( newKObject( i % 2 == 0 ? "Even" : "Odd", "key" + i, newKProperty( "value", i < 500 ? "some text" : 10 ) ) );
+        }
+        // same id again, must replace the previous document
+        objects.add( newKObject( "Even", "key0", newKProperty( "value", "some text" ) ) );
+
+        engine.index( objects );
+
+        assertEquals( 500, engine.count( new KTypeQuery( "Even" ) ) );
+        assertEquals( 500, engine.count( new KTypeQuery( "Odd" ) ) );
+
+        // each type got a new value type once, for the switch from String to Integer
+        assertEquals( 2, metaModelUpdates );
+        assertEquals( 2, metaModelStore.getMetaObject( "Even" ).getProperty( "value" ).getTypes().size() );
+
+        final IndexSearcher searcher = luceneSetup.nrtSearcher();
+        assertEquals( 1000, searcher.getIndexReader().numDocs() );
+        luceneSetup.nrtRelease( searcher );
+
+        // committing is left to the commit policy or the caller
+        assertEquals( 0, commits );
+        engine.commit();
+        assertEquals( 1, commits );
+    }
+}
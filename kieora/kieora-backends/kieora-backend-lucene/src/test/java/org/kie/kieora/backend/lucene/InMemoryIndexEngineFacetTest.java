@@ -0,0 +1,101 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.backend.lucene;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Test;
+import org.kie.kieora.backend.lucene.fields.SimpleFieldFactory;
+import org.kie.kieora.backend.lucene.metamodels.InMemoryMetaModelStore;
+import org.kie.kieora.backend.lucene.setups.RAMLuceneSetup;
+import org.kie.kieora.model.KObjectKey;
+import org.kie.kieora.search.KBooleanQuery;
+import org.kie.kieora.search.KTermQuery;
+import org.kie.kieora.search.KTypeQuery;
+import org.kie.kieora.search.PagedResult;
+
+import static org.junit.Assert.*;
+import static org.kie.kieora.backend.lucene.KObjectTestUtil.*;
+
+public class InMemoryIndexEngineFacetTest {
+
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    private final RAMLuceneSetup luceneSetup = new RAMLuceneSetup();
+
+    @After
+    public void cleanup() {
+        luceneSetup.dispose();
+    }
+
+    @Test
+    public void testFacetsAndSort() {
+        final LuceneIndexEngine engine = new LuceneIndexEngine( new InMemoryMetaModelStore(), luceneSetup, new SimpleFieldFactory() );
+
+        engine.index( newKObject( "Path", "a", newKProperty( "dcore.creator", Arrays.asList( "alice", "bob" ) ), newKProperty( "lastModifiedTime", new Date( 10 * DAY + 5 ) ) ) );
+        engine.index( newKObject( "Path", "b", newKProperty( "dcore.creator", Arrays.asList( "bob" ) ), newKProperty( "lastModifiedTime", new Date( 12 * DAY ) ) ) );
+        engine.index( newKObject( "Path", "c", newKProperty( "dcore.creator", Arrays.asList( "carol" ) ), newKProperty( "lastModifiedTime", new Date( 10 * DAY + 7 ) ) ) );
+        engine.index( newKObject( "Rule", "d", newKProperty( "dcore.creator", Arrays.asList( "alice" ) ), newKProperty( "lastModifiedTime", new Date( 11 * DAY ) ) ) );
+
+        final Map<String, Integer> types = engine.facets( new KBooleanQuery(), "type" );
+        assertEquals( 2, types.size() );
+        assertEquals( Integer.valueOf( 3 ), types.get( "Path" ) );
+        assertEquals( Integer.valueOf( 1 ), types.get( "Rule" ) );
+
+        final Map<String, Integer> creators = engine.facets( new KTypeQuery( "Path" ), "dcore.creator" );
+        assertEquals( 3, creators.size() );
+        assertEquals( Integer.valueOf( 1 ), creators.get( "alice" ) );
+        assertEquals( Integer.valueOf( 2 ), creators.get( "bob" ) );
+        assertEquals( Integer.valueOf( 1 ), creators.get( "carol" ) );
+
+        final Map<Long, Integer> days = engine.facets( new KBooleanQuery(), "lastModifiedTime", DAY );
+        assertEquals( 3, days.size() );
+        assertEquals( Integer.valueOf( 2 ), days.get( 10 * DAY ) );
+        assertEquals( Integer.valueOf( 1 ), days.get( 11 * DAY ) );
+        assertEquals( Integer.valueOf( 1 ), days.get( 12 * DAY ) );
+
+        final PagedResult<KObjectKey> newest = engine.search( new KBooleanQuery(), "lastModifiedTime", true, 0, 3 );
+        assertEquals( 4, newest.getTotalHits() );
+        assertEquals( "b", newest.getContent().get( 0 ).getKey() );
+        assertEquals( "d", newest.getContent().get( 1 ).getKey() );
+        assertEquals( "c", newest.getContent().get( 2 ).getKey() );
+
+        final PagedResult<KObjectKey> byType = engine.search( new KBooleanQuery(), "type", true, 0, 1 );
+        assertEquals( "d", byType.getContent().get( 0 ).getKey() );
+    }
+
+    @Test
+    public void testCollectionsSurviveRename() {
+        final LuceneIndexEngine engine = new LuceneIndexEngine( new InMemoryMetaModelStore(), luceneSetup, new SimpleFieldFactory() );
+
+        engine.index( newKObject( "Path", "a", newKProperty( "dcore.subject", Arrays.asList( "foo bar", "baz" ) ) ) );
+        engine.rename( newKey( "Path", "a" ), newKey( "Path", "b" ) );
+
+        final Map<String, Integer> subjects = engine.facets( new KTypeQuery( "Path" ), "dcore.subject" );
+        assertEquals( 2, subjects.size() );
+        assertEquals( Integer.valueOf( 1 ), subjects.get( "foo bar" ) );
+        assertEquals( Integer.valueOf( 1 ), subjects.get( "baz" ) );
+
+        final PagedResult<KObjectKey> hits = engine.search( new KTermQuery( "dcore.subject", "bar" ), 0, 10 );
+        assertEquals( 1, hits.getTotalHits() );
+        assertEquals( "b", hits.getContent().get( 0 ).getKey() );
+    }
+}
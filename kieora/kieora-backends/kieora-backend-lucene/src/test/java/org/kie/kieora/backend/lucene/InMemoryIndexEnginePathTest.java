@@ -0,0 +1,170 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package org.kie.kieora.backend.lucene;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.kie.kieora.backend.lucene.fields.SimpleFieldFactory;
+import org.kie.kieora.backend.lucene.metamodels.InMemoryMetaModelStore;
+import org.kie.kieora.backend.lucene.setups.RAMLuceneSetup;
+import org.kie.kieora.backend.lucene.util.PathHierarchy;
+import org.kie.kieora.model.KObject;
+import org.kie.kieora.model.KObjectKey;
+import org.kie.kieora.search.KBooleanQuery;
+import org.kie.kieora.search.KPathQuery;
+import org.kie.kieora.search.KRangeQuery;
+import org.kie.kieora.search.KTermQuery;
+
+import static java.util.Arrays.*;
+import static org.junit.Assert.*;
+import static org.kie.kieora.backend.lucene.KObjectTestUtil.*;
+
+/**
+ *
+ */
+public class InMemoryIndexEnginePathTest {
+
+    private RAMLuceneSetup    luceneSetup;
+    private LuceneIndexEngine engine;
+
+    @Before
+    public void setup() {
+        luceneSetup = new RAMLuceneSetup();
+        engine = new LuceneIndexEngine( new InMemoryMetaModelStore(), luceneSetup, new SimpleFieldFactory() );
+
+        engine.index( asList( newPath( "/a" ),
+                              newPath( "/a/one.txt" ),
+                              newPath( "/a/b" ),
+                              newPath( "/a/b/two.txt" ),
+                              newPath( "/a/b/c/three.txt" ),
+                              newPath( "/ab/four.txt" ),
+                              newPath( "/five.txt" ) ) );
+    }
+
+    @After
+    public void cleanup() {
+        luceneSetup.dispose();
+    }
+
+    @Test
+    public void testHierarchy() {
+        assertEquals( asList( "/", "/a", "/a/b" ), PathHierarchy.ancestors( "/a/b/c.txt" ) );
+        assertEquals( Collections.<String>emptyList(), PathHierarchy.ancestors( "/" ) );
+        assertEquals( "/a/b", PathHierarchy.parent( "/a/b/c/" ) );
+        assertNull( PathHierarchy.parent( "/" ) );
+        assertEquals( 3, PathHierarchy.depth( "/a/b/c.txt" ) );
+        assertEquals( "/a", PathHierarchy.normalize( "/a//" ) );
+        assertEquals( "/", PathHierarchy.normalize( "/" ) );
+    }
+
+    @Test
+    public void testSubtree() {
+        assertEquals( 4, engine.count( new KPathQuery( "/a", true ) ) );
+        assertEquals( 4, engine.count( new KPathQuery( "/a/", true ) ) );
+        assertEquals( 2, engine.count( new KPathQuery( "/a/b", true ) ) );
+        assertEquals( 7, engine.count( new KPathQuery( "/", true ) ) );
+        assertEquals( 0, engine.count( new KPathQuery( "/a/b/c/three.txt", true ) ) );
+    }
+
+    @Test
+    public void testChildren() {
+        assertEquals( 2, engine.count( new KPathQuery( "/a", false ) ) );
+        assertEquals( 1, engine.count( new KPathQuery( "/a/b/c", false ) ) );
+        assertEquals( 2, engine.count( new KPathQuery( "/", false ) ) );
+    }
+
+    @Test
+    public void testDepth() {
+        assertEquals( 2, engine.count( new KBooleanQuery()
+                                               .must( new KPathQuery( "/a", true ) )
+                                               .must( new KRangeQuery( PathHierarchy.DEPTH, 2, 2 ) ) ) );
+        assertEquals( 1, engine.count( new KRangeQuery( PathHierarchy.DEPTH, 4, null ) ) );
+    }
+
+    @Test
+    public void testRenameTree() {
+        engine.renameTree( newKey( "Path", "/a/b" ), newKey( "Path", "/x/b" ), KEY_FACTORY );
+
+        assertEquals( 7, engine.count( new KBooleanQuery() ) );
+        assertEquals( 1, engine.count( new KPathQuery( "/a", true ) ) );
+        assertEquals( 2, engine.count( new KPathQuery( "/x/b", true ) ) );
+        assertEquals( 1, engine.count( new KPathQuery( "/x", false ) ) );
+        assertEquals( 1, engine.count( new KPathQuery( "/x/b/c", false ) ) );
+
+        final List<KObjectKey> moved = engine.search( new KTermQuery( "name", "three.txt" ), 0, 10 ).getContent();
+        assertEquals( 1, moved.size() );
+        assertEquals( "/x/b/c/three.txt", moved.get( 0 ).getKey() );
+        assertEquals( "Path|/x/b/c/three.txt", moved.get( 0 ).getId() );
+
+        // properties are indexed again, the old size stays with the renamed document
+        assertEquals( 1, engine.count( new KBooleanQuery()
+                                               .must( new KPathQuery( "/x", true ) )
+                                               .must( new KRangeQuery( "size", 16, 16 ) ) ) );
+
+        engine.rename( newKey( "Path", "/five.txt" ), newKey( "Path", "/six.txt" ) );
+        assertEquals( "/six.txt", engine.search( new KTermQuery( "name", "five.txt" ), 0, 10 ).getContent().get( 0 ).getKey() );
+        assertEquals( 2, engine.count( new KPathQuery( "/", false ) ) );
+    }
+
+    @Test
+    public void testDeleteTree() {
+        engine.deleteTree( newKey( "Path", "/a" ) );
+
+        assertEquals( 2, engine.count( new KBooleanQuery() ) );
+        assertEquals( 0, engine.count( new KPathQuery( "/a", true ) ) );
+        assertEquals( 1, engine.count( new KPathQuery( "/ab", true ) ) );
+    }
+
+    @Test
+    public void testBranches() {
+        assertEquals( asList( "/a", "/ab" ), new ArrayList<String>( engine.branches( null, "/" ) ) );
+        assertEquals( asList( "/a/b" ), new ArrayList<String>( engine.branches( null, "/a/" ) ) );
+        assertEquals( asList( "/a/b/c" ), new ArrayList<String>( engine.branches( null, "/a/b" ) ) );
+        assertTrue( engine.branches( null, "/a/b/c" ).isEmpty() );
+
+        engine.deleteTree( newKey( "Path", "/a/b" ) );
+        assertTrue( engine.branches( null, "/a" ).isEmpty() );
+    }
+
+    @Test
+    public void testFingerprints() {
+        final Map<String, String> children = engine.fingerprints( null, new KPathQuery( "/a", false ) );
+        assertEquals( 2, children.size() );
+        assertEquals( engine.fingerprint( newPath( "/a/one.txt" ) ), children.get( "/a/one.txt" ) );
+        assertFalse( children.get( "/a/one.txt" ).equals( children.get( "/a/b" ) ) );
+        // "Aa" and "BB" share a String.hashCode()
+        assertFalse( engine.fingerprint( newPath( "/a/Aa" ) ).equals( engine.fingerprint( newPath( "/a/BB" ) ) ) );
+
+        // stored with the renamed documents, as their properties didn't change
+        final String before = engine.fingerprint( newPath( "/a/b/c/three.txt" ) );
+        engine.renameTree( newKey( "Path", "/a/b" ), newKey( "Path", "/x/b" ), KEY_FACTORY );
+        assertEquals( before, engine.fingerprints( null, new KPathQuery( "/x/b/c", false ) ).get( "/x/b/c/three.txt" ) );
+    }
+
+    private KObject newPath( final String key ) {
+        return newKObject( "Path", key, newKProperty( "name", key.substring( key.lastIndexOf( '/' ) + 1 ), false ),
+                           newKProperty( "size", key.length() ) );
+    }
+}
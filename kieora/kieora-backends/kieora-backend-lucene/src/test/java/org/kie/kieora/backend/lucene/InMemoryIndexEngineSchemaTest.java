@@ -0,0 +1,88 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.backend.lucene;
+
+import org.junit.After;
+import org.junit.Test;
+import org.kie.kieora.backend.lucene.fields.SimpleFieldFactory;
+import org.kie.kieora.backend.lucene.metamodels.InMemoryMetaModelStore;
+import org.kie.kieora.backend.lucene.setups.RAMLuceneSetup;
+import org.kie.kieora.model.schema.MetaObject;
+
+import static org.junit.Assert.*;
+import static org.kie.kieora.backend.lucene.KObjectTestUtil.*;
+
+public class InMemoryIndexEngineSchemaTest {
+
+    private int lookups = 0;
+    private int updates = 0;
+
+    private final RAMLuceneSetup luceneSetup = new RAMLuceneSetup();
+
+    private final InMemoryMetaModelStore metaModelStore = new InMemoryMetaModelStore() {
+        @Override
+        public MetaObject getMetaObject( final String type ) {
+            lookups++;
+            return super.getMetaObject( type );
+        }
+
+        @Override
+        public void update( final MetaObject metaObject ) {
+            updates++;
+            super.update( metaObject );
+        }
+    };
+
+    @After
+    public void cleanup() {
+        luceneSetup.dispose();
+    }
+
+    @Test
+    public void testKnownSchemaSkipsStore() {
+        final LuceneIndexEngine engine = new LuceneIndexEngine( metaModelStore, luceneSetup, new SimpleFieldFactory() );
+
+        for ( int i = 0; i < 100; i++ ) {
+            engine.index( newKObject( "Path", "key" + i, newKProperty( "value", "text " + i ) ) );
+        }
+        assertEquals( 1, lookups );
+        assertEquals( 0, updates );
+
+        engine.index( newKObject( "Path", "key100", newKProperty( "value", 100L ) ) );
+        assertEquals( 2, lookups );
+        assertEquals( 1, updates );
+        assertEquals( 2, metaModelStore.getMetaObject( "Path" ).getProperty( "value" ).getTypes().size() );
+
+        engine.index( newKObject( "Path", "key101", newKProperty( "value", 101L ) ) );
+        engine.index( newKObject( "Path", "key102", newKProperty( "value", "text" ) ) );
+        assertEquals( 3, lookups );
+        assertEquals( 1, updates );
+    }
+
+    @Test
+    public void testCollidingNamesReachMetaModel() {
+        final LuceneIndexEngine engine = new LuceneIndexEngine( metaModelStore, luceneSetup, new SimpleFieldFactory() );
+        assertEquals( "Aa".hashCode(), "BB".hashCode() );
+
+        engine.index( newKObject( "Path", "key1", newKProperty( "Aa", "text" ) ) );
+        engine.index( newKObject( "Path", "key2", newKProperty( "BB", "text" ) ) );
+
+        assertNotNull( metaModelStore.getMetaObject( "Path" ).getProperty( "Aa" ) );
+        assertNotNull( metaModelStore.getMetaObject( "Path" ).getProperty( "BB" ) );
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.backend.lucene;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+import org.kie.kieora.backend.lucene.fields.SimpleFieldFactory;
+import org.kie.kieora.backend.lucene.metamodels.InMemoryMetaModelStore;
+import org.kie.kieora.backend.lucene.setups.RAMLuceneSetup;
+import org.kie.kieora.backend.lucene.suggest.LuceneSuggester;
+import org.kie.kieora.model.KObject;
+
+import static java.util.Arrays.*;
+import static org.junit.Assert.*;
+import static org.kie.kieora.backend.lucene.KObjectTestUtil.*;
+
+public class InMemoryIndexEngineSuggestTest {
+
+    private final RAMLuceneSetup    luceneSetup = new RAMLuceneSetup();
+    private final LuceneIndexEngine engine      = new LuceneIndexEngine( new InMemoryMetaModelStore(), luceneSetup,
+                                                                         new SimpleFieldFactory(), asList( "title" ) );
+
+    @After
+    public void cleanup() {
+        engine.dispose();
+    }
+
+    @Test
+    public void testSuggest() {
+        engine.index( newPath( "/repo/src/Order.drl", "Order rules" ),
+                      newPath( "/repo/src/OrderLine.drl", "Order line rules" ),
+                      newPath( "/repo/test/Order.drl", null ) );
+
+        final List<String> names = awaitSuggestions( engine, "Order", 4 );
+        assertEquals( asList( "Order line rules", "Order rules", "Order.drl", "OrderLine.drl" ), sorted( names ) );
+        assertEquals( "Order.drl", names.get( 0 ) );
+
+        assertEquals( asList( "/repo/src/Order.drl", "/repo/src/OrderLine.drl" ), sorted( engine.suggest( "/repo/src/", 10 ) ) );
+        assertEquals( 1, engine.suggest( "/repo/", 1 ).size() );
+        assertTrue( engine.suggest( "order", 10 ).isEmpty() );
+    }
+
+    @Test
+    public void testRebuiltAfterChange() {
+        final LuceneSuggester suggester = new LuceneSuggester( luceneSetup, Collections.<String>emptySet(), 0 );
+        try {
+            assertTrue( suggester.suggest( "/", 10 ).isEmpty() );
+
+            final KObject object = newPath( "/repo/Process.bpmn", null );
+            engine.index( object );
+            assertEquals( asList( "/repo/Process.bpmn" ), awaitSuggestions( suggester, "/", 1 ) );
+            assertEquals( 2, suggester.size() );
+
+            engine.delete( object );
+            assertEquals( 0, awaitSuggestions( suggester, "Pro", 0 ).size() );
+        } finally {
+            suggester.dispose();
+        }
+    }
+
+    @Test
+    public void testPreviousSuggestionsServedUntilRebuilt() {
+        final LuceneSuggester suggester = new LuceneSuggester( luceneSetup, Collections.<String>emptySet(), 60 * 60 * 1000 );
+        try {
+            engine.index( newPath( "/repo/Process.bpmn", null ) );
+            suggester.rebuild();
+
+            engine.index( newPath( "/repo/Product.drl", null ) );
+            assertEquals( asList( "Process.bpmn" ), suggester.suggest( "Pro", 10 ) );
+
+            suggester.rebuild();
+            assertEquals( asList( "Process.bpmn", "Product.drl" ), sorted( suggester.suggest( "Pro", 10 ) ) );
+        } finally {
+            suggester.dispose();
+        }
+    }
+
+    /**
+     * Suggestions come from a background build, so they are polled until the expected number shows up.
+     */
+    private static List<String> awaitSuggestions( final Object suggester,
+                                                  final String prefix,
+                                                  final int expected ) {
+        final long deadline = System.currentTimeMillis() + 10000;
+        while ( true ) {
+            final List<String> result = suggester instanceof LuceneSuggester ?
+                    ( (LuceneSuggester) suggester ).suggest( prefix, 10 ) :
+                    ( (LuceneIndexEngine) suggester ).suggest( prefix, 10 );
+            if ( result.size() == expected || System.currentTimeMillis() > deadline ) {
+                return result;
+            }
+            try {
+                Thread.sleep( 10 );
+            } catch ( final InterruptedException e ) {
+                throw new RuntimeException( e );
+            }
+        }
+    }
+
+    private static List<String> sorted( final List<String> values ) {
+        final List<String> result = new ArrayList<String>( values );
+        Collections.sort( result );
+        return result;
+    }
+
+    private KObject newPath( final String key,
+                             final String title ) {
+        if ( title == null ) {
+            return newKObject( "Path", key );
+        }
+        return newKObject( "Path", key, newKProperty( "title", title ) );
+    }
+
+}
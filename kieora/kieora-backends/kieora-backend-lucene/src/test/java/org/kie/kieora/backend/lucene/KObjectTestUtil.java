@@ -0,0 +1,162 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.kie.kieora.backend.lucene;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.kie.kieora.model.KObject;
+import org.kie.kieora.model.KObjectKey;
+import org.kie.kieora.model.KObjectKeyFactory;
+import org.kie.kieora.model.KProperty;
+import org.kie.kieora.model.KSharded;
+import org.kie.kieora.model.schema.MetaType;
+
+/**
+ * Objects, keys and properties for tests; ids are "type|key", as {@link #KEY_FACTORY} derives them.
+ */
+public final class KObjectTestUtil {
+
+    public static final KObjectKeyFactory KEY_FACTORY = new KObjectKeyFactory() {
+        @Override
+        public KObjectKey newKey( final String type,
+                                  final String key ) {
+            return KObjectTestUtil.newKey( type, key );
+        }
+    };
+
+    private KObjectTestUtil() {
+
+    }
+
+    public static KObject newKObject( final String type,
+                                      final String key,
+                                      final KProperty<?>... properties ) {
+        return new TestKObject( type, key, properties );
+    }
+
+    public static KObject newShardedKObject( final String shard,
+                                             final String type,
+                                             final String key,
+                                             final KProperty<?>... properties ) {
+        return new ShardedTestKObject( shard, type, key, properties );
+    }
+
+    public static KObjectKey newKey( final String type,
+                                     final String key ) {
+        return new TestKObject( type, key );
+    }
+
+    public static KObjectKey newShardedKey( final String shard,
+                                            final String type,
+                                            final String key ) {
+        return new ShardedTestKObject( shard, type, key );
+    }
+
+    public static KProperty<?> newKProperty( final String name,
+                                             final Object value ) {
+        return newKProperty( name, value, true );
+    }
+
+    public static KProperty<?> newKProperty( final String name,
+                                             final Object value,
+                                             final boolean searchable ) {
+        return new KProperty<Object>() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public Object getValue() {
+                return value;
+            }
+
+            @Override
+            public boolean isSearchable() {
+                return searchable;
+            }
+        };
+    }
+
+    public static MetaType newMetaType( final String name ) {
+        return new MetaType() {
+            @Override
+            public String getName() {
+                return name;
+            }
+        };
+    }
+
+    private static class TestKObject implements KObject {
+
+        private final String         type;
+        private final String         key;
+        private final KProperty<?>[] properties;
+
+        TestKObject( final String type,
+                     final String key,
+                     final KProperty<?>... properties ) {
+            this.type = type;
+            this.key = key;
+            this.properties = properties;
+        }
+
+        @Override
+        public String getId() {
+            return type + "|" + key;
+        }
+
+        @Override
+        public MetaType getType() {
+            return newMetaType( type );
+        }
+
+        @Override
+        public String getKey() {
+            return key;
+        }
+
+        @Override
+        public Iterable<KProperty<?>> getProperties() {
+            return new ArrayList<KProperty<?>>( Arrays.asList( properties ) );
+        }
+
+        @Override
+        public String toString() {
+            return getId();
+        }
+    }
+
+    private static class ShardedTestKObject extends TestKObject implements KSharded {
+
+        private final String shard;
+
+        ShardedTestKObject( final String shard,
+                            final String type,
+                            final String key,
+                            final KProperty<?>... properties ) {
+            super( type, key, properties );
+            this.shard = shard;
+        }
+
+        @Override
+        public String getShard() {
+            return shard;
+        }
+    }
+}
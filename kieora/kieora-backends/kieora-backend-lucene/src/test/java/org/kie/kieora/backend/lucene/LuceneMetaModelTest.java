@@ -0,0 +1,95 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.backend.lucene;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Test;
+import org.kie.kieora.backend.lucene.fields.SimpleFieldFactory;
+import org.kie.kieora.backend.lucene.metamodels.LuceneMetaModelStore;
+import org.kie.kieora.backend.lucene.setups.NIOLuceneSetup;
+import org.kie.kieora.engine.MetaModelStore;
+import org.kie.kieora.model.schema.MetaObject;
+
+import static org.junit.Assert.*;
+import static org.kie.kieora.backend.lucene.KObjectTestUtil.*;
+import static org.kie.kieora.backend.lucene.FileTestUtil.*;
+
+public class LuceneMetaModelTest extends BaseIndexEngineMetaModelTest {
+
+    private final NIOLuceneSetup       luceneSetup;
+    private final LuceneMetaModelStore metaModelStore;
+
+    public LuceneMetaModelTest() {
+        try {
+            this.luceneSetup = new NIOLuceneSetup( createTempDirectory() );
+        } catch ( final IOException e ) {
+            throw new RuntimeException( e );
+        }
+        this.metaModelStore = new LuceneMetaModelStore( luceneSetup );
+    }
+
+    @Override
+    protected LuceneSetup getLuceneSetup() {
+        return luceneSetup;
+    }
+
+    @Override
+    protected MetaModelStore getMetaModelStore() {
+        return metaModelStore;
+    }
+
+    @Test
+    public void testSchemaSurvivesRestart() throws IOException {
+        final File dir = createTempDirectory();
+        final int[] writes = { 0 };
+        final NIOLuceneSetup setup = new NIOLuceneSetup( dir ) {
+            @Override
+            public void setCommitData( final String key,
+                                       final String value ) {
+                writes[ 0 ]++;
+                super.setCommitData( key, value );
+            }
+        };
+        final LuceneIndexEngine engine = new LuceneIndexEngine( new LuceneMetaModelStore( setup ), setup, new SimpleFieldFactory() );
+
+        engine.index( newKObject( "Path", "a", newKProperty( "value", "some text" ) ) );
+        engine.index( newKObject( "Path", "b", newKProperty( "value", "other text" ) ) );
+        engine.index( newKObject( "Path", "c", newKProperty( "value", 10L ) ) );
+        engine.index( newKObject( "Other", "d", newKProperty( "value", "text" ) ) );
+
+        assertEquals( 3, writes[ 0 ] );
+
+        engine.dispose();
+
+        final NIOLuceneSetup reopened = new NIOLuceneSetup( dir );
+        final LuceneMetaModelStore store = new LuceneMetaModelStore( reopened );
+
+        final MetaObject path = store.getMetaObject( "Path" );
+        assertNotNull( path );
+        assertEquals( 1, path.getProperties().size() );
+        assertTrue( path.getProperty( "value" ).isSearchable() );
+        assertEquals( 2, path.getProperty( "value" ).getTypes().size() );
+        assertTrue( path.getProperty( "value" ).getTypes().contains( Long.class ) );
+        assertNotNull( store.getMetaObject( "Other" ) );
+        assertNull( store.getMetaObject( "Missing" ) );
+
+        reopened.dispose();
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.backend.lucene;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.junit.Test;
+import org.kie.kieora.backend.lucene.setups.CommitPolicy;
+import org.kie.kieora.backend.lucene.setups.MMapLuceneSetup;
+import org.kie.kieora.backend.lucene.setups.WarmUpReport;
+import org.kie.kieora.backend.lucene.setups.WriterSettings;
+
+import static org.junit.Assert.*;
+import static org.kie.kieora.backend.lucene.FileTestUtil.*;
+
+public class MMapLuceneSetupWarmUpTest {
+
+    @Test
+    public void testWarmUpOnStartup() throws IOException {
+        final File dir = createTempDirectory();
+
+        final MMapLuceneSetup cold = new MMapLuceneSetup( dir );
+        assertNull( cold.getWarmUpReport() );
+        for ( int i = 0; i < 50; i++ ) {
+            final Document doc = new Document();
+            doc.add( new StringField( "id", "doc" + i, Field.Store.YES ) );
+            doc.add( new StringField( "key", "/dir/file" + i, Field.Store.YES ) );
+            doc.add( new StringField( "type", "Path", Field.Store.YES ) );
+            cold.indexDocument( "doc" + i, doc );
+        }
+        cold.dispose();
+
+        final MMapLuceneSetup warm = new MMapLuceneSetup( dir, CommitPolicy.defaults(), WriterSettings.defaults(),
+                                                          Arrays.asList( "key", "type", "missing" ) );
+        try {
+            final WarmUpReport report = warm.getWarmUpReport();
+            assertNotNull( report );
+            assertTrue( report.getSegments() >= 1 );
+            assertEquals( 50 + 50 + 1, report.getTerms() );
+            assertEquals( 50 + 50 + 50, report.getPostings() );
+            assertEquals( Arrays.asList( "id", "key", "type", "missing" ), Arrays.asList( report.getFieldMillis().keySet().toArray() ) );
+            assertTrue( report.getElapsedMillis() >= 0 );
+        } finally {
+            warm.dispose();
+        }
+    }
+
+}
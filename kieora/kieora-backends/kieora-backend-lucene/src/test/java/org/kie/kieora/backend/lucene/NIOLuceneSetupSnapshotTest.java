@@ -0,0 +1,115 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.backend.lucene;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.search.IndexSearcher;
+import org.junit.After;
+import org.junit.Test;
+import org.kie.kieora.backend.lucene.setups.IndexSnapshot;
+import org.kie.kieora.backend.lucene.setups.NIOLuceneSetup;
+
+import static org.junit.Assert.*;
+import static org.kie.kieora.backend.lucene.FileTestUtil.*;
+
+public class NIOLuceneSetupSnapshotTest {
+
+    private final File           source;
+    private final NIOLuceneSetup luceneSetup;
+
+    public NIOLuceneSetupSnapshotTest() {
+        try {
+            this.source = createTempDirectory();
+            this.luceneSetup = new NIOLuceneSetup( source );
+        } catch ( final IOException e ) {
+            throw new RuntimeException( e );
+        }
+    }
+
+    @After
+    public void cleanup() {
+        luceneSetup.dispose();
+    }
+
+    @Test
+    public void testSnapshotAndRestore() throws IOException {
+        index( 0, 10 );
+        luceneSetup.setCommitData( "last.indexed", "10" );
+
+        final IndexSnapshot snapshot = luceneSetup.snapshot();
+        assertEquals( "10", snapshot.getUserData().get( "last.indexed" ) );
+
+        // writers go on while the snapshot is copied
+        index( 10, 20 );
+        luceneSetup.setCommitData( "last.indexed", "20" );
+        luceneSetup.commit();
+
+        final File target = new File( createTempDirectory(), "restored" );
+        snapshot.copyTo( target );
+
+        final NIOLuceneSetup restored = new NIOLuceneSetup( target );
+        try {
+            final IndexSearcher searcher = restored.nrtSearcher();
+            assertEquals( 10, searcher.getIndexReader().numDocs() );
+            restored.nrtRelease( searcher );
+            assertEquals( "10", restored.getCommitData( "last.indexed" ) );
+        } finally {
+            restored.dispose();
+        }
+
+        String segments = null;
+        for ( final String file : snapshot.getFileNames() ) {
+            assertTrue( new File( source, file ).exists() );
+            if ( file.startsWith( "segments_" ) ) {
+                segments = file;
+            }
+        }
+        snapshot.release();
+        assertFalse( new File( source, segments ).exists() );
+
+        final IndexSearcher searcher = luceneSetup.nrtSearcher();
+        assertEquals( 20, searcher.getIndexReader().numDocs() );
+        luceneSetup.nrtRelease( searcher );
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRestoreNeedsEmptyTarget() throws IOException {
+        index( 0, 1 );
+        final IndexSnapshot snapshot = luceneSetup.snapshot();
+        try {
+            snapshot.copyTo( source );
+        } finally {
+            snapshot.release();
+        }
+    }
+
+    private void index( final int from,
+                        final int to ) {
+        for ( int i = from; i < to; i++ ) {
+            final Document doc = new Document();
+            doc.add( new StringField( "id", "doc" + i, Field.Store.YES ) );
+            luceneSetup.indexDocument( "doc" + i, doc );
+        }
+    }
+
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+
+package org.kie.kieora.backend.lucene;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+import org.kie.kieora.backend.lucene.fields.SimpleFieldFactory;
+import org.kie.kieora.backend.lucene.metamodels.InMemoryMetaModelStore;
+import org.kie.kieora.backend.lucene.setups.CommitPolicy;
+import org.kie.kieora.backend.lucene.setups.NIOLuceneSetupFactory;
+import org.kie.kieora.backend.lucene.setups.RAMLuceneSetupFactory;
+import org.kie.kieora.backend.lucene.setups.ShardedLuceneSetup;
+import org.kie.kieora.backend.lucene.setups.WriterSettings;
+import org.kie.kieora.model.KObjectKey;
+import org.kie.kieora.model.KObjectKeyFactory;
+import org.kie.kieora.search.KBooleanQuery;
+import org.kie.kieora.search.KPathQuery;
+import org.kie.kieora.search.KQuery;
+import org.kie.kieora.search.KTermQuery;
+
+import static java.util.Arrays.*;
+import static org.junit.Assert.*;
+import static org.kie.kieora.backend.lucene.FileTestUtil.*;
+import static org.kie.kieora.backend.lucene.KObjectTestUtil.*;
+
+/**
+ *
+ */
+public class ShardedLuceneSetupTest {
+
+    @Test
+    public void testShards() {
+        final ExecutorService executor = Executors.newFixedThreadPool( 2 );
+        final ShardedLuceneSetup luceneSetup = new ShardedLuceneSetup( new RAMLuceneSetupFactory(), executor );
+        final LuceneIndexEngine engine = new LuceneIndexEngine( new InMemoryMetaModelStore(), luceneSetup, new SimpleFieldFactory() );
+        try {
+            engine.index( asList( newShardedKObject( "git://master@repo", "Path", "/a/one.txt" ),
+                                  newShardedKObject( "git://master@repo", "Path", "/a/two.txt" ),
+                                  newShardedKObject( "git://dev@repo", "Path", "/a/one.txt" ),
+                                  newKObject( "Path", "/b/three.txt" ) ) );
+
+            assertEquals( 3, luceneSetup.getShards().size() );
+            assertTrue( luceneSetup.getShards().containsAll( asList( ShardedLuceneSetup.DEFAULT_SHARD, "git://dev@repo", "git://master@repo" ) ) );
+
+            // same id on two branches, one document per shard
+            assertEquals( 4, engine.count( new KBooleanQuery() ) );
+            assertEquals( 3, engine.count( new KPathQuery( "/a", true ) ) );
+
+            engine.delete( newShardedKObject( "git://master@repo", "Path", "/a/two.txt" ) );
+            assertEquals( 3, engine.count( new KBooleanQuery() ) );
+
+            luceneSetup.dropShard( "git://dev@repo" );
+            assertFalse( luceneSetup.getShards().contains( "git://dev@repo" ) );
+            assertEquals( 2, engine.count( new KBooleanQuery() ) );
+            assertEquals( 1, engine.count( new KPathQuery( "/a", true ) ) );
+        } finally {
+            engine.dispose();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testDeletesAndRenamesStayInTheirShard() {
+        final ShardedLuceneSetup luceneSetup = new ShardedLuceneSetup( new RAMLuceneSetupFactory() );
+        final LuceneIndexEngine engine = new LuceneIndexEngine( new InMemoryMetaModelStore(), luceneSetup, new SimpleFieldFactory() );
+        try {
+            engine.index( asList( newShardedKObject( "git://master@repo", "Path", "/a/one.txt" ),
+                                  newShardedKObject( "git://master@repo", "Path", "/a/b/two.txt" ),
+                                  newShardedKObject( "git://dev@repo", "Path", "/a/one.txt" ),
+                                  newShardedKObject( "git://dev@repo", "Path", "/a/b/two.txt" ) ) );
+
+            engine.delete( newShardedKey( "git://master@repo", "Path", "/a/one.txt" ) );
+            assertEquals( 1, engine.count( inShard( "git://master@repo", new KPathQuery( "/a", true ) ) ) );
+            assertEquals( 2, engine.count( inShard( "git://dev@repo", new KPathQuery( "/a", true ) ) ) );
+
+            engine.renameTree( newShardedKey( "git://master@repo", "Path", "/a" ), newShardedKey( "git://master@repo", "Path", "/c" ), KEY_FACTORY );
+            assertEquals( 0, engine.count( inShard( "git://master@repo", new KPathQuery( "/a", true ) ) ) );
+            assertEquals( 1, engine.count( inShard( "git://master@repo", new KPathQuery( "/c", true ) ) ) );
+            assertEquals( 2, engine.count( inShard( "git://dev@repo", new KPathQuery( "/a", true ) ) ) );
+            assertEquals( 0, engine.count( inShard( "git://dev@repo", new KPathQuery( "/c", true ) ) ) );
+
+            engine.deleteTree( newShardedKey( "git://dev@repo", "Path", "/a" ) );
+            assertEquals( 0, engine.count( inShard( "git://dev@repo", new KBooleanQuery() ) ) );
+            assertEquals( 1, engine.count( inShard( "git://master@repo", new KBooleanQuery() ) ) );
+
+            // keys without a shard only reach documents without one
+            engine.index( newKObject( "Path", "/c/b/old.txt" ) );
+            engine.deleteTree( newKey( "Path", "/c" ) );
+            assertEquals( 1, engine.count( new KBooleanQuery() ) );
+            assertEquals( 1, engine.count( inShard( "git://master@repo", new KPathQuery( "/c", true ) ) ) );
+        } finally {
+            engine.dispose();
+        }
+    }
+
+    @Test
+    public void testTreeMovesToTheTargetShard() {
+        final ShardedLuceneSetup luceneSetup = new ShardedLuceneSetup( new RAMLuceneSetupFactory() );
+        final LuceneIndexEngine engine = new LuceneIndexEngine( new InMemoryMetaModelStore(), luceneSetup, new SimpleFieldFactory() );
+        try {
+            engine.index( asList( newShardedKObject( "git://master@repo", "Path", "/a" ),
+                                  newShardedKObject( "git://master@repo", "Path", "/a/b/one.txt" ) ) );
+
+            engine.renameTree( newShardedKey( "git://master@repo", "Path", "/a" ), newShardedKey( "git://dev@repo", "Path", "/a" ), new KObjectKeyFactory() {
+                @Override
+                public KObjectKey newKey( final String type,
+                                          final String key ) {
+                    return newShardedKey( "git://dev@repo", type, key );
+                }
+            } );
+
+            assertEquals( 0, engine.count( inShard( "git://master@repo", new KBooleanQuery() ) ) );
+            assertEquals( 2, engine.count( inShard( "git://dev@repo", new KBooleanQuery() ) ) );
+            assertTrue( luceneSetup.getShards().contains( "git://dev@repo" ) );
+        } finally {
+            engine.dispose();
+        }
+    }
+
+    @Test
+    public void testScanningStaysInTheShard() {
+        final ShardedLuceneSetup luceneSetup = new ShardedLuceneSetup( new RAMLuceneSetupFactory() );
+        final LuceneIndexEngine engine = new LuceneIndexEngine( new InMemoryMetaModelStore(), luceneSetup, new SimpleFieldFactory() );
+        try {
+            engine.index( asList( newShardedKObject( "git://master@repo", "Path", "/a/one.txt", newKProperty( "value", "master" ) ),
+                                  newShardedKObject( "git://dev@repo", "Path", "/a/one.txt", newKProperty( "value", "dev" ) ),
+                                  newShardedKObject( "git://dev@repo", "Path", "/b/two.txt" ),
+                                  newKObject( "Path", "/c/three.txt" ) ) );
+
+            assertEquals( asList( "/a" ), new ArrayList<String>( engine.branches( "git://master@repo", "/" ) ) );
+            assertEquals( asList( "/a", "/b" ), new ArrayList<String>( engine.branches( "git://dev@repo", "/" ) ) );
+            assertEquals( asList( "/c" ), new ArrayList<String>( engine.branches( null, "/" ) ) );
+
+            final Map<String, String> master = engine.fingerprints( "git://master@repo", new KPathQuery( "/a", false ) );
+            final Map<String, String> dev = engine.fingerprints( "git://dev@repo", new KPathQuery( "/a", false ) );
+            assertEquals( 1, master.size() );
+            assertEquals( 1, dev.size() );
+            assertFalse( master.get( "/a/one.txt" ).equals( dev.get( "/a/one.txt" ) ) );
+            assertTrue( engine.fingerprints( null, new KPathQuery( "/a", false ) ).isEmpty() );
+        } finally {
+            engine.dispose();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testDefaultShardIsKept() {
+        final ShardedLuceneSetup luceneSetup = new ShardedLuceneSetup( new RAMLuceneSetupFactory() );
+        try {
+            luceneSetup.dropShard( ShardedLuceneSetup.DEFAULT_SHARD );
+        } finally {
+            luceneSetup.dispose();
+        }
+    }
+
+    @Test
+    public void testShardsSurviveRestart() throws IOException {
+        final File root = createTempDirectory();
+        final NIOLuceneSetupFactory factory = new NIOLuceneSetupFactory( root, CommitPolicy.manual(), WriterSettings.defaults() );
+
+        final LuceneIndexEngine engine = new LuceneIndexEngine( new InMemoryMetaModelStore(), new ShardedLuceneSetup( factory ), new SimpleFieldFactory() );
+        engine.index( asList( newShardedKObject( "git://master@repo", "Path", "/a/one.txt" ),
+                              newShardedKObject( "git://dev@repo", "Path", "/a/one.txt" ) ) );
+        engine.dispose();
+
+        final ShardedLuceneSetup reopened = new ShardedLuceneSetup( factory );
+        final LuceneIndexEngine other = new LuceneIndexEngine( new InMemoryMetaModelStore(), reopened, new SimpleFieldFactory() );
+        try {
+            assertEquals( 3, reopened.getShards().size() );
+            assertEquals( 2, other.count( new KBooleanQuery() ) );
+
+            reopened.dropShard( "git://dev@repo" );
+            assertEquals( 1, other.count( new KBooleanQuery() ) );
+            assertEquals( 2, factory.existingShards().size() );
+        } finally {
+            other.dispose();
+        }
+    }
+
+    @Test
+    public void testCommitDataSurvivesRestart() throws IOException {
+        final File root = createTempDirectory();
+        final NIOLuceneSetupFactory factory = new NIOLuceneSetupFactory( root, CommitPolicy.manual(), WriterSettings.defaults() );
+
+        final ShardedLuceneSetup setup = new ShardedLuceneSetup( factory );
+        setup.setCommitData( "checkpoint", "abc" );
+        setup.setCommitData( "gone", "x" );
+        setup.setCommitData( "gone", null );
+        assertEquals( "abc", setup.getCommitData( "checkpoint" ) );
+        // no document changed, the data alone is committed
+        setup.commit();
+        setup.setCommitData( "checkpoint", "def" );
+        setup.dispose();
+
+        final ShardedLuceneSetup reopened = new ShardedLuceneSetup( factory );
+        try {
+            assertEquals( "def", reopened.getCommitData( "checkpoint" ) );
+            assertNull( reopened.getCommitData( "gone" ) );
+        } finally {
+            reopened.dispose();
+        }
+    }
+
+    private static KQuery inShard( final String shard,
+                                   final KQuery query ) {
+        return new KBooleanQuery().must( new KTermQuery( ShardedLuceneSetup.SHARD_FIELD, shard ) ).must( query );
+    }
+}
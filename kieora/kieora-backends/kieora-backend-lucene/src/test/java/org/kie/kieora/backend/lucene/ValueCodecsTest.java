@@ -0,0 +1,153 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.backend.lucene;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.store.DataInput;
+import org.apache.lucene.store.DataOutput;
+import org.junit.Test;
+import org.kie.kieora.backend.lucene.util.Serializer;
+import org.kie.kieora.backend.lucene.values.ValueCodec;
+import org.kie.kieora.backend.lucene.values.ValueCodecs;
+
+import static org.junit.Assert.*;
+
+public class ValueCodecsTest {
+
+    private final ValueCodecs codecs = new ValueCodecs( true );
+
+    @Test
+    public void testRoundTrip() {
+        for ( final Object value : Arrays.asList( null, "text", true, 42, -42, Long.MIN_VALUE, (short) -3, (byte) 7, 'x',
+                                                  1.5d, -2.5f, new Date( 1360000000000L ), TimeUnit.SECONDS,
+                                                  new LinkedHashSet<String>( Arrays.asList( "a", "b" ) ),
+                                                  Arrays.asList( "a", null, 1 ) ) ) {
+            assertEquals( value, codecs.decode( codecs.encode( value ) ) );
+        }
+
+        assertArrayEquals( new byte[]{ 1, 2, 3 }, (byte[]) codecs.decode( codecs.encode( new byte[]{ 1, 2, 3 } ) ) );
+    }
+
+    @Test
+    public void testNestedSmallerThanSerialization() throws IOException {
+        final Map<String, Object> value = new HashMap<String, Object>();
+        value.put( "dcore.creator", new ArrayList<String>( Arrays.asList( "admin", "guest" ) ) );
+        value.put( "dcore.date", new Date( 1360000000000L ) );
+        value.put( "size", 1024L );
+
+        final byte[] encoded = codecs.encode( value );
+        assertEquals( value, codecs.decode( encoded ) );
+        assertTrue( encoded.length * 4 < Serializer.toByteArray( value ).length );
+    }
+
+    @Test
+    public void testSerializationFallback() {
+        final StringBuilder value = new StringBuilder( "builder" );
+
+        assertEquals( "builder", codecs.decode( codecs.encode( value ) ).toString() );
+        assertFalse( new ValueCodecs( false ).canEncode( value ) );
+        assertFalse( ValueCodecs.defaults().canEncode( value ) );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNestedWithoutCodec() {
+        new ValueCodecs( false ).encode( Arrays.asList( "a", new StringBuilder() ) );
+    }
+
+    @Test
+    public void testCustomCodec() {
+        final ValueCodecs custom = new ValueCodecs( false, new PointCodec() );
+        final List<Point> points = Arrays.asList( new Point( 1, -1 ), new Point( 3, 4 ) );
+
+        assertEquals( points, custom.decode( custom.encode( points ) ) );
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testReservedTag() {
+        new ValueCodecs( false, new PointCodec() {
+            @Override
+            public int getTag() {
+                return 3;
+            }
+        } );
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testTagCollision() {
+        new ValueCodecs( false, new PointCodec(), new PointCodec() );
+    }
+
+    private static class Point {
+
+        final int x;
+        final int y;
+
+        Point( final int x,
+               final int y ) {
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        public boolean equals( final Object o ) {
+            return o instanceof Point && ( (Point) o ).x == x && ( (Point) o ).y == y;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * x + y;
+        }
+    }
+
+    private static class PointCodec implements ValueCodec<Point> {
+
+        @Override
+        public int getTag() {
+            return ValueCodecs.FIRST_CUSTOM_TAG;
+        }
+
+        @Override
+        public Class<Point> getType() {
+            return Point.class;
+        }
+
+        @Override
+        public void write( final ValueCodecs codecs,
+                           final Point value,
+                           final DataOutput out ) throws IOException {
+            ValueCodecs.writeZLong( value.x, out );
+            ValueCodecs.writeZLong( value.y, out );
+        }
+
+        @Override
+        public Point read( final ValueCodecs codecs,
+                           final DataInput in ) throws IOException {
+            return new Point( (int) ValueCodecs.readZLong( in ), (int) ValueCodecs.readZLong( in ) );
+        }
+    }
+
+}
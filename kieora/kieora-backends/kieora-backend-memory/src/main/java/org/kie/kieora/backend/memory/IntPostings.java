@@ -0,0 +1,60 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.backend.memory;
+
+import java.util.Arrays;
+
+/**
+ * Append only list of doc numbers, kept in ascending order by construction as documents only get fresh numbers.
+ */
+final class IntPostings {
+
+    private int[] docs = new int[ 4 ];
+    private int   size = 0;
+
+    void add( final int doc ) {
+        if ( size == docs.length ) {
+            docs = Arrays.copyOf( docs, size << 1 );
+        }
+        docs[ size++ ] = doc;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int get( final int index ) {
+        return docs[ index ];
+    }
+
+    /**
+     * Renumbers the entries through the given table, dropping those mapped to -1; order is kept as the table is
+     * ascending for live documents.
+     */
+    void remap( final int[] numbers ) {
+        int live = 0;
+        for ( int i = 0; i < size; i++ ) {
+            final int doc = numbers[ docs[ i ] ];
+            if ( doc != -1 ) {
+                docs[ live++ ] = doc;
+            }
+        }
+        size = live;
+    }
+
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.backend.memory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits keys, absolute '/' separated paths, into the directories above them.
+ */
+final class KeyHierarchy {
+
+    private KeyHierarchy() {
+
+    }
+
+    static String normalize( final String path ) {
+        int end = path.length();
+        while ( end > 1 && path.charAt( end - 1 ) == '/' ) {
+            end--;
+        }
+        return path.substring( 0, end );
+    }
+
+    /**
+     * Outermost first; "/a/b/c" gives "/", "/a" and "/a/b".
+     */
+    static List<String> ancestors( final String key ) {
+        final String path = normalize( key );
+        final List<String> result = new ArrayList<String>();
+        if ( !path.startsWith( "/" ) || path.length() == 1 ) {
+            return result;
+        }
+        result.add( "/" );
+        for ( int i = path.indexOf( '/', 1 ); i != -1; i = path.indexOf( '/', i + 1 ) ) {
+            result.add( path.substring( 0, i ) );
+        }
+        return result;
+    }
+
+}
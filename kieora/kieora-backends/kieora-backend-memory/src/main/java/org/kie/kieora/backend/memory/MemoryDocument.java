@@ -0,0 +1,107 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.backend.memory;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.kie.kieora.model.KObject;
+import org.kie.kieora.model.KObjectKey;
+import org.kie.kieora.model.KProperty;
+import org.kie.kieora.model.schema.MetaType;
+
+/**
+ * Immutable copy of an indexed object; it doubles as the key handed out by searches.
+ */
+final class MemoryDocument implements KObjectKey {
+
+    private final String              id;
+    private final MetaType            type;
+    private final String              key;
+    private final Map<String, Object> values;
+    private final Set<String>         searchable;
+
+    MemoryDocument( final KObject object ) {
+        final Map<String, Object> values = new LinkedHashMap<String, Object>();
+        final Set<String> searchable = new HashSet<String>();
+        for ( final KProperty<?> property : object.getProperties() ) {
+            values.put( property.getName(), property.getValue() );
+            if ( property.isSearchable() ) {
+                searchable.add( property.getName() );
+            }
+        }
+        this.id = object.getId();
+        this.type = newMetaType( object.getType().getName() );
+        this.key = object.getKey();
+        this.values = Collections.unmodifiableMap( values );
+        this.searchable = Collections.unmodifiableSet( searchable );
+    }
+
+    private MemoryDocument( final MemoryDocument source,
+                            final String id,
+                            final String key ) {
+        this.id = id;
+        this.type = source.type;
+        this.key = key;
+        this.values = source.values;
+        this.searchable = source.searchable;
+    }
+
+    /**
+     * Same type and properties under another id and key.
+     */
+    MemoryDocument moveTo( final String id,
+                           final String key ) {
+        return new MemoryDocument( this, id, key );
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public MetaType getType() {
+        return type;
+    }
+
+    @Override
+    public String getKey() {
+        return key;
+    }
+
+    Map<String, Object> getValues() {
+        return values;
+    }
+
+    boolean isSearchable( final String property ) {
+        return searchable.contains( property );
+    }
+
+    private static MetaType newMetaType( final String name ) {
+        return new MetaType() {
+            @Override
+            public String getName() {
+                return name;
+            }
+        };
+    }
+}
@@ -0,0 +1,702 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.backend.memory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+import org.kie.kieora.engine.MetaIndexEngine;
+import org.kie.kieora.engine.MetaSearchEngine;
+import org.kie.kieora.model.KObject;
+import org.kie.kieora.model.KObjectKey;
+import org.kie.kieora.model.KObjectKeyFactory;
+import org.kie.kieora.search.KBooleanQuery;
+import org.kie.kieora.search.KFullTextQuery;
+import org.kie.kieora.search.KPathQuery;
+import org.kie.kieora.search.KPrefixQuery;
+import org.kie.kieora.search.KQuery;
+import org.kie.kieora.search.KRangeQuery;
+import org.kie.kieora.search.KTermQuery;
+import org.kie.kieora.search.KTypeQuery;
+import org.kie.kieora.search.PagedResult;
+
+import static org.kie.commons.validation.Preconditions.*;
+import static org.kie.kieora.backend.memory.KeyHierarchy.*;
+
+/**
+ * Index engine for indexes that fit in memory, with no segments, commits or analyzers to pay for. Documents get
+ * ascending numbers and each term keeps an append only {@link IntPostings} list in a sorted term map, so point
+ * operations are hash lookups and prefix queries walk a sub map. Deletes only drop the document and its id; stale
+ * postings are skipped while reading and the postings are renumbered once most of the index is deleted.
+ * <p/>
+ * Searchable text is split into lower cased words like the Lucene backend's analyzer does, other strings and
+ * collection elements are indexed as they are; numbers and dates are only kept for ranges, facets and sorting.
+ */
+public class MemoryIndexEngine implements MetaIndexEngine,
+                                          MetaSearchEngine {
+
+    private static final String  ID                = "id";
+    private static final String  TYPE              = "type";
+    private static final String  KEY               = "key";
+    private static final String  ANCESTOR          = "key.ancestor";
+    private static final String  PARENT            = "key.parent";
+    private static final int     COMPACT_THRESHOLD = 1024;
+    private static final Pattern NON_WORD          = Pattern.compile( "[^\\p{L}\\p{N}]+" );
+
+    private final ReadWriteLock                             lock   = new ReentrantReadWriteLock();
+    private final Map<String, Integer>                      ids    = new HashMap<String, Integer>();
+    private final Map<String, TreeMap<String, IntPostings>> fields = new HashMap<String, TreeMap<String, IntPostings>>();
+
+    private MemoryDocument[] docs    = new MemoryDocument[ 64 ];
+    private int              maxDoc  = 0;
+    private int              deleted = 0;
+
+    @Override
+    public void index( final KObject object ) {
+        checkNotNull( "object", object );
+
+        final MemoryDocument doc = new MemoryDocument( object );
+        lock.writeLock().lock();
+        try {
+            add( doc );
+            maybeCompact();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void index( final KObject... objects ) {
+        index( Arrays.asList( objects ) );
+    }
+
+    @Override
+    public void index( final Iterable<KObject> objects ) {
+        checkNotNull( "objects", objects );
+
+        final List<MemoryDocument> batch = new ArrayList<MemoryDocument>();
+        for ( final KObject object : objects ) {
+            batch.add( new MemoryDocument( object ) );
+        }
+        lock.writeLock().lock();
+        try {
+            for ( final MemoryDocument doc : batch ) {
+                add( doc );
+            }
+            maybeCompact();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void rename( final KObjectKey from,
+                        final KObjectKey to ) {
+        checkNotNull( "from", from );
+        checkNotNull( "to", to );
+
+        lock.writeLock().lock();
+        try {
+            final Integer doc = ids.get( from.getId() );
+            if ( doc != null ) {
+                final MemoryDocument source = docs[ doc ];
+                remove( doc );
+                add( source.moveTo( to.getId(), to.getKey() ) );
+            }
+            maybeCompact();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void renameTree( final KObjectKey from,
+                            final KObjectKey to,
+                            final KObjectKeyFactory keyFactory ) {
+        checkNotNull( "from", from );
+        checkNotNull( "to", to );
+        checkNotNull( "keyFactory", keyFactory );
+
+        final String fromKey = normalize( from.getKey() );
+        final String toKey = normalize( to.getKey() );
+        lock.writeLock().lock();
+        try {
+            final BitSet tree = subtree( from );
+            final List<MemoryDocument> moved = new ArrayList<MemoryDocument>( tree.cardinality() );
+            for ( int doc = tree.nextSetBit( 0 ); doc >= 0; doc = tree.nextSetBit( doc + 1 ) ) {
+                final MemoryDocument source = docs[ doc ];
+                remove( doc );
+                if ( source.getId().equals( from.getId() ) ) {
+                    moved.add( source.moveTo( to.getId(), to.getKey() ) );
+                } else {
+                    final KObjectKey target = keyFactory.newKey( source.getType().getName(), toKey + normalize( source.getKey() ).substring( fromKey.length() ) );
+                    moved.add( source.moveTo( target.getId(), target.getKey() ) );
+                }
+            }
+            for ( final MemoryDocument doc : moved ) {
+                add( doc );
+            }
+            maybeCompact();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void delete( final KObjectKey objectKey ) {
+        delete( new KObjectKey[]{ objectKey } );
+    }
+
+    @Override
+    public void delete( final KObjectKey... objectsKey ) {
+        checkNotNull( "objectsKey", objectsKey );
+
+        lock.writeLock().lock();
+        try {
+            for ( final KObjectKey objectKey : objectsKey ) {
+                final Integer doc = ids.get( objectKey.getId() );
+                if ( doc != null ) {
+                    remove( doc );
+                }
+            }
+            maybeCompact();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void deleteTree( final KObjectKey root ) {
+        checkNotNull( "root", root );
+
+        lock.writeLock().lock();
+        try {
+            final BitSet tree = subtree( root );
+            for ( int doc = tree.nextSetBit( 0 ); doc >= 0; doc = tree.nextSetBit( doc + 1 ) ) {
+                remove( doc );
+            }
+            maybeCompact();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Nothing to make durable.
+     */
+    @Override
+    public void commit() {
+    }
+
+    @Override
+    public PagedResult<KObjectKey> search( final KQuery query,
+                                           final int offset,
+                                           final int pageSize ) {
+        checkNotNull( "query", query );
+        checkCondition( "offset can't be negative", offset >= 0 );
+        checkCondition( "pageSize must be positive", pageSize > 0 );
+
+        lock.readLock().lock();
+        try {
+            final BitSet matches = match( query );
+            final List<KObjectKey> result = new ArrayList<KObjectKey>( pageSize );
+            int position = 0;
+            for ( int doc = matches.nextSetBit( 0 ); doc >= 0 && result.size() < pageSize; doc = matches.nextSetBit( doc + 1 ) ) {
+                if ( position++ >= offset ) {
+                    result.add( docs[ doc ] );
+                }
+            }
+            return new PagedResult<KObjectKey>( result, matches.cardinality(), offset );
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public PagedResult<KObjectKey> search( final KQuery query,
+                                           final String sortBy,
+                                           final boolean descending,
+                                           final int offset,
+                                           final int pageSize ) {
+        checkNotNull( "query", query );
+        checkNotEmpty( "sortBy", sortBy );
+        checkCondition( "offset can't be negative", offset >= 0 );
+        checkCondition( "pageSize must be positive", pageSize > 0 );
+
+        final List<MemoryDocument> matches = new ArrayList<MemoryDocument>();
+        lock.readLock().lock();
+        try {
+            final BitSet bits = match( query );
+            for ( int doc = bits.nextSetBit( 0 ); doc >= 0; doc = bits.nextSetBit( doc + 1 ) ) {
+                matches.add( docs[ doc ] );
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Collections.sort( matches, new SortComparator( sortBy, descending ) );
+        final List<KObjectKey> result = new ArrayList<KObjectKey>( pageSize );
+        for ( int i = offset; i < matches.size() && result.size() < pageSize; i++ ) {
+            result.add( matches.get( i ) );
+        }
+        return new PagedResult<KObjectKey>( result, matches.size(), offset );
+    }
+
+    @Override
+    public int count( final KQuery query ) {
+        checkNotNull( "query", query );
+
+        lock.readLock().lock();
+        try {
+            return match( query ).cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<String, Integer> facets( final KQuery query,
+                                        final String property ) {
+        checkNotNull( "query", query );
+        checkNotEmpty( "property", property );
+
+        final Map<String, Integer> counts = new HashMap<String, Integer>();
+        lock.readLock().lock();
+        try {
+            final BitSet matches = match( query );
+            for ( int doc = matches.nextSetBit( 0 ); doc >= 0; doc = matches.nextSetBit( doc + 1 ) ) {
+                final Object value = docs[ doc ].getValues().get( property );
+                if ( value instanceof String ) {
+                    increment( counts, (String) value );
+                } else if ( value instanceof Collection ) {
+                    for ( final Object element : new HashSet<Object>( (Collection<?>) value ) ) {
+                        increment( counts, String.valueOf( element ) );
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return counts;
+    }
+
+    @Override
+    public Map<Long, Integer> facets( final KQuery query,
+                                      final String property,
+                                      final long bucketSize ) {
+        checkNotNull( "query", query );
+        checkNotEmpty( "property", property );
+        checkCondition( "bucketSize must be positive", bucketSize > 0 );
+
+        final Map<Long, Integer> counts = new TreeMap<Long, Integer>();
+        lock.readLock().lock();
+        try {
+            final BitSet matches = match( query );
+            for ( int doc = matches.nextSetBit( 0 ); doc >= 0; doc = matches.nextSetBit( doc + 1 ) ) {
+                final Object value = docs[ doc ].getValues().get( property );
+                final long number;
+                if ( value instanceof Date ) {
+                    number = ( (Date) value ).getTime();
+                } else if ( value instanceof Number ) {
+                    number = ( (Number) value ).longValue();
+                } else {
+                    continue;
+                }
+                final long bucket = number / bucketSize;
+                increment( counts, ( number < 0 && number % bucketSize != 0 ? bucket - 1 : bucket ) * bucketSize );
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return counts;
+    }
+
+    /**
+     * Number of live documents.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ids.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void dispose() {
+        lock.writeLock().lock();
+        try {
+            ids.clear();
+            fields.clear();
+            docs = new MemoryDocument[ 64 ];
+            maxDoc = 0;
+            deleted = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void add( final MemoryDocument doc ) {
+        final Integer previous = ids.get( doc.getId() );
+        if ( previous != null ) {
+            remove( previous );
+        }
+        if ( maxDoc == docs.length ) {
+            docs = Arrays.copyOf( docs, maxDoc << 1 );
+        }
+        final int number = maxDoc++;
+        docs[ number ] = doc;
+        ids.put( doc.getId(), number );
+
+        for ( final Map.Entry<String, Set<String>> field : terms( doc ).entrySet() ) {
+            TreeMap<String, IntPostings> terms = fields.get( field.getKey() );
+            if ( terms == null ) {
+                terms = new TreeMap<String, IntPostings>();
+                fields.put( field.getKey(), terms );
+            }
+            for ( final String term : field.getValue() ) {
+                IntPostings postings = terms.get( term );
+                if ( postings == null ) {
+                    postings = new IntPostings();
+                    terms.put( term, postings );
+                }
+                postings.add( number );
+            }
+        }
+    }
+
+    private void remove( final int doc ) {
+        ids.remove( docs[ doc ].getId() );
+        docs[ doc ] = null;
+        deleted++;
+    }
+
+    /**
+     * Renumbers the live documents once more than half of the numbers are stale, rewriting the postings in place.
+     */
+    private void maybeCompact() {
+        if ( deleted < COMPACT_THRESHOLD || deleted * 2 < maxDoc ) {
+            return;
+        }
+        final int[] numbers = new int[ maxDoc ];
+        final MemoryDocument[] live = new MemoryDocument[ Math.max( 64, ( maxDoc - deleted ) << 1 ) ];
+        int count = 0;
+        for ( int doc = 0; doc < maxDoc; doc++ ) {
+            if ( docs[ doc ] == null ) {
+                numbers[ doc ] = -1;
+            } else {
+                numbers[ doc ] = count;
+                live[ count ] = docs[ doc ];
+                ids.put( docs[ doc ].getId(), count );
+                count++;
+            }
+        }
+        for ( final TreeMap<String, IntPostings> terms : fields.values() ) {
+            final Iterator<IntPostings> iterator = terms.values().iterator();
+            while ( iterator.hasNext() ) {
+                final IntPostings postings = iterator.next();
+                postings.remap( numbers );
+                if ( postings.size() == 0 ) {
+                    iterator.remove();
+                }
+            }
+        }
+        docs = live;
+        maxDoc = count;
+        deleted = 0;
+    }
+
+    private Map<String, Set<String>> terms( final MemoryDocument doc ) {
+        final Map<String, Set<String>> result = new HashMap<String, Set<String>>();
+        put( result, TYPE, doc.getType().getName() );
+        put( result, KEY, doc.getKey() );
+        final List<String> ancestors = ancestors( doc.getKey() );
+        for ( final String ancestor : ancestors ) {
+            put( result, ANCESTOR, ancestor );
+        }
+        if ( !ancestors.isEmpty() ) {
+            put( result, PARENT, ancestors.get( ancestors.size() - 1 ) );
+        }
+
+        for ( final Map.Entry<String, Object> property : doc.getValues().entrySet() ) {
+            final boolean searchable = doc.isSearchable( property.getKey() );
+            final Object value = property.getValue();
+            if ( value instanceof String ) {
+                addText( result, property.getKey(), (String) value, searchable );
+            } else if ( value instanceof Collection ) {
+                for ( final Object element : (Collection<?>) value ) {
+                    addText( result, property.getKey(), String.valueOf( element ), searchable );
+                }
+            }
+        }
+        return result;
+    }
+
+    private void addText( final Map<String, Set<String>> terms,
+                          final String field,
+                          final String text,
+                          final boolean searchable ) {
+        if ( !searchable ) {
+            put( terms, field, text );
+            return;
+        }
+        for ( final String word : words( text ) ) {
+            put( terms, field, word );
+        }
+    }
+
+    private static List<String> words( final String text ) {
+        final List<String> result = new ArrayList<String>();
+        for ( final String word : NON_WORD.split( text.toLowerCase() ) ) {
+            if ( !word.isEmpty() ) {
+                result.add( word );
+            }
+        }
+        return result;
+    }
+
+    private static void put( final Map<String, Set<String>> terms,
+                             final String field,
+                             final String term ) {
+        Set<String> values = terms.get( field );
+        if ( values == null ) {
+            values = new HashSet<String>();
+            terms.put( field, values );
+        }
+        values.add( term );
+    }
+
+    private BitSet match( final KQuery query ) {
+        if ( query instanceof KTermQuery ) {
+            final KTermQuery termQuery = (KTermQuery) query;
+            if ( termQuery.getProperty().equals( ID ) ) {
+                final BitSet result = new BitSet();
+                final Integer doc = ids.get( termQuery.getValue() );
+                if ( doc != null ) {
+                    result.set( doc );
+                }
+                return result;
+            }
+            return postings( termQuery.getProperty(), termQuery.getValue() );
+        }
+        if ( query instanceof KTypeQuery ) {
+            return postings( TYPE, ( (KTypeQuery) query ).getType() );
+        }
+        if ( query instanceof KPathQuery ) {
+            final KPathQuery pathQuery = (KPathQuery) query;
+            return postings( pathQuery.isRecursive() ? ANCESTOR : PARENT, normalize( pathQuery.getPath() ) );
+        }
+        if ( query instanceof KPrefixQuery ) {
+            return prefix( (KPrefixQuery) query );
+        }
+        if ( query instanceof KFullTextQuery ) {
+            final KFullTextQuery fullTextQuery = (KFullTextQuery) query;
+            BitSet result = null;
+            for ( final String word : words( fullTextQuery.getText() ) ) {
+                final BitSet postings = postings( fullTextQuery.getProperty(), word );
+                if ( result == null ) {
+                    result = postings;
+                } else {
+                    result.and( postings );
+                }
+            }
+            return result == null ? new BitSet() : result;
+        }
+        if ( query instanceof KRangeQuery ) {
+            return range( (KRangeQuery) query );
+        }
+        if ( query instanceof KBooleanQuery ) {
+            return bool( (KBooleanQuery) query );
+        }
+
+        throw new IllegalArgumentException( "Unsupported query '" + query.getClass().getName() + "'." );
+    }
+
+    private BitSet postings( final String field,
+                             final String term ) {
+        final BitSet result = new BitSet();
+        final TreeMap<String, IntPostings> terms = fields.get( field );
+        if ( terms != null ) {
+            collect( terms.get( term ), result );
+        }
+        return result;
+    }
+
+    private BitSet prefix( final KPrefixQuery query ) {
+        final BitSet result = new BitSet();
+        final TreeMap<String, IntPostings> terms = fields.get( query.getProperty() );
+        if ( terms != null ) {
+            final String prefix = query.getPrefix();
+            for ( final IntPostings postings : terms.subMap( prefix, true, prefix + Character.MAX_VALUE, false ).values() ) {
+                collect( postings, result );
+            }
+        }
+        return result;
+    }
+
+    private void collect( final IntPostings postings,
+                          final BitSet result ) {
+        if ( postings == null ) {
+            return;
+        }
+        for ( int i = 0; i < postings.size(); i++ ) {
+            final int doc = postings.get( i );
+            if ( docs[ doc ] != null ) {
+                result.set( doc );
+            }
+        }
+    }
+
+    private BitSet range( final KRangeQuery query ) {
+        final Double from = query.getFrom() != null ? toDouble( query.getFrom() ) : null;
+        final Double to = query.getTo() != null ? toDouble( query.getTo() ) : null;
+
+        final BitSet result = new BitSet();
+        for ( int doc = 0; doc < maxDoc; doc++ ) {
+            if ( docs[ doc ] == null ) {
+                continue;
+            }
+            final Double value = toDouble( docs[ doc ].getValues().get( query.getProperty() ) );
+            if ( value == null ) {
+                continue;
+            }
+            if ( from != null && ( query.isIncludeFrom() ? value < from : value <= from ) ) {
+                continue;
+            }
+            if ( to != null && ( query.isIncludeTo() ? value > to : value >= to ) ) {
+                continue;
+            }
+            result.set( doc );
+        }
+        return result;
+    }
+
+    private BitSet bool( final KBooleanQuery query ) {
+        BitSet result = null;
+        for ( final KQuery clause : query.getMust() ) {
+            if ( result == null ) {
+                result = match( clause );
+            } else {
+                result.and( match( clause ) );
+            }
+        }
+        // optional clauses only narrow anything down when nothing is required
+        if ( result == null && !query.getShould().isEmpty() ) {
+            result = new BitSet();
+            for ( final KQuery clause : query.getShould() ) {
+                result.or( match( clause ) );
+            }
+        }
+        if ( result == null ) {
+            result = all();
+        }
+        for ( final KQuery clause : query.getMustNot() ) {
+            result.andNot( match( clause ) );
+        }
+        return result;
+    }
+
+    private BitSet all() {
+        final BitSet result = new BitSet( maxDoc );
+        for ( int doc = 0; doc < maxDoc; doc++ ) {
+            if ( docs[ doc ] != null ) {
+                result.set( doc );
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The root itself, by id, and every document below its key.
+     */
+    private BitSet subtree( final KObjectKey root ) {
+        final BitSet result = postings( ANCESTOR, normalize( root.getKey() ) );
+        final Integer doc = ids.get( root.getId() );
+        if ( doc != null ) {
+            result.set( doc );
+        }
+        return result;
+    }
+
+    private static Double toDouble( final Object value ) {
+        if ( value instanceof Number ) {
+            return ( (Number) value ).doubleValue();
+        }
+        if ( value instanceof Date ) {
+            return (double) ( (Date) value ).getTime();
+        }
+        return null;
+    }
+
+    private static <K> void increment( final Map<K, Integer> counts,
+                                       final K key ) {
+        final Integer count = counts.get( key );
+        counts.put( key, count == null ? 1 : count + 1 );
+    }
+
+    /**
+     * Numbers and dates by value, anything else by its text; documents without the property go last.
+     */
+    private static class SortComparator implements Comparator<MemoryDocument> {
+
+        private final String  property;
+        private final boolean descending;
+
+        SortComparator( final String property,
+                        final boolean descending ) {
+            this.property = property;
+            this.descending = descending;
+        }
+
+        @Override
+        public int compare( final MemoryDocument o1,
+                            final MemoryDocument o2 ) {
+            final Object v1 = o1.getValues().get( property );
+            final Object v2 = o2.getValues().get( property );
+            if ( v1 == null || v2 == null ) {
+                return v1 == null ? ( v2 == null ? 0 : 1 ) : -1;
+            }
+            final Double d1 = toDouble( v1 );
+            final Double d2 = toDouble( v2 );
+            final int result;
+            if ( d1 != null && d2 != null ) {
+                result = d1.compareTo( d2 );
+            } else {
+                result = String.valueOf( v1 ).compareTo( String.valueOf( v2 ) );
+            }
+            return descending ? -result : result;
+        }
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.backend.memory;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+import org.kie.kieora.backend.lucene.LuceneIndexEngine;
+import org.kie.kieora.backend.lucene.fields.SimpleFieldFactory;
+import org.kie.kieora.backend.lucene.metamodels.InMemoryMetaModelStore;
+import org.kie.kieora.backend.lucene.setups.RAMLuceneSetup;
+import org.kie.kieora.engine.MetaIndexEngine;
+import org.kie.kieora.engine.MetaSearchEngine;
+import org.kie.kieora.model.KObject;
+import org.kie.kieora.search.KPrefixQuery;
+import org.kie.kieora.search.KTermQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.junit.Assert.*;
+import static org.kie.kieora.backend.memory.MemoryIndexEngineTest.*;
+
+/**
+ * Rough comparison of point operations against the Lucene backend on a RAM directory; the numbers are only logged.
+ */
+public class MemoryIndexEngineBenchmarkTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger( MemoryIndexEngineBenchmarkTest.class );
+
+    private static final int OBJECTS = 5000;
+
+    @Test
+    public void testMemoryVersusLucene() {
+        final List<KObject> objects = new ArrayList<KObject>( OBJECTS );
+        for ( int i = 0; i < OBJECTS; i++ ) {
+            objects.add( newKObject( "Path", "/dir" + ( i % 50 ) + "/file" + i, "author" + ( i % 7 ), "some comment " + i, i, new Date( i ) ) );
+        }
+
+        final MemoryIndexEngine memory = new MemoryIndexEngine();
+        final RAMLuceneSetup luceneSetup = new RAMLuceneSetup();
+        final LuceneIndexEngine lucene = new LuceneIndexEngine( new InMemoryMetaModelStore(), luceneSetup, new SimpleFieldFactory() );
+        try {
+            // warm up both, then measure
+            run( memory, memory, objects );
+            run( lucene, lucene, objects );
+            final long[] memoryNanos = run( memory, memory, objects );
+            final long[] luceneNanos = run( lucene, lucene, objects );
+
+            LOG.info( "{} objects, ns per operation (index/lookup/prefix/delete): memory {}/{}/{}/{}, lucene {}/{}/{}/{}",
+                      new Object[]{ OBJECTS,
+                              memoryNanos[ 0 ], memoryNanos[ 1 ], memoryNanos[ 2 ], memoryNanos[ 3 ],
+                              luceneNanos[ 0 ], luceneNanos[ 1 ], luceneNanos[ 2 ], luceneNanos[ 3 ] } );
+        } finally {
+            memory.dispose();
+            lucene.dispose();
+        }
+    }
+
+    private long[] run( final MetaIndexEngine indexEngine,
+                        final MetaSearchEngine searchEngine,
+                        final List<KObject> objects ) {
+        final long[] result = new long[ 4 ];
+
+        long start = System.nanoTime();
+        for ( final KObject object : objects ) {
+            indexEngine.index( object );
+        }
+        result[ 0 ] = ( System.nanoTime() - start ) / objects.size();
+
+        start = System.nanoTime();
+        for ( final KObject object : objects ) {
+            assertEquals( 1, searchEngine.count( new KTermQuery( "id", object.getId() ) ) );
+        }
+        result[ 1 ] = ( System.nanoTime() - start ) / objects.size();
+
+        start = System.nanoTime();
+        for ( int i = 0; i < 100; i++ ) {
+            assertEquals( OBJECTS / 7 + ( i % 7 < OBJECTS % 7 ? 1 : 0 ), searchEngine.count( new KPrefixQuery( "dcore.author", "author" + ( i % 7 ) ) ) );
+        }
+        result[ 2 ] = ( System.nanoTime() - start ) / 100;
+
+        start = System.nanoTime();
+        for ( final KObject object : objects ) {
+            indexEngine.delete( object );
+        }
+        result[ 3 ] = ( System.nanoTime() - start ) / objects.size();
+
+        assertEquals( 0, searchEngine.count( new KTermQuery( "id", objects.get( 0 ).getId() ) ) );
+        return result;
+    }
+
+}
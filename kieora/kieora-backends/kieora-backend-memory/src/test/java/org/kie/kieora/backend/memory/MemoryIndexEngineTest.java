@@ -0,0 +1,234 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.backend.memory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.kie.kieora.model.KObject;
+import org.kie.kieora.model.KObjectKey;
+import org.kie.kieora.model.KObjectKeyFactory;
+import org.kie.kieora.model.KProperty;
+import org.kie.kieora.model.schema.MetaType;
+import org.kie.kieora.search.KBooleanQuery;
+import org.kie.kieora.search.KFullTextQuery;
+import org.kie.kieora.search.KPathQuery;
+import org.kie.kieora.search.KPrefixQuery;
+import org.kie.kieora.search.KRangeQuery;
+import org.kie.kieora.search.KTermQuery;
+import org.kie.kieora.search.KTypeQuery;
+import org.kie.kieora.search.PagedResult;
+
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+public class MemoryIndexEngineTest {
+
+    private static final KObjectKeyFactory KEY_FACTORY = new KObjectKeyFactory() {
+        @Override
+        public KObjectKey newKey( final String type,
+                                  final String key ) {
+            return newKObject( type, key, null, null, 0, null );
+        }
+    };
+
+    private MemoryIndexEngine engine;
+
+    @Before
+    public void setup() {
+        engine = new MemoryIndexEngine();
+
+        engine.index( newKObject( "Path", "/a/rules.drl", "John Doe", "Validation rules for the loan process.", 10, new Date( 1000L ) ) );
+        engine.index( newKObject( "Path", "/a/process.bpmn", "Jane Roe", "The loan process itself.", 5, new Date( 2000L ) ) );
+        engine.index( newKObject( "Path", "/b/model.java", "John Doe", "Plain data model.", 1, new Date( 3000L ) ) );
+        engine.index( newKObject( "Other", "/b/other", "John Doe", "Not a path at all.", 7, new Date( 4000L ) ) );
+    }
+
+    @After
+    public void cleanup() {
+        engine.dispose();
+    }
+
+    @Test
+    public void testQueries() {
+        assertEquals( 3, engine.count( new KTypeQuery( "Path" ) ) );
+        assertEquals( 1, engine.count( new KTermQuery( "id", "Path|/a/rules.drl" ) ) );
+        assertEquals( 2, engine.count( new KTermQuery( "tags", "loan" ) ) );
+        assertEquals( 2, engine.count( new KFullTextQuery( "dcore.comment", "loan process" ) ) );
+        assertEquals( 0, engine.count( new KFullTextQuery( "dcore.author", "john roe" ) ) );
+        assertEquals( 2, engine.count( new KPrefixQuery( "dcore.comment", "pro" ) ) );
+        assertEquals( 3, engine.count( new KRangeQuery( "dcore.review", 5, 10 ) ) );
+        assertEquals( 1, engine.count( new KRangeQuery( "dcore.review", 5, 10, false, false ) ) );
+        assertEquals( 2, engine.count( new KRangeQuery( "dcore.lastModifiedTime", new Date( 2000L ), new Date( 3000L ) ) ) );
+        assertEquals( 2, engine.count( new KPathQuery( "/a", false ) ) );
+        assertEquals( 4, engine.count( new KPathQuery( "/", true ) ) );
+
+        assertEquals( 1, engine.count( new KBooleanQuery()
+                                               .must( new KTypeQuery( "Path" ) )
+                                               .must( new KFullTextQuery( "dcore.author", "john" ) )
+                                               .mustNot( new KRangeQuery( "dcore.review", null, 5 ) ) ) );
+        assertEquals( 2, engine.count( new KBooleanQuery()
+                                               .should( new KTermQuery( "id", "Path|/a/rules.drl" ) )
+                                               .should( new KTypeQuery( "Other" ) ) ) );
+        assertEquals( 3, engine.count( new KBooleanQuery().mustNot( new KTypeQuery( "Other" ) ) ) );
+        assertEquals( 4, engine.count( new KBooleanQuery() ) );
+    }
+
+    @Test
+    public void testSearchAndFacets() {
+        final PagedResult<KObjectKey> page = engine.search( new KBooleanQuery(), "dcore.review", true, 1, 2 );
+        assertEquals( 4, page.getTotalHits() );
+        assertEquals( Arrays.asList( "/b/other", "/a/process.bpmn" ), keys( page ) );
+
+        assertEquals( Arrays.asList( "/a/process.bpmn" ), keys( engine.search( new KTypeQuery( "Path" ), 1, 1 ) ) );
+
+        final Map<String, Integer> authors = engine.facets( new KTypeQuery( "Path" ), "dcore.author" );
+        assertEquals( 2, authors.get( "John Doe" ).intValue() );
+        assertEquals( 1, authors.get( "Jane Roe" ).intValue() );
+        assertEquals( 2, engine.facets( new KBooleanQuery(), "tags" ).get( "loan" ).intValue() );
+
+        final Map<Long, Integer> reviews = engine.facets( new KBooleanQuery(), "dcore.review", 5 );
+        assertEquals( 1, reviews.get( 0L ).intValue() );
+        assertEquals( 2, reviews.get( 5L ).intValue() );
+        assertEquals( 1, reviews.get( 10L ).intValue() );
+    }
+
+    @Test
+    public void testUpdates() {
+        engine.index( newKObject( "Path", "/a/rules.drl", "Jane Roe", "Replaced.", 2, new Date( 1000L ) ) );
+        assertEquals( 4, engine.size() );
+        assertEquals( 0, engine.count( new KFullTextQuery( "dcore.comment", "validation" ) ) );
+        assertEquals( 2, engine.count( new KFullTextQuery( "dcore.author", "jane" ) ) );
+
+        engine.rename( newKObject( "Path", "/a/rules.drl", null, null, 0, null ), newKObject( "Path", "/c/rules.drl", null, null, 0, null ) );
+        assertEquals( 1, engine.count( new KPathQuery( "/a", false ) ) );
+        assertEquals( "Path|/c/rules.drl", engine.search( new KPathQuery( "/c", true ), 0, 10 ).getContent().get( 0 ).getId() );
+
+        engine.renameTree( KEY_FACTORY.newKey( "Path", "/b" ), KEY_FACTORY.newKey( "Path", "/x/b" ), KEY_FACTORY );
+        assertEquals( 0, engine.count( new KPathQuery( "/b", true ) ) );
+        assertEquals( 2, engine.count( new KPathQuery( "/x/b", false ) ) );
+        assertEquals( 1, engine.count( new KTermQuery( "id", "Other|/x/b/other" ) ) );
+        assertEquals( 1, engine.count( new KFullTextQuery( "dcore.comment", "plain data" ) ) );
+
+        engine.deleteTree( KEY_FACTORY.newKey( "Path", "/x" ) );
+        assertEquals( 2, engine.size() );
+
+        engine.delete( newKObject( "Path", "/c/rules.drl", null, null, 0, null ) );
+        assertEquals( 1, engine.count( new KBooleanQuery() ) );
+    }
+
+    @Test
+    public void testCompaction() {
+        final List<KObject> objects = new ArrayList<KObject>();
+        for ( int i = 0; i < 3000; i++ ) {
+            objects.add( newKObject( "Bulk", "/bulk/file" + i, "author" + ( i % 3 ), "comment", i, new Date( i ) ) );
+        }
+        engine.index( objects );
+        for ( int i = 0; i < 2500; i++ ) {
+            engine.delete( objects.get( i ) );
+        }
+
+        assertEquals( 504, engine.size() );
+        assertEquals( 500, engine.count( new KTypeQuery( "Bulk" ) ) );
+        assertEquals( 500, engine.count( new KFullTextQuery( "dcore.comment", "comment" ) ) );
+        assertEquals( 1, engine.count( new KTermQuery( "id", "Bulk|/bulk/file2999" ) ) );
+        assertEquals( 0, engine.count( new KTermQuery( "id", "Bulk|/bulk/file0" ) ) );
+        assertEquals( 100, engine.count( new KRangeQuery( "dcore.review", 2900, null ) ) );
+    }
+
+    private List<String> keys( final PagedResult<KObjectKey> page ) {
+        final List<String> result = new ArrayList<String>();
+        for ( final KObjectKey key : page.getContent() ) {
+            result.add( key.getKey() );
+        }
+        return result;
+    }
+
+    static KObject newKObject( final String type,
+                               final String key,
+                               final String author,
+                               final String comment,
+                               final int review,
+                               final Date lastModified ) {
+        return new KObject() {
+            @Override
+            public String getId() {
+                return type + "|" + key;
+            }
+
+            @Override
+            public MetaType getType() {
+                return new MetaType() {
+                    @Override
+                    public String getName() {
+                        return type;
+                    }
+                };
+            }
+
+            @Override
+            public String getKey() {
+                return key;
+            }
+
+            @Override
+            public Iterable<KProperty<?>> getProperties() {
+                return new ArrayList<KProperty<?>>() {{
+                    if ( author != null ) {
+                        add( newProperty( "dcore.author", author, true ) );
+                        add( newProperty( "dcore.comment", comment, true ) );
+                        add( newProperty( "dcore.review", review, true ) );
+                        add( newProperty( "dcore.lastModifiedTime", lastModified, true ) );
+                        if ( comment.contains( "loan" ) ) {
+                            add( newProperty( "tags", Arrays.asList( "loan", "process" ), false ) );
+                        }
+                    }
+                }};
+            }
+        };
+    }
+
+    private static <T> KProperty<T> newProperty( final String name,
+                                                 final T value,
+                                                 final boolean searchable ) {
+        return new KProperty<T>() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public T getValue() {
+                return value;
+            }
+
+            @Override
+            public boolean isSearchable() {
+                return searchable;
+            }
+        };
+    }
+}
@@ -16,6 +16,20 @@
 
 package org.kie.kieora.io;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.kie.commons.java.nio.IOException;
 import org.kie.commons.java.nio.base.Properties;
 import org.kie.commons.java.nio.file.FileVisitResult;
@@ -24,26 +38,142 @@ import org.kie.commons.java.nio.file.Path;
 import org.kie.commons.java.nio.file.SimpleFileVisitor;
 import org.kie.commons.java.nio.file.attribute.BasicFileAttributes;
 import org.kie.kieora.engine.MetaIndexEngine;
+import org.kie.kieora.model.KObject;
 
 import static org.kie.commons.java.nio.base.dotfiles.DotFileUtils.*;
 import static org.kie.commons.validation.PortablePreconditions.*;
 import static org.kie.kieora.io.KObjectUtil.*;
 
 /**
- *
+ * Reindexes a tree as a pipeline: the calling thread walks it and queues paths in chunks, a pool of workers loads
+ * the dot files and builds the objects, and a sink hands them to the engine's bulk path a batch at a time.
+ * {@link #run()} returns once everything is indexed and committed, or once the run is cancelled.
  */
 public final class BatchIndex {
 
-    private final Path            root;
-    private final MetaIndexEngine indexEngine;
+    private static final int DEFAULT_BATCH_SIZE = 500;
+    private static final int CHUNK_SIZE         = 64;
+
+    private static final List<Path> STOP = Collections.emptyList();
+
+    private final Path               root;
+    private final MetaIndexEngine    indexEngine;
+    private final int                workers;
+    private final int                batchSize;
+    private final BatchIndexListener listener;
+    private final AtomicBoolean      cancelled = new AtomicBoolean( false );
+    private final AtomicInteger      visited   = new AtomicInteger( 0 );
+    private final AtomicInteger      indexed   = new AtomicInteger( 0 );
 
     public BatchIndex( final MetaIndexEngine indexEngine,
                        final Path root ) {
+        this( indexEngine, root, Runtime.getRuntime().availableProcessors(), DEFAULT_BATCH_SIZE, null );
+    }
+
+    public BatchIndex( final MetaIndexEngine indexEngine,
+                       final Path root,
+                       final int workers,
+                       final int batchSize,
+                       final BatchIndexListener listener ) {
         this.root = checkNotNull( "root", root );
         this.indexEngine = checkNotNull( "indexEngine", indexEngine );
+        checkCondition( "workers must be positive", workers > 0 );
+        checkCondition( "batchSize must be positive", batchSize > 0 );
+        this.workers = workers;
+        this.batchSize = batchSize;
+        this.listener = listener;
     }
 
     public void run() {
+        final BlockingQueue<List<Path>> paths = new ArrayBlockingQueue<List<Path>>( workers * 4 );
+        final Sink sink = new Sink();
+        final ExecutorService executor = Executors.newFixedThreadPool( workers, new ThreadFactory() {
+            private final AtomicInteger      count = new AtomicInteger( 0 );
+
+            @Override
+            public Thread newThread( final Runnable r ) {
+                final Thread thread = new Thread( r, "kieora-batch-index-" + count.getAndIncrement() );
+                thread.setDaemon( true );
+                return thread;
+            }
+        } );
+
+        final List<Future<?>> futures = new ArrayList<Future<?>>( workers );
+        for ( int i = 0; i < workers; i++ ) {
+            futures.add( executor.submit( new Runnable() {
+                @Override
+                public void run() {
+                    consume( paths, sink );
+                }
+            } ) );
+        }
+
+        try {
+            walk( paths );
+        } catch ( final RuntimeException e ) {
+            cancel();
+            throw e;
+        } finally {
+            for ( int i = 0; i < workers; i++ ) {
+                put( paths, STOP );
+            }
+            executor.shutdown();
+        }
+
+        RuntimeException failure = null;
+        for ( final Future<?> future : futures ) {
+            try {
+                future.get();
+            } catch ( final InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException( e );
+            } catch ( final ExecutionException e ) {
+                if ( failure == null ) {
+                    failure = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new RuntimeException( e.getCause() );
+                }
+            }
+        }
+        if ( failure != null ) {
+            throw failure;
+        }
+
+        if ( !isCancelled() ) {
+            sink.flush();
+            indexEngine.commit();
+        }
+    }
+
+    /**
+     * Stops the walk and the workers; objects already handed to the engine stay indexed.
+     */
+    public void cancel() {
+        cancelled.set( true );
+    }
+
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    /**
+     * Files and directories walked so far.
+     */
+    public int getVisited() {
+        return visited.get();
+    }
+
+    /**
+     * Objects handed to the engine so far.
+     */
+    public int getIndexed() {
+        return indexed.get();
+    }
+
+    public void dispose() {
+        indexEngine.dispose();
+    }
+
+    private void walk( final BlockingQueue<List<Path>> paths ) {
+        final List<Path> chunk = new ArrayList<Path>( CHUNK_SIZE );
 
         Files.walkFileTree( root, new SimpleFileVisitor<Path>() {
             @Override
@@ -52,13 +182,7 @@ public final class BatchIndex {
                 checkNotNull( "file", file );
                 checkNotNull( "attrs", attrs );
 
-                if ( Files.exists( dot( file ) ) ) {
-                    final Properties properties = new Properties();
-                    properties.load( Files.newInputStream( dot( file ) ) );
-                    indexEngine.index( toKObject( file, consolidate( properties ) ) );
-                }
-
-                return FileVisitResult.CONTINUE;
+                return enqueue( file );
             }
 
             @Override
@@ -68,21 +192,108 @@ public final class BatchIndex {
                 checkNotNull( "dir", dir );
                 checkNotNull( "attrs", attrs );
 
-                if ( Files.exists( dot( dir ) ) ) {
-                    final Properties properties = new Properties();
-                    properties.load( Files.newInputStream( dot( dir ) ) );
-                    indexEngine.index( toKObject( dir, consolidate( properties ) ) );
-                }
+                return enqueue( dir );
+            }
 
+            private FileVisitResult enqueue( final Path path ) {
+                if ( isCancelled() ) {
+                    return FileVisitResult.TERMINATE;
+                }
+                visited.incrementAndGet();
+                chunk.add( path );
+                if ( chunk.size() >= CHUNK_SIZE ) {
+                    put( paths, new ArrayList<Path>( chunk ) );
+                    chunk.clear();
+                }
                 return FileVisitResult.CONTINUE;
             }
 
         } );
 
+        if ( !chunk.isEmpty() && !isCancelled() ) {
+            put( paths, chunk );
+        }
     }
 
-    public void dispose() {
-        indexEngine.dispose();
+    private void consume( final BlockingQueue<List<Path>> paths,
+                          final Sink sink ) {
+        try {
+            while ( true ) {
+                final List<Path> chunk = paths.take();
+                if ( chunk == STOP ) {
+                    return;
+                }
+                for ( final Path path : chunk ) {
+                    if ( isCancelled() ) {
+                        break;
+                    }
+                    final KObject object = load( path );
+                    if ( object != null ) {
+                        sink.add( object );
+                    }
+                }
+            }
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        } catch ( final RuntimeException e ) {
+            cancel();
+            throw e;
+        }
+    }
+
+    private KObject load( final Path path ) {
+        final Path dot = dot( path );
+        if ( !Files.exists( dot ) ) {
+            return null;
+        }
+        final Properties properties = new Properties();
+        properties.load( Files.newInputStream( dot ) );
+        return toKObject( path, consolidate( properties ) );
+    }
+
+    private void put( final BlockingQueue<List<Path>> paths,
+                      final List<Path> chunk ) {
+        try {
+            while ( !paths.offer( chunk, 100, TimeUnit.MILLISECONDS ) ) {
+                if ( isCancelled() ) {
+                    if ( chunk != STOP ) {
+                        return;
+                    }
+                    // workers may be gone, make room for them to see the stop
+                    paths.clear();
+                }
+            }
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException( e );
+        }
+    }
+
+    /**
+     * Collects built objects from every worker; the engine sees one batch at a time.
+     */
+    private class Sink {
+
+        private final List<KObject> batch = new ArrayList<KObject>( batchSize );
+
+        synchronized void add( final KObject object ) {
+            batch.add( object );
+            if ( batch.size() >= batchSize ) {
+                flush();
+            }
+        }
+
+        synchronized void flush() {
+            if ( batch.isEmpty() || isCancelled() ) {
+                return;
+            }
+            indexEngine.index( new ArrayList<KObject>( batch ) );
+            indexed.addAndGet( batch.size() );
+            batch.clear();
+            if ( listener != null ) {
+                listener.progress( getVisited(), getIndexed() );
+            }
+        }
     }
 
 }
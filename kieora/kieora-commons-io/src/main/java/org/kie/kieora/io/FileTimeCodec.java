@@ -0,0 +1,61 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.io;
+
+import java.io.IOException;
+
+import org.apache.lucene.store.DataInput;
+import org.apache.lucene.store.DataOutput;
+import org.kie.commons.java.nio.base.FileTimeImpl;
+import org.kie.commons.java.nio.file.attribute.FileTime;
+import org.kie.kieora.backend.lucene.values.ValueCodec;
+import org.kie.kieora.backend.lucene.values.ValueCodecs;
+
+import static org.kie.kieora.backend.lucene.values.ValueCodecs.*;
+
+/**
+ * Stores file attribute times as their milliseconds; registered through <code>META-INF/services</code>.
+ */
+public class FileTimeCodec implements ValueCodec<FileTime> {
+
+    public static final int TAG = FIRST_CUSTOM_TAG;
+
+    @Override
+    public int getTag() {
+        return TAG;
+    }
+
+    @Override
+    public Class<FileTime> getType() {
+        return FileTime.class;
+    }
+
+    @Override
+    public void write( final ValueCodecs codecs,
+                       final FileTime value,
+                       final DataOutput out ) throws IOException {
+        writeZLong( value.toMillis(), out );
+    }
+
+    @Override
+    public FileTime read( final ValueCodecs codecs,
+                          final DataInput in ) throws IOException {
+        return new FileTimeImpl( readZLong( in ) );
+    }
+
+}
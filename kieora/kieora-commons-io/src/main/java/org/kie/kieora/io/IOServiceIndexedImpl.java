@@ -40,29 +40,72 @@ import static org.kie.kieora.io.KObjectUtil.*;
 public class IOServiceIndexedImpl extends IOServiceDotFileImpl {
 
     private final MetaIndexEngine indexEngine;
+    private final IndexingQueue   indexingQueue;
 
     public IOServiceIndexedImpl( final MetaIndexEngine indexEngine ) {
         this.indexEngine = checkNotNull( "indexEngine", indexEngine );
+        this.indexingQueue = null;
+    }
+
+    /**
+     * Indexes asynchronously through an {@link IndexingQueue}; use {@link #flush()} to wait for pending updates.
+     */
+    public IOServiceIndexedImpl( final MetaIndexEngine indexEngine,
+                                 final int workers,
+                                 final int queueCapacity,
+                                 final int batchSize ) {
+        this.indexingQueue = new IndexingQueue( checkNotNull( "indexEngine", indexEngine ), workers, queueCapacity, batchSize );
+        this.indexEngine = indexingQueue;
+    }
+
+    /**
+     * Waits until every index update queued so far is applied; does nothing when indexing synchronously.
+     */
+    public void flush() {
+        if ( indexingQueue != null ) {
+            indexingQueue.flush();
+        }
+    }
+
+    /**
+     * Applies the queued index updates, stops the indexing workers and disposes the index engine.
+     */
+    public void dispose() {
+        indexEngine.dispose();
     }
 
     @Override
     public synchronized void delete( final Path path )
             throws IllegalArgumentException, NoSuchFileException, DirectoryNotEmptyException,
             IOException, SecurityException {
+        final boolean directory = Files.isDirectory( path );
         super.delete( path );
-        indexEngine.delete( toKObjectKey( path ) );
+        delete( path, directory );
     }
 
     @Override
     public synchronized boolean deleteIfExists( final Path path )
             throws IllegalArgumentException, DirectoryNotEmptyException, IOException, SecurityException {
+        final boolean directory = Files.isDirectory( path );
         final boolean result = super.deleteIfExists( path );
         if ( result ) {
-            indexEngine.delete( toKObjectKey( path ) );
+            delete( path, directory );
         }
         return result;
     }
 
+    /**
+     * Directories may still have indexed descendants, a recursive delete takes them all in one pass.
+     */
+    private void delete( final Path path,
+                         final boolean directory ) {
+        if ( directory ) {
+            indexEngine.deleteTree( toKObjectKey( path ) );
+        } else {
+            indexEngine.delete( toKObjectKey( path ) );
+        }
+    }
+
     @Override
     public synchronized SeekableByteChannel newByteChannel( final Path path,
                                                             final Set<? extends OpenOption> options,
@@ -134,7 +177,11 @@ public class IOServiceIndexedImpl extends IOServiceDotFileImpl {
             DirectoryNotEmptyException, AtomicMoveNotSupportedException, IOException, SecurityException {
         final Path result = super.move( source, target, options );
 
-        indexEngine.rename( toKObjectKey( source ), toKObjectKey( target ) );
+        if ( Files.isDirectory( target ) ) {
+            indexEngine.renameTree( toKObjectKey( source ), toKObjectKey( target ), keyFactory( shard( target ) ) );
+        } else {
+            indexEngine.rename( toKObjectKey( source ), toKObjectKey( target ) );
+        }
 
         return result;
     }
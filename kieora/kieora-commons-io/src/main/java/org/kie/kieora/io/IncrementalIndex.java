@@ -0,0 +1,164 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.io;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.kie.commons.java.nio.base.Properties;
+import org.kie.commons.java.nio.file.Files;
+import org.kie.commons.java.nio.file.Path;
+import org.kie.commons.java.nio.fs.jgit.JGitFileSystem;
+import org.kie.commons.java.nio.fs.jgit.JGitPathImpl;
+import org.kie.kieora.engine.MetaIndexEngine;
+import org.kie.kieora.model.KObject;
+import org.kie.kieora.model.KObjectKey;
+
+import static org.kie.commons.java.nio.base.dotfiles.DotFileUtils.*;
+import static org.kie.commons.java.nio.fs.jgit.util.JGitUtil.*;
+import static org.kie.commons.validation.Preconditions.*;
+import static org.kie.kieora.io.KObjectUtil.*;
+
+/**
+ * Brings the index of a git branch up to date from the commit it was last indexed at: only the paths changed
+ * since then, and the owners of changed dot files, are indexed, renamed or deleted. Without a usable checkpoint
+ * it falls back to a full {@link BatchIndex}.
+ */
+public class IncrementalIndex {
+
+    private final MetaIndexEngine  indexEngine;
+    private final IndexCheckpoints checkpoints;
+    private final JGitPathImpl     root;
+    private final Git              git;
+    private final String           repository;
+    private final String           branch;
+
+    public IncrementalIndex( final MetaIndexEngine indexEngine,
+                             final IndexCheckpoints checkpoints,
+                             final Path root ) {
+        this.indexEngine = checkNotNull( "indexEngine", indexEngine );
+        this.checkpoints = checkNotNull( "checkpoints", checkpoints );
+        this.root = checkInstanceOf( "root", checkNotNull( "root", root ).getRoot(), JGitPathImpl.class );
+        final JGitFileSystem fs = this.root.getFileSystem();
+        this.git = fs.gitRepo();
+        this.repository = fs.getName();
+        this.branch = this.root.getRefTree();
+    }
+
+    /**
+     * Returns how many objects were touched, or -1 when the whole branch had to be reindexed.
+     */
+    public int run() {
+        final Ref head = getBranch( git, branch );
+        if ( head == null ) {
+            return 0;
+        }
+        final ObjectId headId = head.getObjectId();
+
+        final String last = checkpoints.get( repository, branch );
+        final ObjectId lastId = last == null ? null : resolveObjectId( git, last );
+        if ( lastId == null ) {
+            new BatchIndex( indexEngine, root ).run();
+            checkpoints.put( repository, branch, headId.name() );
+            indexEngine.commit();
+            return -1;
+        }
+        if ( lastId.equals( headId ) ) {
+            return 0;
+        }
+
+        final int touched = apply( listDiffs( git, lastId, headId ) );
+        // the checkpoint is set after the changes, so no commit can make it durable without them
+        checkpoints.put( repository, branch, headId.name() );
+        indexEngine.commit();
+
+        return touched;
+    }
+
+    private int apply( final List<DiffEntry> diffs ) {
+        final Set<String> owners = new LinkedHashSet<String>();
+        for ( final DiffEntry diff : diffs ) {
+            switch ( diff.getChangeType() ) {
+                case RENAME:
+                    if ( !isDotFile( diff.getOldPath() ) && !isDotFile( diff.getNewPath() ) ) {
+                        indexEngine.rename( toKObjectKey( resolve( diff.getOldPath() ) ), toKObjectKey( resolve( diff.getNewPath() ) ) );
+                    }
+                    owners.add( owner( diff.getOldPath() ) );
+                    owners.add( owner( diff.getNewPath() ) );
+                    break;
+                case DELETE:
+                    owners.add( owner( diff.getOldPath() ) );
+                    break;
+                default:
+                    owners.add( owner( diff.getNewPath() ) );
+            }
+        }
+
+        final List<KObject> toIndex = new ArrayList<KObject>();
+        final List<KObjectKey> toDelete = new ArrayList<KObjectKey>();
+        for ( final String owner : owners ) {
+            final Path path = resolve( owner );
+            if ( Files.exists( path ) && Files.exists( dot( path ) ) ) {
+                final Properties properties = new Properties();
+                properties.load( Files.newInputStream( dot( path ) ) );
+                toIndex.add( toKObject( path, consolidate( properties ) ) );
+            } else {
+                toDelete.add( toKObjectKey( path ) );
+            }
+        }
+
+        if ( !toDelete.isEmpty() ) {
+            indexEngine.delete( toDelete.toArray( new KObjectKey[ toDelete.size() ] ) );
+        }
+        if ( !toIndex.isEmpty() ) {
+            indexEngine.index( toIndex );
+        }
+
+        return owners.size();
+    }
+
+    private Path resolve( final String gitPath ) {
+        return gitPath.isEmpty() ? root : root.resolve( gitPath );
+    }
+
+    private static boolean isDotFile( final String gitPath ) {
+        return gitPath.substring( gitPath.lastIndexOf( '/' ) + 1 ).startsWith( "." );
+    }
+
+    /**
+     * The path a dot file describes ({@code .root} at the top describes the root), or the path itself.
+     */
+    private static String owner( final String gitPath ) {
+        final int slash = gitPath.lastIndexOf( '/' );
+        final String name = gitPath.substring( slash + 1 );
+        if ( !name.startsWith( "." ) ) {
+            return gitPath;
+        }
+        if ( slash == -1 && name.equals( ".root" ) ) {
+            return "";
+        }
+        return gitPath.substring( 0, slash + 1 ) + name.substring( 1 );
+    }
+
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.io;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.kie.commons.java.nio.base.Properties;
+import org.kie.commons.java.nio.file.DirectoryStream;
+import org.kie.commons.java.nio.file.Files;
+import org.kie.commons.java.nio.file.Path;
+import org.kie.kieora.engine.MetaIndexEngine;
+import org.kie.kieora.engine.MetaIndexScanner;
+import org.kie.kieora.model.KObject;
+import org.kie.kieora.model.KObjectKey;
+import org.kie.kieora.model.KObjectKeyFactory;
+import org.kie.kieora.search.KPathQuery;
+import org.kie.kieora.search.KTermQuery;
+
+import static org.kie.commons.java.nio.base.dotfiles.DotFileUtils.*;
+import static org.kie.commons.validation.PortablePreconditions.*;
+import static org.kie.kieora.io.KObjectUtil.*;
+
+/**
+ * Compares a tree with its index one directory at a time: the directory's entries and the keys the index holds
+ * directly below it are merged in key order, so memory stays bounded by the largest directory rather than the tree. Paths
+ * with a dot file must be indexed, with the fingerprint of what the dot file holds; anything else indexed there is
+ * an orphan. Only the index of the root's file system and branch is compared, as the same paths exist on other
+ * branches; paths indexed without any shard, before ids carried one, are orphans too. {@link #repair()} fixes
+ * only what the check finds.
+ */
+public final class IndexCheck {
+
+    private static final int DEFAULT_BATCH_SIZE = 500;
+
+    private final Path               root;
+    private final String             shard;
+    private final KObjectKeyFactory  keyFactory;
+    private final MetaIndexEngine    indexEngine;
+    private final MetaIndexScanner   scanner;
+    private final int                batchSize;
+    private final IndexCheckListener listener;
+    private final List<KObject>      batch = new ArrayList<KObject>();
+
+    private boolean repair;
+    private int     checked;
+    private int     missing;
+    private int     stale;
+    private int     orphans;
+
+    public IndexCheck( final MetaIndexEngine indexEngine,
+                       final MetaIndexScanner scanner,
+                       final Path root ) {
+        this( indexEngine, scanner, root, DEFAULT_BATCH_SIZE, null );
+    }
+
+    /**
+     * @param scanner usually the engine itself; with an {@link IndexingQueue} in front, flush it before checking
+     */
+    public IndexCheck( final MetaIndexEngine indexEngine,
+                       final MetaIndexScanner scanner,
+                       final Path root,
+                       final int batchSize,
+                       final IndexCheckListener listener ) {
+        this.indexEngine = checkNotNull( "indexEngine", indexEngine );
+        this.scanner = checkNotNull( "scanner", scanner );
+        this.root = checkNotNull( "root", root );
+        this.shard = shard( root );
+        this.keyFactory = keyFactory( shard );
+        checkCondition( "batchSize must be positive", batchSize > 0 );
+        this.batchSize = batchSize;
+        this.listener = listener;
+    }
+
+    /**
+     * Reports without touching the index; returns the number of inconsistencies.
+     */
+    public int check() {
+        return run( false );
+    }
+
+    /**
+     * Reindexes missing and stale objects and deletes orphans; returns the number of inconsistencies fixed.
+     */
+    public int repair() {
+        return run( true );
+    }
+
+    /**
+     * Paths with a dot file compared by the last run.
+     */
+    public int getChecked() {
+        return checked;
+    }
+
+    public int getMissing() {
+        return missing;
+    }
+
+    public int getStale() {
+        return stale;
+    }
+
+    public int getOrphans() {
+        return orphans;
+    }
+
+    private synchronized int run( final boolean repair ) {
+        this.repair = repair;
+        checked = missing = stale = orphans = 0;
+
+        final String rootKey = root.toString();
+        final Map<String, String> indexedRoot = scanner.fingerprints( shard, new KTermQuery( "id", toKObjectKey( root ).getId() ) );
+        compare( rootKey, root, indexedRoot.containsKey( rootKey ), indexedRoot.get( rootKey ) );
+        checkDirectory( root );
+        checkUnsharded( rootKey );
+
+        if ( repair && !batch.isEmpty() ) {
+            flush();
+        }
+        if ( repair && missing + stale + orphans > 0 ) {
+            indexEngine.commit();
+        }
+        return missing + stale + orphans;
+    }
+
+    private void checkDirectory( final Path dir ) {
+        final TreeMap<String, Path> onDisk = new TreeMap<String, Path>();
+        final DirectoryStream<Path> entries = Files.newDirectoryStream( dir );
+        try {
+            for ( final Path entry : entries ) {
+                if ( !entry.getFileName().toString().startsWith( "." ) ) {
+                    onDisk.put( entry.toString(), entry );
+                }
+            }
+        } finally {
+            entries.close();
+        }
+        final Map<String, String> fingerprints = scanner.fingerprints( shard, new KPathQuery( dir.toString(), false ) );
+        final TreeSet<String> indexed = new TreeSet<String>( fingerprints.keySet() );
+        indexed.addAll( scanner.branches( shard, dir.toString() ) );
+
+        final Iterator<Map.Entry<String, Path>> disk = onDisk.entrySet().iterator();
+        final Iterator<String> index = indexed.iterator();
+        Map.Entry<String, Path> onDiskEntry = next( disk );
+        String indexedKey = next( index );
+        while ( onDiskEntry != null || indexedKey != null ) {
+            final int order = onDiskEntry == null ? 1 : indexedKey == null ? -1 : onDiskEntry.getKey().compareTo( indexedKey );
+            if ( order < 0 ) {
+                compare( onDiskEntry.getKey(), onDiskEntry.getValue(), false, null );
+                onDiskEntry = next( disk );
+            } else if ( order > 0 ) {
+                orphan( indexedKey, true );
+                indexedKey = next( index );
+            } else {
+                compare( indexedKey, onDiskEntry.getValue(), fingerprints.containsKey( indexedKey ), fingerprints.get( indexedKey ) );
+                onDiskEntry = next( disk );
+                indexedKey = next( index );
+            }
+        }
+
+        for ( final Path entry : onDisk.values() ) {
+            if ( Files.isDirectory( entry ) ) {
+                checkDirectory( entry );
+            }
+        }
+    }
+
+    /**
+     * Nothing derives the ids of objects indexed without a shard any more, so they're reported below the root's
+     * own children and removed all at once; the whole tree goes, whatever branch it was indexed from.
+     */
+    private void checkUnsharded( final String rootKey ) {
+        final TreeSet<String> unsharded = new TreeSet<String>( scanner.fingerprints( null, new KTermQuery( "id", unshardedKey( rootKey ).getId() ) ).keySet() );
+        unsharded.addAll( scanner.fingerprints( null, new KPathQuery( rootKey, false ) ).keySet() );
+        unsharded.addAll( scanner.branches( null, rootKey ) );
+        if ( unsharded.isEmpty() ) {
+            return;
+        }
+        for ( final String key : unsharded ) {
+            orphans++;
+            if ( listener != null ) {
+                listener.orphan( key );
+            }
+        }
+        if ( repair ) {
+            indexEngine.deleteTree( unshardedKey( rootKey ) );
+        }
+    }
+
+    private static KObjectKey unshardedKey( final String key ) {
+        return KEY_FACTORY.newKey( Path.class.getName(), key );
+    }
+
+    private void compare( final String key,
+                          final Path path,
+                          final boolean isIndexed,
+                          final String fingerprint ) {
+        final KObject expected = load( path );
+        if ( expected == null ) {
+            if ( isIndexed ) {
+                orphan( key, false );
+            }
+            return;
+        }
+        checked++;
+        if ( !isIndexed ) {
+            missing++;
+            if ( listener != null ) {
+                listener.missing( key );
+            }
+            reindex( expected );
+        } else if ( !scanner.fingerprint( expected ).equals( fingerprint ) ) {
+            stale++;
+            if ( listener != null ) {
+                listener.stale( key );
+            }
+            reindex( expected );
+        }
+    }
+
+    /**
+     * @param gone the path no longer exists, so nothing below it may stay indexed either
+     */
+    private void orphan( final String key,
+                         final boolean gone ) {
+        orphans++;
+        if ( listener != null ) {
+            listener.orphan( key );
+        }
+        if ( repair ) {
+            if ( gone ) {
+                indexEngine.deleteTree( keyFactory.newKey( Path.class.getName(), key ) );
+            } else {
+                indexEngine.delete( keyFactory.newKey( Path.class.getName(), key ) );
+            }
+        }
+    }
+
+    private void reindex( final KObject object ) {
+        if ( !repair ) {
+            return;
+        }
+        batch.add( object );
+        if ( batch.size() >= batchSize ) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        indexEngine.index( new ArrayList<KObject>( batch ) );
+        batch.clear();
+    }
+
+    private KObject load( final Path path ) {
+        final Path dot = dot( path );
+        if ( !Files.exists( dot ) ) {
+            return null;
+        }
+        final Properties properties = new Properties();
+        properties.load( Files.newInputStream( dot ) );
+        return toKObject( path, consolidate( properties ) );
+    }
+
+    private static <T> T next( final Iterator<T> iterator ) {
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.io;
+
+/**
+ * Notified by {@link IndexCheck} of every inconsistency found, before it is repaired.
+ */
+public interface IndexCheckListener {
+
+    /**
+     * The path has a dot file but no indexed object.
+     */
+    void missing( final String key );
+
+    /**
+     * The indexed object's properties differ from the path's dot file.
+     */
+    void stale( final String key );
+
+    /**
+     * The indexed object's path, or its dot file, is gone; for a gone path this covers everything indexed below it.
+     */
+    void orphan( final String key );
+
+}
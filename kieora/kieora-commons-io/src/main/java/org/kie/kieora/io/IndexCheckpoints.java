@@ -0,0 +1,64 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.io;
+
+import org.kie.kieora.backend.lucene.LuceneSetup;
+
+import static org.kie.commons.validation.Preconditions.*;
+
+/**
+ * Last indexed commit per repository and branch, kept in the index's commit data so catching up survives restarts.
+ * A checkpoint becomes durable with the next index commit, together with the documents indexed up to it: after a
+ * crash the index and its checkpoint always agree.
+ */
+public class IndexCheckpoints {
+
+    public static final String COMMIT_DATA_PREFIX = "kieora.checkpoint.";
+
+    private final LuceneSetup setup;
+
+    public IndexCheckpoints( final LuceneSetup setup ) {
+        this.setup = checkNotNull( "setup", setup );
+    }
+
+    public String get( final String repository,
+                       final String branch ) {
+        return setup.getCommitData( key( repository, branch ) );
+    }
+
+    /**
+     * Stored with the next commit, so documents indexed before the call commit with it.
+     */
+    public void put( final String repository,
+                     final String branch,
+                     final String commitId ) {
+        checkNotEmpty( "commitId", commitId );
+        setup.setCommitData( key( repository, branch ), commitId );
+    }
+
+    public void remove( final String repository,
+                        final String branch ) {
+        setup.setCommitData( key( repository, branch ), null );
+    }
+
+    private String key( final String repository,
+                        final String branch ) {
+        return COMMIT_DATA_PREFIX + checkNotEmpty( "branch", branch ) + "@" + checkNotEmpty( "repository", repository );
+    }
+
+}
@@ -0,0 +1,306 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.io;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.kie.kieora.engine.MetaIndexEngine;
+import org.kie.kieora.model.KObject;
+import org.kie.kieora.model.KObjectKey;
+import org.kie.kieora.model.KObjectKeyFactory;
+
+import static org.kie.commons.validation.Preconditions.*;
+
+/**
+ * Applies index operations asynchronously on a fixed set of worker lanes. Operations are routed by key, so
+ * the ones on the same key are applied in submission order; each lane applies what it has queued in batches,
+ * and submitters block while their lane is full.
+ * <p/>
+ * Renames touch two keys, so they wait for everything queued before them and run on the caller thread.
+ * The first failure on a worker is rethrown by the next {@link #flush()}, errors wrapped in a RuntimeException;
+ * later ones are dropped until then. Workers outlive failures, so a flush never waits on a dead lane.
+ */
+public class IndexingQueue implements MetaIndexEngine {
+
+    private final MetaIndexEngine                   indexEngine;
+    private final Lane[]                            lanes;
+    private final int                               batchSize;
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<RuntimeException>();
+
+    public IndexingQueue( final MetaIndexEngine indexEngine,
+                          final int workers,
+                          final int capacity,
+                          final int batchSize ) {
+        this.indexEngine = checkNotNull( "indexEngine", indexEngine );
+        checkCondition( "workers must be positive", workers > 0 );
+        checkCondition( "capacity must be positive", capacity > 0 );
+        checkCondition( "batchSize must be positive", batchSize > 0 );
+        this.batchSize = batchSize;
+        this.lanes = new Lane[ workers ];
+        for ( int i = 0; i < workers; i++ ) {
+            lanes[ i ] = new Lane( i, capacity );
+            lanes[ i ].start();
+        }
+    }
+
+    @Override
+    public void index( final KObject object ) {
+        checkNotNull( "object", object );
+        laneFor( object ).submit( new Operation( object, null ) );
+    }
+
+    @Override
+    public void index( final KObject... objects ) {
+        for ( final KObject object : objects ) {
+            index( object );
+        }
+    }
+
+    @Override
+    public void index( final Iterable<KObject> objects ) {
+        for ( final KObject object : objects ) {
+            index( object );
+        }
+    }
+
+    @Override
+    public void rename( final KObjectKey from,
+                        final KObjectKey to ) {
+        flush();
+        indexEngine.rename( from, to );
+    }
+
+    @Override
+    public void renameTree( final KObjectKey from,
+                            final KObjectKey to,
+                            final KObjectKeyFactory keyFactory ) {
+        flush();
+        indexEngine.renameTree( from, to, keyFactory );
+    }
+
+    @Override
+    public void delete( final KObjectKey objectKey ) {
+        checkNotNull( "objectKey", objectKey );
+        laneFor( objectKey ).submit( new Operation( null, objectKey ) );
+    }
+
+    @Override
+    public void delete( final KObjectKey... objectsKey ) {
+        for ( final KObjectKey objectKey : objectsKey ) {
+            delete( objectKey );
+        }
+    }
+
+    @Override
+    public void deleteTree( final KObjectKey root ) {
+        flush();
+        indexEngine.deleteTree( root );
+    }
+
+    /**
+     * Applies everything submitted so far, then commits it.
+     */
+    @Override
+    public void commit() {
+        flush();
+        indexEngine.commit();
+    }
+
+    /**
+     * Blocks until every operation submitted so far is applied.
+     */
+    public void flush() {
+        final CountDownLatch latch = new CountDownLatch( lanes.length );
+        for ( final Lane lane : lanes ) {
+            lane.submit( new Operation( latch ) );
+        }
+        try {
+            latch.await();
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException( e );
+        }
+
+        final RuntimeException ex = failure.getAndSet( null );
+        if ( ex != null ) {
+            throw ex;
+        }
+    }
+
+    @Override
+    public void dispose() {
+        try {
+            flush();
+        } finally {
+            for ( final Lane lane : lanes ) {
+                lane.submit( Operation.STOP );
+            }
+            for ( final Lane lane : lanes ) {
+                try {
+                    lane.join();
+                } catch ( final InterruptedException e ) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            indexEngine.dispose();
+        }
+    }
+
+    private Lane laneFor( final KObjectKey key ) {
+        return lanes[ ( key.getKey().hashCode() & Integer.MAX_VALUE ) % lanes.length ];
+    }
+
+    private void apply( final List<Operation> batch ) {
+        final List<KObject> toIndex = new ArrayList<KObject>();
+        final List<KObjectKey> toDelete = new ArrayList<KObjectKey>();
+
+        for ( final Operation operation : batch ) {
+            if ( operation.object != null ) {
+                applyDeletes( toDelete );
+                toIndex.add( operation.object );
+            } else if ( operation.key != null ) {
+                applyIndexes( toIndex );
+                toDelete.add( operation.key );
+            } else {
+                applyIndexes( toIndex );
+                applyDeletes( toDelete );
+                operation.release();
+            }
+        }
+        applyIndexes( toIndex );
+        applyDeletes( toDelete );
+    }
+
+    private void applyIndexes( final List<KObject> objects ) {
+        if ( objects.isEmpty() ) {
+            return;
+        }
+        try {
+            indexEngine.index( new ArrayList<KObject>( objects ) );
+        } catch ( final Throwable t ) {
+            failed( t );
+        }
+        objects.clear();
+    }
+
+    private void applyDeletes( final List<KObjectKey> keys ) {
+        if ( keys.isEmpty() ) {
+            return;
+        }
+        try {
+            indexEngine.delete( keys.toArray( new KObjectKey[ keys.size() ] ) );
+        } catch ( final Throwable t ) {
+            failed( t );
+        }
+        keys.clear();
+    }
+
+    private void failed( final Throwable t ) {
+        failure.compareAndSet( null, t instanceof RuntimeException ? (RuntimeException) t : new RuntimeException( t ) );
+    }
+
+    private static class Operation {
+
+        static final Operation STOP = new Operation( null );
+
+        final KObject        object;
+        final KObjectKey     key;
+        final CountDownLatch barrier;
+        boolean              released = false;
+
+        Operation( final KObject object,
+                   final KObjectKey key ) {
+            this.object = object;
+            this.key = key;
+            this.barrier = null;
+        }
+
+        Operation( final CountDownLatch barrier ) {
+            this.object = null;
+            this.key = null;
+            this.barrier = barrier;
+        }
+
+        /**
+         * Counts the barrier down once, however often it's called; only its lane touches it.
+         */
+        void release() {
+            if ( barrier != null && !released ) {
+                released = true;
+                barrier.countDown();
+            }
+        }
+    }
+
+    private class Lane extends Thread {
+
+        private final BlockingQueue<Operation> queue;
+
+        Lane( final int id,
+              final int capacity ) {
+            super( "kieora-indexing-" + id );
+            setDaemon( true );
+            this.queue = new ArrayBlockingQueue<Operation>( capacity );
+        }
+
+        void submit( final Operation operation ) {
+            try {
+                queue.put( operation );
+            } catch ( final InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException( e );
+            }
+        }
+
+        @Override
+        public void run() {
+            final List<Operation> batch = new ArrayList<Operation>( batchSize );
+            boolean stop = false;
+            while ( !stop ) {
+                try {
+                    batch.add( queue.take() );
+                } catch ( final InterruptedException e ) {
+                    return;
+                }
+                queue.drainTo( batch, batchSize - 1 );
+
+                final int stopAt = batch.indexOf( Operation.STOP );
+                if ( stopAt >= 0 ) {
+                    stop = true;
+                    batch.subList( stopAt, batch.size() ).clear();
+                }
+
+                try {
+                    apply( batch );
+                } catch ( final Throwable t ) {
+                    failed( t );
+                    for ( final Operation operation : batch ) {
+                        operation.release();
+                    }
+                }
+                batch.clear();
+            }
+        }
+    }
+
+}
@@ -16,6 +16,7 @@
 
 package org.kie.kieora.io;
 
+import java.net.URI;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
@@ -24,7 +25,9 @@ import org.kie.commons.java.nio.file.Path;
 import org.kie.commons.java.nio.file.attribute.FileAttribute;
 import org.kie.kieora.model.KObject;
 import org.kie.kieora.model.KObjectKey;
+import org.kie.kieora.model.KObjectKeyFactory;
 import org.kie.kieora.model.KProperty;
+import org.kie.kieora.model.KSharded;
 import org.kie.kieora.model.schema.MetaType;
 
 /**
@@ -32,15 +35,19 @@ import org.kie.kieora.model.schema.MetaType;
  */
 public final class KObjectUtil {
 
-    private static final MessageDigest DIGEST;
-
-    static {
-        try {
-            DIGEST = MessageDigest.getInstance( "SHA1" );
-        } catch ( final NoSuchAlgorithmException e ) {
-            throw new RuntimeException( e );
+    /**
+     * MessageDigest isn't thread safe and keys are hashed from indexing workers, so each thread gets its own.
+     */
+    private static final ThreadLocal<MessageDigest> DIGEST = new ThreadLocal<MessageDigest>() {
+        @Override
+        protected MessageDigest initialValue() {
+            try {
+                return MessageDigest.getInstance( "SHA1" );
+            } catch ( final NoSuchAlgorithmException e ) {
+                throw new RuntimeException( e );
+            }
         }
-    }
+    };
 
     private static final MetaType META_TYPE = new MetaType() {
         @Override
@@ -49,15 +56,86 @@ public final class KObjectUtil {
         }
     };
 
+    /**
+     * Keys of objects indexed without a shard, their ids hashed from type and key alone.
+     */
+    public static final KObjectKeyFactory KEY_FACTORY = new KObjectKeyFactory() {
+        @Override
+        public KObjectKey newKey( final String type,
+                                  final String key ) {
+            return new KObjectKey() {
+                @Override
+                public String getId() {
+                    return sha1( type + "|" + key );
+                }
+
+                @Override
+                public MetaType getType() {
+                    return new MetaType() {
+                        @Override
+                        public String getName() {
+                            return type;
+                        }
+                    };
+                }
+
+                @Override
+                public String getKey() {
+                    return key;
+                }
+            };
+        }
+    };
+
     private KObjectUtil() {
 
     }
 
+    /**
+     * Derives ids the same way {@link #toKObjectKey(Path)} does, for keys of the given shard; engines rewriting keys
+     * below a moved path need it.
+     */
+    public static KObjectKeyFactory keyFactory( final String shard ) {
+        return new KObjectKeyFactory() {
+            @Override
+            public KObjectKey newKey( final String type,
+                                      final String key ) {
+                final KObjectKey unsharded = KEY_FACTORY.newKey( type, key );
+                return new ShardedKObjectKey() {
+                    @Override
+                    public String getId() {
+                        return id( shard, type, key );
+                    }
+
+                    @Override
+                    public String getShard() {
+                        return shard;
+                    }
+
+                    @Override
+                    public MetaType getType() {
+                        return unsharded.getType();
+                    }
+
+                    @Override
+                    public String getKey() {
+                        return key;
+                    }
+                };
+            }
+        };
+    }
+
     public static KObjectKey toKObjectKey( final Path path ) {
-        return new KObjectKey() {
+        return new ShardedKObjectKey() {
             @Override
             public String getId() {
-                return sha1( getType().getName() + "|" + getKey() );
+                return id( getShard(), getType().getName(), getKey() );
+            }
+
+            @Override
+            public String getShard() {
+                return shard( path );
             }
 
             @Override
@@ -74,10 +152,15 @@ public final class KObjectUtil {
 
     public static KObject toKObject( final Path path,
                                      final FileAttribute<?>... attrs ) {
-        return new KObject() {
+        return new ShardedKObject() {
             @Override
             public String getId() {
-                return sha1( getType().getName() + "|" + getKey() );
+                return id( getShard(), getType().getName(), getKey() );
+            }
+
+            @Override
+            public String getShard() {
+                return shard( path );
             }
 
             @Override
@@ -116,8 +199,26 @@ public final class KObjectUtil {
         };
     }
 
+    /**
+     * The file system and branch of the path, e.g. "git://master@repo".
+     */
+    public static String shard( final Path path ) {
+        final URI uri = path.toUri();
+        return uri.getScheme() + "://" + ( uri.getAuthority() != null ? uri.getAuthority() : "" );
+    }
+
+    /**
+     * Paths print without their file system and branch, so the shard goes into the id to keep the same path on
+     * two branches apart.
+     */
+    private static String id( final String shard,
+                              final String type,
+                              final String key ) {
+        return sha1( shard + "|" + type + "|" + key );
+    }
+
     private static String sha1( final String input ) {
-        byte[] result = DIGEST.digest( input.getBytes() );
+        byte[] result = DIGEST.get().digest( input.getBytes() );
         final StringBuffer sb = new StringBuffer();
         for ( int i = 0; i < result.length; i++ ) {
             sb.append( Integer.toString( ( result[ i ] & 0xff ) + 0x100, 16 ).substring( 1 ) );
@@ -125,4 +226,14 @@ public final class KObjectUtil {
 
         return sb.toString();
     }
+
+    private interface ShardedKObjectKey extends KObjectKey,
+                                                KSharded {
+
+    }
+
+    private interface ShardedKObject extends KObject,
+                                             KSharded {
+
+    }
 }
@@ -22,6 +22,7 @@ import java.net.URI;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.IndexSearcher;
@@ -32,6 +33,7 @@ import org.apache.lucene.search.TopScoreDocCollector;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.kie.commons.io.IOService;
+import org.kie.commons.io.impl.IOServiceDotFileImpl;
 import org.kie.commons.java.nio.file.OpenOption;
 import org.kie.commons.java.nio.file.Path;
 import org.kie.commons.java.nio.file.attribute.FileAttribute;
@@ -278,6 +280,62 @@ public class BatchIndexTest {
         luceneSetup.nrtRelease( searcher );
     }
 
+    @Test
+    public void testParallelIndex() {
+        final IOService plainIOService = new IOServiceDotFileImpl();
+        plainIOService.newFileSystem( URI.create( "git://temp-repo-parallel" ), new HashMap<String, Object>() );
+        for ( int i = 0; i < 50; i++ ) {
+            final Path file = plainIOService.get( "git://temp-repo-parallel/dir" + ( i % 5 ) + "/file" + i + ".txt" );
+            plainIOService.write( file, "content " + i, Collections.<OpenOption>emptySet(), new FileAttribute<Object>() {
+                @Override
+                public String name() {
+                    return "dcore.author";
+                }
+
+                @Override
+                public Object value() {
+                    return "Parallel Author";
+                }
+            } );
+        }
+
+        final RAMLuceneSetup setup = new RAMLuceneSetup();
+        final MetaIndexEngine engine = new LuceneIndexEngine( new InMemoryMetaModelStore(), setup, new SimpleFieldFactory() );
+        final AtomicInteger batches = new AtomicInteger( 0 );
+
+        final BatchIndex batchIndex = new BatchIndex( engine, plainIOService.get( "git://temp-repo-parallel/" ), 4, 7, new BatchIndexListener() {
+            @Override
+            public void progress( final int visited,
+                                  final int indexed ) {
+                batches.incrementAndGet();
+            }
+        } );
+        batchIndex.run();
+
+        assertEquals( 50, batchIndex.getIndexed() );
+        assertTrue( batchIndex.getVisited() >= 50 );
+        assertEquals( 8, batches.get() );
+
+        final IndexSearcher searcher = setup.nrtSearcher();
+        assertEquals( 50, searcher.getIndexReader().numDocs() );
+        setup.nrtRelease( searcher );
+
+        final BatchIndex[] cancelled = new BatchIndex[ 1 ];
+        cancelled[ 0 ] = new BatchIndex( engine, plainIOService.get( "git://temp-repo-parallel/" ), 4, 5, new BatchIndexListener() {
+            @Override
+            public void progress( final int visited,
+                                  final int indexed ) {
+                cancelled[ 0 ].cancel();
+            }
+        } );
+        cancelled[ 0 ].run();
+
+        assertTrue( cancelled[ 0 ].isCancelled() );
+        assertEquals( 5, cancelled[ 0 ].getIndexed() );
+
+        engine.dispose();
+    }
+
     public static File createTempDirectory()
             throws IOException {
         final File temp = File.createTempFile( "temp", Long.toString( System.nanoTime() ) );
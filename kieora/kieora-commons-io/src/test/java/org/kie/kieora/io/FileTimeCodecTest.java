@@ -0,0 +1,38 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.io;
+
+import org.junit.Test;
+import org.kie.commons.java.nio.base.FileTimeImpl;
+import org.kie.commons.java.nio.file.attribute.FileTime;
+import org.kie.kieora.backend.lucene.values.ValueCodecs;
+
+import static org.junit.Assert.*;
+
+public class FileTimeCodecTest {
+
+    @Test
+    public void testRegisteredByDefault() {
+        final ValueCodecs codecs = ValueCodecs.defaults();
+        final byte[] encoded = codecs.encode( new FileTimeImpl( 1360000000000L ) );
+
+        assertEquals( FileTimeCodec.TAG, encoded[ 0 ] & 0xFF );
+        assertEquals( 1360000000000L, ( (FileTime) codecs.decode( encoded ) ).toMillis() );
+    }
+
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.util.Collections;
+import java.util.HashMap;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.NIOFSDirectory;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.kie.commons.io.IOService;
+import org.kie.commons.io.impl.IOServiceDotFileImpl;
+import org.kie.commons.java.nio.file.OpenOption;
+import org.kie.commons.java.nio.file.Path;
+import org.kie.commons.java.nio.file.attribute.FileAttribute;
+import org.kie.kieora.backend.lucene.LuceneIndexEngine;
+import org.kie.kieora.backend.lucene.fields.SimpleFieldFactory;
+import org.kie.kieora.backend.lucene.metamodels.InMemoryMetaModelStore;
+import org.kie.kieora.backend.lucene.setups.CommitPolicy;
+import org.kie.kieora.backend.lucene.setups.NIOLuceneSetup;
+import org.kie.kieora.backend.lucene.setups.RAMLuceneSetup;
+import org.kie.kieora.backend.lucene.setups.WriterSettings;
+import org.kie.kieora.search.KTermQuery;
+
+import static org.junit.Assert.*;
+import static org.kie.kieora.io.BatchIndexTest.*;
+import static org.kie.kieora.io.KObjectUtil.*;
+
+public class IncrementalIndexTest {
+
+    private static final IOService ioService = new IOServiceDotFileImpl();
+
+    @BeforeClass
+    public static void setup() throws IOException {
+        final String path = createTempDirectory().getAbsolutePath();
+        System.setProperty( "org.kie.nio.git.dir", path );
+
+        ioService.newFileSystem( URI.create( "git://temp-repo-incremental" ), new HashMap<String, Object>() );
+    }
+
+    @Test
+    public void testCatchUp() throws IOException {
+        final RAMLuceneSetup setup = new RAMLuceneSetup();
+        final LuceneIndexEngine engine = new LuceneIndexEngine( new InMemoryMetaModelStore(), setup, new SimpleFieldFactory() );
+
+        write( "git://temp-repo-incremental/a.txt", "first" );
+        write( "git://temp-repo-incremental/b.txt", "first" );
+        write( "git://temp-repo-incremental/dir/c.txt", "first" );
+        ioService.write( ioService.get( "git://temp-repo-incremental/plain.txt" ), "no attributes" );
+
+        final Path root = ioService.get( "git://temp-repo-incremental/" );
+        final IndexCheckpoints checkpoints = new IndexCheckpoints( setup );
+
+        assertEquals( -1, new IncrementalIndex( engine, checkpoints, root ).run() );
+        assertEquals( 3, numDocs( setup ) );
+        assertNotNull( checkpoints.get( "temp-repo-incremental", "master" ) );
+
+        write( "git://temp-repo-incremental/a.txt", "second" );
+        ioService.delete( ioService.get( "git://temp-repo-incremental/b.txt" ) );
+        write( "git://temp-repo-incremental/d.txt", "first" );
+
+        final IndexCheckpoints reloaded = new IndexCheckpoints( setup );
+        assertEquals( checkpoints.get( "temp-repo-incremental", "master" ), reloaded.get( "temp-repo-incremental", "master" ) );
+
+        assertEquals( 3, new IncrementalIndex( engine, reloaded, root ).run() );
+        assertEquals( 3, numDocs( setup ) );
+        assertTrue( isIndexed( setup, "git://temp-repo-incremental/a.txt" ) );
+        assertFalse( isIndexed( setup, "git://temp-repo-incremental/b.txt" ) );
+        assertTrue( isIndexed( setup, "git://temp-repo-incremental/d.txt" ) );
+        assertEquals( 1, engine.count( new KTermQuery( "dcore.version", "second" ) ) );
+
+        assertEquals( 0, new IncrementalIndex( engine, reloaded, root ).run() );
+
+        write( "git://temp-repo-incremental/dir/e.txt", "first" );
+        ioService.delete( ioService.get( "git://temp-repo-incremental/dir/c.txt" ) );
+
+        new IncrementalIndex( engine, reloaded, root ).run();
+        assertEquals( 3, numDocs( setup ) );
+        assertFalse( isIndexed( setup, "git://temp-repo-incremental/dir/c.txt" ) );
+        assertTrue( isIndexed( setup, "git://temp-repo-incremental/dir/e.txt" ) );
+
+        engine.dispose();
+    }
+
+    @Test
+    public void testCheckpointCommitsWithIndex() throws IOException {
+        ioService.newFileSystem( URI.create( "git://temp-repo-incremental-commit" ), new HashMap<String, Object>() );
+        final File dir = createTempDirectory();
+        final NIOLuceneSetup setup = new NIOLuceneSetup( dir, CommitPolicy.manual(), WriterSettings.defaults() );
+        final LuceneIndexEngine engine = new LuceneIndexEngine( new InMemoryMetaModelStore(), setup, new SimpleFieldFactory() );
+        final IndexCheckpoints checkpoints = new IndexCheckpoints( setup );
+
+        write( "git://temp-repo-incremental-commit/a.txt", "first" );
+        final Path root = ioService.get( "git://temp-repo-incremental-commit/" );
+        new IncrementalIndex( engine, checkpoints, root ).run();
+
+        final String first = checkpoints.get( "temp-repo-incremental-commit", "master" );
+        assertNotNull( first );
+        assertEquals( 1, committedDocs( dir ) );
+        assertEquals( first, committedCheckpoint( dir ) );
+
+        ioService.delete( ioService.get( "git://temp-repo-incremental-commit/a.txt" ) );
+        new IncrementalIndex( engine, checkpoints, root ).run();
+
+        final String second = checkpoints.get( "temp-repo-incremental-commit", "master" );
+        assertFalse( first.equals( second ) );
+        assertEquals( 0, committedDocs( dir ) );
+        assertEquals( second, committedCheckpoint( dir ) );
+
+        engine.dispose();
+
+        final NIOLuceneSetup reopened = new NIOLuceneSetup( dir, CommitPolicy.manual(), WriterSettings.defaults() );
+        assertEquals( second, new IndexCheckpoints( reopened ).get( "temp-repo-incremental-commit", "master" ) );
+        reopened.dispose();
+    }
+
+    private void write( final String uri,
+                        final String version ) {
+        ioService.write( ioService.get( uri ), "content " + version, Collections.<OpenOption>emptySet(), new FileAttribute<Object>() {
+            @Override
+            public String name() {
+                return "dcore.version";
+            }
+
+            @Override
+            public Object value() {
+                return version;
+            }
+        } );
+    }
+
+    private int committedDocs( final File dir ) throws IOException {
+        final Directory directory = new NIOFSDirectory( dir );
+        final DirectoryReader reader = DirectoryReader.open( directory );
+        try {
+            return reader.numDocs();
+        } finally {
+            reader.close();
+            directory.close();
+        }
+    }
+
+    private String committedCheckpoint( final File dir ) throws IOException {
+        final Directory directory = new NIOFSDirectory( dir );
+        final DirectoryReader reader = DirectoryReader.open( directory );
+        try {
+            return reader.getIndexCommit().getUserData().get( IndexCheckpoints.COMMIT_DATA_PREFIX + "master@temp-repo-incremental-commit" );
+        } finally {
+            reader.close();
+            directory.close();
+        }
+    }
+
+    private int numDocs( final RAMLuceneSetup setup ) {
+        final IndexSearcher searcher = setup.nrtSearcher();
+        try {
+            return searcher.getIndexReader().numDocs();
+        } finally {
+            setup.nrtRelease( searcher );
+        }
+    }
+
+    private boolean isIndexed( final RAMLuceneSetup setup,
+                               final String uri ) throws IOException {
+        final IndexSearcher searcher = setup.nrtSearcher();
+        try {
+            return searcher.search( new TermQuery( new Term( "id", toKObjectKey( ioService.get( uri ) ).getId() ) ), 1 ).totalHits == 1;
+        } finally {
+            setup.nrtRelease( searcher );
+        }
+    }
+
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.io;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.kie.commons.io.IOService;
+import org.kie.commons.io.impl.IOServiceDotFileImpl;
+import org.kie.commons.java.nio.file.OpenOption;
+import org.kie.commons.java.nio.file.Path;
+import org.kie.commons.java.nio.file.attribute.FileAttribute;
+import org.kie.kieora.backend.lucene.LuceneIndexEngine;
+import org.kie.kieora.backend.lucene.fields.SimpleFieldFactory;
+import org.kie.kieora.backend.lucene.metamodels.InMemoryMetaModelStore;
+import org.kie.kieora.backend.lucene.setups.RAMLuceneSetup;
+import org.kie.kieora.backend.lucene.setups.ShardedLuceneSetup;
+import org.kie.kieora.search.KTermQuery;
+import org.kie.kieora.search.KTypeQuery;
+
+import static java.util.Arrays.*;
+import static org.junit.Assert.*;
+import static org.kie.kieora.backend.lucene.KObjectTestUtil.*;
+import static org.kie.kieora.io.KObjectUtil.*;
+
+public class IndexCheckTest {
+
+    private static final String REPO = "git://temp-repo-check";
+
+    @BeforeClass
+    public static void setup() throws IOException {
+        System.setProperty( "org.kie.nio.git.dir", BatchIndexTest.createTempDirectory().getAbsolutePath() );
+    }
+
+    @Test
+    public void testCheckAndRepair() {
+        final IOService ioService = new IOServiceDotFileImpl();
+        ioService.newFileSystem( URI.create( REPO ), new HashMap<String, Object>() );
+        for ( int i = 0; i < 20; i++ ) {
+            ioService.write( ioService.get( REPO + "/dir" + ( i % 4 ) + "/file" + i + ".txt" ), "content " + i,
+                             Collections.<OpenOption>emptySet(), author( "Author " + i ) );
+        }
+        ioService.write( ioService.get( REPO + "/plain.txt" ), "no attributes" );
+
+        final LuceneIndexEngine engine = new LuceneIndexEngine( new InMemoryMetaModelStore(), new RAMLuceneSetup(), new SimpleFieldFactory() );
+        final Path root = ioService.get( REPO + "/" );
+        new BatchIndex( engine, root ).run();
+
+        final List<String> found = new ArrayList<String>();
+        final IndexCheck check = new IndexCheck( engine, engine, root, 3, new IndexCheckListener() {
+            @Override
+            public void missing( final String key ) {
+                found.add( "missing " + key );
+            }
+
+            @Override
+            public void stale( final String key ) {
+                found.add( "stale " + key );
+            }
+
+            @Override
+            public void orphan( final String key ) {
+                found.add( "orphan " + key );
+            }
+        } );
+
+        assertEquals( 0, check.check() );
+        assertEquals( 20, check.getChecked() );
+
+        engine.delete( toKObjectKey( ioService.get( REPO + "/dir0/file0.txt" ) ) );
+        engine.index( toKObject( ioService.get( REPO + "/dir1/file1.txt" ), author( "Someone Else" ) ) );
+        engine.index( toKObject( ioService.get( REPO + "/gone/deep/file.txt" ), author( "Nobody" ) ) );
+        engine.index( toKObject( ioService.get( REPO + "/plain.txt" ) ) );
+        ioService.delete( ioService.get( REPO + "/dir2/file2.txt" ) );
+
+        assertEquals( 5, check.check() );
+        assertEquals( 1, check.getMissing() );
+        assertEquals( 1, check.getStale() );
+        assertEquals( 3, check.getOrphans() );
+        Collections.sort( found );
+        assertEquals( asList( "missing /dir0/file0.txt", "orphan /dir2/file2.txt", "orphan /gone", "orphan /plain.txt",
+                              "stale /dir1/file1.txt" ), found );
+
+        assertEquals( 5, check.repair() );
+        assertEquals( 0, check.check() );
+        assertEquals( 19, check.getChecked() );
+        assertEquals( 19, engine.count( new KTypeQuery( Path.class.getName() ) ) );
+
+        engine.dispose();
+    }
+
+    @Test
+    public void testOtherBranchesAreLeftAlone() {
+        final String repo = "git://temp-repo-branches";
+        final IOService ioService = new IOServiceDotFileImpl();
+        ioService.newFileSystem( URI.create( repo ), new HashMap<String, Object>() );
+        ioService.write( ioService.get( repo + "/dir/file.txt" ), "content",
+                         Collections.<OpenOption>emptySet(), author( "Author" ) );
+
+        final LuceneIndexEngine engine = new LuceneIndexEngine( new InMemoryMetaModelStore(), new RAMLuceneSetup(), new SimpleFieldFactory() );
+        final Path root = ioService.get( repo + "/" );
+        new BatchIndex( engine, root ).run();
+
+        final String branch = "git://dev@temp-repo-branches";
+        engine.index( newShardedKObject( branch, Path.class.getName(), "/dir/file.txt", newKProperty( "dcore.author", "Someone Else" ) ) );
+        engine.index( newShardedKObject( branch, Path.class.getName(), "/elsewhere/file.txt", newKProperty( "dcore.author", "Someone Else" ) ) );
+
+        final IndexCheck check = new IndexCheck( engine, engine, root );
+        assertEquals( 0, check.check() );
+        assertEquals( 1, check.getChecked() );
+        assertEquals( 0, check.repair() );
+        assertEquals( 2, engine.count( new KTermQuery( ShardedLuceneSetup.SHARD_FIELD, branch ) ) );
+
+        engine.dispose();
+    }
+
+    @Test
+    public void testUnshardedObjectsAreOrphans() {
+        final String repo = "git://temp-repo-unsharded";
+        final IOService ioService = new IOServiceDotFileImpl();
+        ioService.newFileSystem( URI.create( repo ), new HashMap<String, Object>() );
+        ioService.write( ioService.get( repo + "/dir/file.txt" ), "content",
+                         Collections.<OpenOption>emptySet(), author( "Author" ) );
+
+        final LuceneIndexEngine engine = new LuceneIndexEngine( new InMemoryMetaModelStore(), new RAMLuceneSetup(), new SimpleFieldFactory() );
+        final Path root = ioService.get( repo + "/" );
+        new BatchIndex( engine, root ).run();
+
+        // as indexed before ids carried the shard
+        engine.index( newKObject( Path.class.getName(), "/dir/file.txt" ) );
+        engine.index( newKObject( Path.class.getName(), "/old/deep/file.txt" ) );
+        engine.index( newKObject( Path.class.getName(), "/top.txt" ) );
+
+        final List<String> found = new ArrayList<String>();
+        final IndexCheck check = new IndexCheck( engine, engine, root, 10, new IndexCheckListener() {
+            @Override
+            public void missing( final String key ) {
+                found.add( "missing " + key );
+            }
+
+            @Override
+            public void stale( final String key ) {
+                found.add( "stale " + key );
+            }
+
+            @Override
+            public void orphan( final String key ) {
+                found.add( "orphan " + key );
+            }
+        } );
+        assertEquals( 3, check.check() );
+        assertEquals( asList( "orphan /dir", "orphan /old", "orphan /top.txt" ), found );
+
+        assertEquals( 3, check.repair() );
+        assertEquals( 0, check.check() );
+        assertEquals( 1, engine.count( new KTypeQuery( Path.class.getName() ) ) );
+
+        engine.dispose();
+    }
+
+    @Test
+    public void testSamePathInTwoFileSystems() {
+        final IOService ioService = new IOServiceDotFileImpl();
+        final LuceneIndexEngine engine = new LuceneIndexEngine( new InMemoryMetaModelStore(), new RAMLuceneSetup(), new SimpleFieldFactory() );
+        for ( final String repo : asList( "git://temp-repo-same-a", "git://temp-repo-same-b" ) ) {
+            ioService.newFileSystem( URI.create( repo ), new HashMap<String, Object>() );
+            ioService.write( ioService.get( repo + "/file.txt" ), "content", Collections.<OpenOption>emptySet(), author( repo ) );
+            engine.index( toKObject( ioService.get( repo + "/file.txt" ), author( repo ) ) );
+        }
+
+        assertEquals( 2, engine.count( new KTypeQuery( Path.class.getName() ) ) );
+
+        engine.delete( toKObjectKey( ioService.get( "git://temp-repo-same-a/file.txt" ) ) );
+        assertEquals( 1, engine.count( new KTypeQuery( Path.class.getName() ) ) );
+        assertEquals( 1, engine.count( new KTermQuery( "id", toKObjectKey( ioService.get( "git://temp-repo-same-b/file.txt" ) ).getId() ) ) );
+
+        engine.dispose();
+    }
+
+    private static FileAttribute<?> author( final String author ) {
+        return new FileAttribute<Object>() {
+            @Override
+            public String name() {
+                return "dcore.author";
+            }
+
+            @Override
+            public Object value() {
+                return author;
+            }
+        };
+    }
+
+}
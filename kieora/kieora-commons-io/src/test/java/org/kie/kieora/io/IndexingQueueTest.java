@@ -0,0 +1,240 @@
+/*
+ * Copyright 2013 JBoss Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.kie.kieora.io;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.kie.kieora.engine.MetaIndexEngine;
+import org.kie.kieora.model.KObject;
+import org.kie.kieora.model.KObjectKey;
+import org.kie.kieora.model.KObjectKeyFactory;
+
+import static org.junit.Assert.*;
+import static org.kie.kieora.backend.lucene.KObjectTestUtil.*;
+
+public class IndexingQueueTest {
+
+    @Test
+    public void testOrderPerKey() {
+        final RecordingEngine engine = new RecordingEngine();
+        final IndexingQueue queue = new IndexingQueue( engine, 4, 8, 3 );
+
+        for ( int i = 0; i < 50; i++ ) {
+            queue.index( newKObject( "test", "a", newKProperty( "version", i ) ) );
+            queue.index( newKObject( "test", "b", newKProperty( "version", i ) ) );
+            if ( i % 10 == 9 ) {
+                queue.delete( newKey( "test", "a" ) );
+            }
+        }
+        queue.flush();
+
+        final List<String> a = engine.operationsFor( "a" );
+        final List<String> b = engine.operationsFor( "b" );
+        assertEquals( 55, a.size() );
+        assertEquals( 50, b.size() );
+        assertEquals( "index:a:0", a.get( 0 ) );
+        assertEquals( "index:a:9", a.get( 9 ) );
+        assertEquals( "delete:a", a.get( 10 ) );
+        assertEquals( "index:a:10", a.get( 11 ) );
+        assertEquals( "delete:a", a.get( 54 ) );
+        for ( int i = 0; i < 50; i++ ) {
+            assertEquals( "index:b:" + i, b.get( i ) );
+        }
+        assertTrue( engine.batches > 0 );
+        assertEquals( 0, engine.commits );
+
+        queue.commit();
+        assertEquals( 1, engine.commits );
+
+        queue.dispose();
+        assertTrue( engine.disposed );
+    }
+
+    @Test
+    public void testRenameWaitsForQueuedOperations() {
+        final RecordingEngine engine = new RecordingEngine();
+        final IndexingQueue queue = new IndexingQueue( engine, 2, 4, 10 );
+
+        for ( int i = 0; i < 20; i++ ) {
+            queue.index( newKObject( "test", "from", newKProperty( "version", i ) ) );
+        }
+        queue.rename( newKey( "test", "from" ), newKey( "test", "to" ) );
+
+        final List<String> from = engine.operationsFor( "from" );
+        assertEquals( 21, from.size() );
+        assertEquals( "rename:from", from.get( 20 ) );
+
+        queue.dispose();
+    }
+
+    @Test
+    public void testFailureSurfacesOnFlush() {
+        final RecordingEngine engine = new RecordingEngine() {
+            @Override
+            public void index( final Iterable<KObject> objects ) {
+                throw new IllegalStateException( "broken" );
+            }
+        };
+        final IndexingQueue queue = new IndexingQueue( engine, 1, 4, 4 );
+
+        queue.index( newKObject( "test", "a", newKProperty( "version", 0 ) ) );
+        try {
+            queue.flush();
+            fail( "worker failure should be rethrown" );
+        } catch ( final IllegalStateException ex ) {
+            assertEquals( "broken", ex.getMessage() );
+        }
+        queue.flush();
+
+        queue.dispose();
+    }
+
+    @Test
+    public void testFirstFailureWins() {
+        final RecordingEngine engine = new RecordingEngine() {
+            @Override
+            public void index( final Iterable<KObject> objects ) {
+                throw new IllegalStateException( describe( objects.iterator().next() ) );
+            }
+        };
+        final IndexingQueue queue = new IndexingQueue( engine, 1, 4, 1 );
+
+        queue.index( newKObject( "test", "a", newKProperty( "version", 0 ) ) );
+        queue.index( newKObject( "test", "a", newKProperty( "version", 1 ) ) );
+        try {
+            queue.flush();
+            fail( "worker failure should be rethrown" );
+        } catch ( final IllegalStateException ex ) {
+            assertEquals( "a:0", ex.getMessage() );
+        }
+        queue.flush();
+
+        queue.dispose();
+    }
+
+    @Test(timeout = 10000)
+    public void testLaneSurvivesErrors() {
+        final RecordingEngine engine = new RecordingEngine() {
+            @Override
+            public void delete( final KObjectKey... objectsKey ) {
+                throw new AssertionError( "fatal" );
+            }
+        };
+        final IndexingQueue queue = new IndexingQueue( engine, 1, 4, 4 );
+
+        queue.delete( newKObject( "test", "a", newKProperty( "version", 0 ) ) );
+        try {
+            queue.flush();
+            fail( "worker error should be rethrown" );
+        } catch ( final RuntimeException ex ) {
+            assertTrue( ex.getCause() instanceof AssertionError );
+        }
+
+        queue.index( newKObject( "test", "b", newKProperty( "version", 0 ) ) );
+        queue.flush();
+        assertEquals( 1, engine.operationsFor( "b" ).size() );
+
+        queue.dispose();
+    }
+
+    private static String describe( final KObject object ) {
+        return object.getKey() + ":" + object.getProperties().iterator().next().getValue();
+    }
+
+    private static class RecordingEngine implements MetaIndexEngine {
+
+        final List<String> operations = new ArrayList<String>();
+        volatile int       batches    = 0;
+        volatile int       commits    = 0;
+        volatile boolean   disposed   = false;
+
+        synchronized List<String> operationsFor( final String key ) {
+            final List<String> result = new ArrayList<String>();
+            for ( final String operation : operations ) {
+                if ( operation.split( ":" )[ 1 ].equals( key ) ) {
+                    result.add( operation );
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public void index( final KObject object ) {
+            index( Collections.singletonList( object ) );
+        }
+
+        @Override
+        public void index( final KObject... objects ) {
+            for ( final KObject object : objects ) {
+                index( object );
+            }
+        }
+
+        @Override
+        public synchronized void index( final Iterable<KObject> objects ) {
+            batches++;
+            for ( final KObject object : objects ) {
+                operations.add( "index:" + describe( object ) );
+            }
+        }
+
+        @Override
+        public synchronized void rename( final KObjectKey from,
+                                         final KObjectKey to ) {
+            operations.add( "rename:" + from.getKey() );
+        }
+
+        @Override
+        public synchronized void renameTree( final KObjectKey from,
+                                             final KObjectKey to,
+                                             final KObjectKeyFactory keyFactory ) {
+            operations.add( "renameTree:" + from.getKey() );
+        }
+
+        @Override
+        public void delete( final KObjectKey objectKey ) {
+            delete( new KObjectKey[]{ objectKey } );
+        }
+
+        @Override
+        public synchronized void deleteTree( final KObjectKey root ) {
+            operations.add( "deleteTree:" + root.getKey() );
+        }
+
+        @Override
+        public synchronized void commit() {
+            commits++;
+        }
+
+        @Override
+        public synchronized void delete( final KObjectKey... objectsKey ) {
+            for ( final KObjectKey key : objectsKey ) {
+                operations.add( "delete:" + key.getKey() );
+            }
+        }
+
+        @Override
+        public void dispose() {
+            disposed = true;
+        }
+    }
+
+}